@@ -0,0 +1,25 @@
+package com.drawathang.game_server.benchmarks;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Binds the game server's meters to an in-memory registry, so benchmarks pay for recording them
+ * as a running server does rather than recording into meters bound to nothing.
+ */
+final class BenchmarkMeters {
+    private static boolean bound = false;
+
+    // Prevent instantiation
+    private BenchmarkMeters() {}
+
+    /**
+     * Binds the meters once per benchmark JVM; later calls do nothing.
+     */
+    static synchronized void bind() {
+        if (!bound) {
+            GameServerMetrics.bindTo(new SimpleMeterRegistry());
+            bound = true;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.drawathang.game_server.benchmarks;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end fan-out: one event serialized, queued for every recipient and drained by the writer
+ * pool. Each operation waits until every recipient's session was handed the message, so queues
+ * never build up across operations and the result is the full cost of one broadcast.
+ * <p>
+ * {@code parallelFanOut} is the recipient count from which the broadcast is fanned out in
+ * parallel; comparing it against {@code Integer.MAX_VALUE}, which never fans out, locates the
+ * crossover for {@code game-server.outbound.parallel-fan-out}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"8", "64", "1000", "20000"})
+    public int recipients;
+
+    @Param({"" + BroadcastService.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD, "2147483647"})
+    public int parallelFanOut;
+
+    private final BroadcastService broadcastService = new BroadcastService();
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<String> sessionIds = new ArrayList<>();
+    private Map<String, Object> event;
+
+    @Setup(Level.Trial)
+    public void registerSessions() {
+        BenchmarkMeters.bind();
+        broadcastService.setParallelFanOutThreshold(parallelFanOut);
+        for (int i = 0; i < recipients; i++) {
+            String id = "bench-" + i;
+            sessionIds.add(id);
+            broadcastService.registerSession(StubSessions.counting(id, delivered));
+        }
+        event = Map.of(
+                "event", "GUESS_ADDED",
+                "seq", 42L,
+                "roomId", "6f1c1f0e-3a4b-4e43-9d5e-1d2c3b4a5f60",
+                "sessionId", "bench-0",
+                "userName", "benchmarker",
+                "guess", "a house with a red door"
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void unregisterSessions() {
+        sessionIds.forEach(broadcastService::unregisterSession);
+        sessionIds.clear();
+    }
+
+    @Benchmark
+    public void broadcast() {
+        long target = delivered.get() + recipients;
+        broadcastService.broadcast(sessionIds, event);
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Benchmark
+    public void broadcastBinary() {
+        long target = delivered.get() + recipients;
+        broadcastService.broadcastBinary(sessionIds, new byte[]{0x02, 0x00});
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
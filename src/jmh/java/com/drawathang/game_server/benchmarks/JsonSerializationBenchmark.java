@@ -0,0 +1,82 @@
+package com.drawathang.game_server.benchmarks;
+
+import com.drawathang.game_server.util.JsonUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonUtil#toJson} on the two shapes the server sends most: a small room event and a full
+ * room snapshot, whose size grows with the player count and the guess history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"8", "64"})
+    public int roomSize;
+
+    @Param({"0", "50", "500"})
+    public int guessHistory;
+
+    private Map<String, Object> event;
+    private Map<String, Object> snapshot;
+
+    @Setup(Level.Trial)
+    public void buildPayloads() {
+        event = Map.of(
+                "event", "GUESS_ADDED",
+                "seq", 42L,
+                "roomId", "6f1c1f0e-3a4b-4e43-9d5e-1d2c3b4a5f60",
+                "sessionId", "player-0",
+                "userName", "player 0",
+                "guess", "a house with a red door"
+        );
+
+        List<Map<String, String>> players = new ArrayList<>(roomSize);
+        for (int i = 0; i < roomSize; i++) {
+            players.add(Map.of("sessionId", "player-" + i, "userName", "player " + i));
+        }
+        List<Map<String, String>> guesses = new ArrayList<>(guessHistory);
+        for (int i = 0; i < guessHistory; i++) {
+            guesses.add(Map.of("sessionId", "player-" + i % roomSize, "userName", "player " + i % roomSize, "guess", "guess number " + i));
+        }
+        snapshot = Map.of(
+                "event", "ROOM_SNAPSHOT",
+                "seq", 42L,
+                "roomId", "6f1c1f0e-3a4b-4e43-9d5e-1d2c3b4a5f60",
+                "roomName", "benchmark room",
+                "hostSessionId", "player-0",
+                "players", players,
+                "guesses", guesses
+        );
+    }
+
+    @Benchmark
+    public String roomEvent() {
+        return JsonUtil.toJson(event);
+    }
+
+    @Benchmark
+    public String roomSnapshot() {
+        return JsonUtil.toJson(snapshot);
+    }
+}
@@ -0,0 +1,82 @@
+package com.drawathang.game_server.benchmarks;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.Room;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import com.drawathang.game_server.services.domain.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room membership as the shard uses it: finding the sender of a guess or stroke, and a player in
+ * the middle of the room leaving and coming back. Both should cost the same at any room size, apart
+ * from the events a leave and a join broadcast and the snapshot the joiner gets. Players have no
+ * registered sessions, so nothing is queued.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MembershipBenchmark {
+
+    @Param({"8", "64", "1000"})
+    public int members;
+
+    private final List<String> sessionIds = new ArrayList<>();
+    private Room room;
+    private Session middle;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void buildRoom() {
+        BenchmarkMeters.bind();
+        for (int i = 0; i < members; i++) {
+            sessionIds.add("player-" + i);
+        }
+
+        room = new Room("membership-room", "membership room", new Session(sessionIds.get(0)), new BroadcastService(), new StrokeSegmentPool(), GuessHistory.DEFAULT_CAPACITY);
+        for (int i = 1; i < members; i++) {
+            Session session = new Session(sessionIds.get(i));
+            room.join(session);
+            if (i == members / 2) {
+                middle = session;
+            }
+        }
+    }
+
+    /**
+     * The lookup behind every guess and stroke, cycling through the members.
+     */
+    @Benchmark
+    public Session lookupMember() {
+        String sessionId = sessionIds.get(next);
+        next = next + 1 == members ? 0 : next + 1;
+        return room.getSessionById(sessionId);
+    }
+
+    /**
+     * A member from the middle of the join order leaves and rejoins at the end.
+     */
+    @Benchmark
+    public void leaveAndRejoin() {
+        room.leave(middle.getSessionId());
+        room.join(middle);
+    }
+}
@@ -0,0 +1,82 @@
+package com.drawathang.game_server.benchmarks;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.Room;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import com.drawathang.game_server.services.domain.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room updates as the room's shard runs them: building the event, serializing it and handing it
+ * to {@link BroadcastService}. Players have no registered
+ * sessions, so nothing is queued; the cost of fan-out is measured by {@link BroadcastBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomBenchmark {
+
+    @Param({"8", "64"})
+    public int roomSize;
+
+    @Param({"0", "50", "500"})
+    public int guessHistory;
+
+    private final List<String> sessionIds = new ArrayList<>();
+    private Room room;
+    private Session visitor;
+
+    @Setup(Level.Trial)
+    public void buildRoom() {
+        BenchmarkMeters.bind();
+        for (int i = 0; i < roomSize; i++) {
+            sessionIds.add("player-" + i);
+        }
+
+        room = new Room("6f1c1f0e-3a4b-4e43-9d5e-1d2c3b4a5f60", "benchmark room", new Session(sessionIds.get(0)), new BroadcastService(), new StrokeSegmentPool(), GuessHistory.DEFAULT_CAPACITY);
+        for (int i = 1; i < roomSize; i++) {
+            room.join(new Session(sessionIds.get(i)));
+        }
+        for (int i = 0; i < guessHistory; i++) {
+            room.submitGuess(sessionIds.get(i % roomSize), "guess number " + i);
+        }
+        visitor = new Session("visitor");
+    }
+
+    /**
+     * A player joining and leaving again: two incremental events to the whole room, and a
+     * snapshot to the joiner. Leaves the room as it found it.
+     */
+    @Benchmark
+    public void joinAndLeave() {
+        room.join(visitor);
+        room.leave(visitor.getSessionId());
+    }
+
+    /**
+     * A full snapshot to one player, as sent on join and on request.
+     */
+    @Benchmark
+    public void sendSnapshot() {
+        room.sendSnapshot(sessionIds.get(0));
+    }
+}
@@ -0,0 +1,105 @@
+package com.drawathang.game_server.benchmarks;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.Room;
+import com.drawathang.game_server.services.RoomDirectory;
+import com.drawathang.game_server.services.RoomService;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import com.drawathang.game_server.services.WordBank;
+import com.drawathang.game_server.services.domain.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The lobby's view of the rooms: reading the full list and publishing room changes to everyone in
+ * the lobby. Each change waits until every lobby session was handed its delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomsInfoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int rooms;
+
+    @Param({"10", "1000"})
+    public int lobbySize;
+
+    private final BroadcastService broadcastService = new BroadcastService();
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<String> lobby = new ArrayList<>();
+    private RoomService roomService;
+    private RoomDirectory roomDirectory;
+    private Room changingRoom;
+
+    @Setup(Level.Trial)
+    public void buildLobby() {
+        BenchmarkMeters.bind();
+        for (int i = 0; i < lobbySize; i++) {
+            String id = "lobby-" + i;
+            lobby.add(id);
+            broadcastService.registerSession(StubSessions.counting(id, delivered));
+        }
+
+        roomDirectory = new RoomDirectory(broadcastService, () -> lobby);
+        roomService = new RoomService(roomDirectory, broadcastService, 30, 1, GuessHistory.DEFAULT_CAPACITY,
+                new WordBank.Builder(WordBank.DEFAULT_LOCALE).build());
+        StrokeSegmentPool strokeSegmentPool = new StrokeSegmentPool();
+        for (int i = 0; i < rooms; i++) {
+            Room room = new Room("room-" + i, "room " + i, new Session("host-" + i), broadcastService, strokeSegmentPool, GuessHistory.DEFAULT_CAPACITY);
+            roomDirectory.roomAdded(room);
+            changingRoom = room;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        roomService.shutdown();
+        lobby.forEach(broadcastService::unregisterSession);
+        lobby.clear();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getRoomsInfo() {
+        return roomService.getRoomsInfo();
+    }
+
+    /**
+     * One player joining and leaving a room: two {@code ROOMS_DELTA} broadcasts to the lobby.
+     */
+    @Benchmark
+    public void participantCountChange() {
+        long target = delivered.get() + 2L * lobbySize;
+
+        Session visitor = new Session("visitor");
+        changingRoom.join(visitor);
+        roomDirectory.participantCountChanged(changingRoom);
+        changingRoom.leave(visitor.getSessionId());
+        roomDirectory.participantCountChanged(changingRoom);
+
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
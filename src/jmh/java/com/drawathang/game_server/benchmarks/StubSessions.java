@@ -0,0 +1,36 @@
+package com.drawathang.game_server.benchmarks;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in WebSocket sessions that discard what they are sent, so benchmarks measure the server
+ * side of a send and nothing of the network.
+ */
+final class StubSessions {
+    // Prevent instantiation
+    private StubSessions() {}
+
+    /**
+     * Builds an open session that counts every message it is asked to send.
+     */
+    static WebSocketSession counting(String id, AtomicLong delivered) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        delivered.incrementAndGet();
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                });
+    }
+}
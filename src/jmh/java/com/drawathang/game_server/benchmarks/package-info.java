@@ -0,0 +1,12 @@
+/**
+ * JMH benchmarks for the broadcast and serialization hot paths.
+ * <p>
+ * Built and run only under the {@code benchmarks} Maven profile:
+ * <pre>
+ * ./mvnw -P benchmarks -DskipTests compile exec:exec
+ * ./mvnw -P benchmarks -DskipTests compile exec:exec -Djmh.args="BroadcastBenchmark -p recipients=1000 -prof gc"
+ * </pre>
+ * Results go to {@code target/jmh-result.json}; with the gc profiler each result also carries
+ * {@code gc.alloc.rate.norm}, the bytes allocated per operation.
+ */
+package com.drawathang.game_server.benchmarks;
@@ -0,0 +1,51 @@
+package com.drawathang.game_server.cluster;
+
+import java.util.Set;
+
+/**
+ * Carries {@link ClusterMessage}s between the game-server nodes of a cluster.
+ * <p>
+ * Implementations decide the transport; the game server only relies on two guarantees. Messages
+ * from one node to another arrive in the order they were sent, and they are handed to the
+ * receiving node's handler one at a time. Sending never blocks on the receiver.
+ * <p>
+ * Membership is fixed once the nodes start taking connections: every node is expected to be on
+ * the bus before the first player arrives.
+ */
+public interface ClusterBus {
+
+    /**
+     * Receives messages from other nodes.
+     */
+    @FunctionalInterface
+    interface Handler {
+        void onMessage(String fromNodeId, ClusterMessage message);
+    }
+
+    String getLocalNodeId();
+
+    /**
+     * Every node on the bus, this one included.
+     */
+    Set<String> getNodeIds();
+
+    /**
+     * Sends a message to every other node.
+     */
+    void publish(ClusterMessage message);
+
+    /**
+     * Sends a message to one node. Messages to a node that is not on the bus are dropped.
+     */
+    void send(String nodeId, ClusterMessage message);
+
+    /**
+     * Sets the handler for messages arriving at this node.
+     */
+    void subscribe(Handler handler);
+
+    /**
+     * Leaves the bus. Nothing is delivered to this node afterwards.
+     */
+    void close();
+}
@@ -0,0 +1,84 @@
+package com.drawathang.game_server.cluster;
+
+import com.drawathang.game_server.communication.OutboundMessageClass;
+import com.drawathang.game_server.services.domain.DrawEvent;
+
+import java.util.List;
+
+/**
+ * Everything game-server nodes tell each other.
+ * <p>
+ * Lobby presence and the room directory are replicated to every node, so each node can serve its
+ * own lobby. Room commands go to the node that owns the room, and the room's broadcasts come back
+ * as {@link Deliver} messages to the nodes holding the recipients' connections.
+ */
+public sealed interface ClusterMessage {
+
+    /**
+     * Sessions joined ({@code delta > 0}) or left the sending node. Deltas commute, so concurrent
+     * changes on different nodes add up to the same count everywhere.
+     */
+    record PresenceChanged(int delta) implements ClusterMessage {
+    }
+
+    /**
+     * A room owned by the sending node opened.
+     */
+    record RoomListed(String roomId, String roomName, int participantCount) implements ClusterMessage {
+    }
+
+    /**
+     * A room owned by the sending node closed.
+     */
+    record RoomUnlisted(String roomId) implements ClusterMessage {
+    }
+
+    record ParticipantCountChanged(String roomId, int participantCount) implements ClusterMessage {
+    }
+
+    /**
+     * A player on the sending node creates a room owned by the receiving node.
+     */
+    record CreateRoom(String sessionId, String username, String roomId, String roomName) implements ClusterMessage {
+    }
+
+    /**
+     * A player on the sending node joins a room owned by the receiving node.
+     */
+    record JoinRoom(String sessionId, String username, String roomId) implements ClusterMessage {
+    }
+
+    /**
+     * A player on the sending node leaves their room on the receiving node. Always answered with
+     * {@link ReturnedToLobby}, even if the player was no longer in the room.
+     */
+    record LeaveRoom(String sessionId) implements ClusterMessage {
+    }
+
+    /**
+     * Tells the node holding a player's connection that the player is out of their room, either
+     * because they left or because the room they tried to join was gone.
+     */
+    record ReturnedToLobby(String sessionId) implements ClusterMessage {
+    }
+
+    /**
+     * A command from a player on the sending node to their room on the receiving node.
+     */
+    record RoomAction(String sessionId, Action action, String argument) implements ClusterMessage {
+        public enum Action {
+            SUBMIT_GUESS, START_GAME, PICK_WORD, REQUEST_ROOM_SNAPSHOT
+        }
+    }
+
+    record SubmitDrawEvent(String sessionId, DrawEvent drawEvent) implements ClusterMessage {
+    }
+
+    /**
+     * An outbound message for players whose connections are on the receiving node. The payload is
+     * encoded once for all of them.
+     */
+    record Deliver(List<String> recipients, byte[] payload, boolean binary,
+                   OutboundMessageClass messageClass) implements ClusterMessage {
+    }
+}
@@ -0,0 +1,99 @@
+package com.drawathang.game_server.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Consistent hashing of room ids onto nodes.
+ * <p>
+ * Each node is hashed onto a 64-bit ring at {@code virtualNodes} points; a key belongs to the
+ * first point at or after its own hash, wrapping around. Many points per node even out the share
+ * of keys each node gets, and adding or removing a node only moves the keys next to its points.
+ * <p>
+ * Points are kept as two parallel sorted arrays, so a lookup is one hash and a binary search with
+ * no allocation. The ring is immutable.
+ */
+public class HashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodeIds;
+
+    public HashRing(Collection<String> nodeIds) {
+        this(nodeIds, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param virtualNodes Points per node on the ring.
+     */
+    public HashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        // Sorted, so every node builds the same ring from the same members.
+        this.nodeIds = Collections.unmodifiableSortedSet(new TreeSet<>(nodeIds));
+
+        int count = this.nodeIds.size() * virtualNodes;
+        long[] hashes = new long[count];
+        String[] nodes = new String[count];
+        int i = 0;
+        for (String nodeId : this.nodeIds) {
+            for (int point = 0; point < virtualNodes; point++) {
+                hashes[i] = hash(nodeId + "#" + point);
+                nodes[i] = nodeId;
+                i++;
+            }
+        }
+
+        // Sort the points, carrying their owners along.
+        Integer[] order = new Integer[count];
+        for (int j = 0; j < count; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[count];
+        this.owners = new String[count];
+        for (int j = 0; j < count; j++) {
+            this.points[j] = hashes[order[j]];
+            this.owners[j] = nodes[order[j]];
+        }
+    }
+
+    public Set<String> getNodeIds() {
+        return this.nodeIds;
+    }
+
+    /**
+     * The node that owns {@code key}.
+     */
+    public String ownerOf(String key) {
+        int index = Arrays.binarySearch(this.points, hash(key));
+        if (index < 0) {
+            // Insertion point: the first point after the hash.
+            index = -index - 1;
+        }
+        return this.owners[index == this.points.length ? 0 : index];
+    }
+
+    /**
+     * 64-bit FNV-1a over the key's chars, finished with the MurmurHash3 mixer so that keys that
+     * differ only in their last chars still land far apart.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
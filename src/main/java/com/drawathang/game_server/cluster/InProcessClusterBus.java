@@ -0,0 +1,109 @@
+package com.drawathang.game_server.cluster;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link ClusterBus} between nodes in the same JVM.
+ * <p>
+ * Nodes join a shared {@link Network}. Messages are handed over by reference and run on the
+ * receiving node's own inbound thread, one at a time and in the order they were sent, the same
+ * guarantees a network transport would give. A single node on its own network is the standalone
+ * server; several nodes on one network run a whole cluster in one process, for tests.
+ */
+public class InProcessClusterBus implements ClusterBus {
+
+    /**
+     * The nodes that can reach each other.
+     */
+    public static class Network {
+        private final Map<String, InProcessClusterBus> nodes = new ConcurrentHashMap<>();
+
+        /**
+         * Adds a node to the network.
+         */
+        public InProcessClusterBus join(String nodeId) {
+            InProcessClusterBus bus = new InProcessClusterBus(this, nodeId);
+            if (this.nodes.putIfAbsent(nodeId, bus) != null) {
+                bus.inbound.shutdown();
+                throw new IllegalArgumentException("Node " + nodeId + " is already on the network");
+            }
+            return bus;
+        }
+    }
+
+    /**
+     * A bus with this node alone on it: every room is owned locally and nothing is ever sent.
+     */
+    public static InProcessClusterBus standalone(String nodeId) {
+        return new Network().join(nodeId);
+    }
+
+    private final Network network;
+    private final String nodeId;
+    private final ExecutorService inbound;
+    private volatile Handler handler = (fromNodeId, message) -> {
+    };
+
+    private InProcessClusterBus(Network network, String nodeId) {
+        this.network = network;
+        this.nodeId = nodeId;
+        this.inbound = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-bus-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getLocalNodeId() {
+        return this.nodeId;
+    }
+
+    @Override
+    public Set<String> getNodeIds() {
+        return Collections.unmodifiableSet(new TreeSet<>(this.network.nodes.keySet()));
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (InProcessClusterBus node : this.network.nodes.values()) {
+            if (node != this) {
+                node.receive(this.nodeId, message);
+            }
+        }
+    }
+
+    @Override
+    public void send(String nodeId, ClusterMessage message) {
+        InProcessClusterBus node = this.network.nodes.get(nodeId);
+        if (node != null) {
+            node.receive(this.nodeId, message);
+        }
+    }
+
+    @Override
+    public void subscribe(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void close() {
+        this.network.nodes.remove(this.nodeId, this);
+        this.inbound.shutdown();
+    }
+
+    private void receive(String fromNodeId, ClusterMessage message) {
+        try {
+            this.inbound.execute(() -> this.handler.onMessage(fromNodeId, message));
+        } catch (RejectedExecutionException e) {
+            // The node left the bus; the message has nowhere to go.
+        }
+    }
+}
@@ -1,59 +1,284 @@
 package com.drawathang.game_server.communication;
 
-import com.drawathang.game_server.contract.GameServerMessage;
+import com.drawathang.game_server.metrics.GameServerMetrics;
 import com.drawathang.game_server.util.JsonUtil;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Outbound messages of one node: every session connected to it, each with its own queue and
+ * writer, and the sessions connected to other nodes that its rooms broadcast to.
+ * <p>
+ * Each {@link com.drawathang.game_server.services.GameServer} has its own, so nodes sharing a
+ * JVM, as in tests, only reach each other's sessions through their cluster bus. The writer pool
+ * is shared: it holds no per-node state.
+ */
 public class BroadcastService {
     /**
-     * Stores message queues for each session to enable asynchronous message sending.
+     * Outbound queue capacity used when the caller does not pick one.
      */
-    private static final ConcurrentHashMap<String, BlockingQueue<TextMessage>> messageQueues = new ConcurrentHashMap<>();
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
 
+    /**
+     * Payload size from which messages are compressed for sessions that accept compressed frames.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 8 * 1024;
+
+    /**
+     * Compression threshold of sessions that never receive compressed frames.
+     */
+    public static final int NO_COMPRESSION = Integer.MAX_VALUE;
+
+    /**
+     * Recipient count from which broadcasts are fanned out in parallel, unless configured otherwise.
+     */
+    public static final int DEFAULT_PARALLEL_FAN_OUT_THRESHOLD = 4096;
+
+    private volatile int parallelFanOutThreshold = DEFAULT_PARALLEL_FAN_OUT_THRESHOLD;
+
+    /**
+     * Heartbeat ping; its payload is empty, so every session can share it.
+     */
+    private static final PingMessage PING = new PingMessage();
+
+    /**
+     * Stores the outbound sender of each registered session.
+     */
+    private final ConcurrentHashMap<String, SessionSender> senders = new ConcurrentHashMap<>();
+
+    /**
+     * Sessions whose connections live on another node, with the way to reach that node.
+     */
+    private final ConcurrentHashMap<String, RemoteDelivery> remoteSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Shared writer pool. Each drain runs on its own virtual thread, so an idle session costs
+     * a queue and nothing else, and a session blocked on a slow socket does not hold a platform thread.
+     */
+    private static final ExecutorService writerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+
+    /**
+     * Registers a new session with the shared writer pool and the default queue capacity.
+     */
+    public void registerSession(WebSocketSession session) {
+        this.registerSession(session, DEFAULT_QUEUE_CAPACITY);
+    }
 
     /**
-     * Registers a new session and starts a dedicated sender thread.
+     * Registers a new session with the shared writer pool.
+     *
+     * @param queueCapacity Most messages held for the session before its overflow policies apply.
      */
-    public static void registerSession(WebSocketSession session) {
-        messageQueues.put(session.getId(), new LinkedBlockingQueue<>());
+    public void registerSession(WebSocketSession session, int queueCapacity) {
+        this.registerSession(session, queueCapacity, NO_COMPRESSION);
+    }
+
+    /**
+     * Registers a new session that is sent large payloads as {@code COMPRESSED} frames.
+     *
+     * @param compressionThreshold Payload size from which messages are compressed, or
+     *                             {@link #NO_COMPRESSION}.
+     */
+    public void registerSession(WebSocketSession session, int queueCapacity, int compressionThreshold) {
+        this.senders.put(session.getId(), new SessionSender(session, writerExecutor, queueCapacity, compressionThreshold));
+    }
+
+    /**
+     * Removes a session from the broadcast system and discards its pending messages.
+     */
+    public void unregisterSession(String sessionId) {
+        SessionSender sender = this.senders.remove(sessionId);
+        if (sender != null) {
+            sender.close();
+        }
+    }
+
+    /**
+     * Routes a session connected to another node through {@code delivery}. Sessions registered
+     * locally always take precedence.
+     */
+    public void registerRemoteSession(String sessionId, RemoteDelivery delivery) {
+        this.remoteSessions.put(sessionId, delivery);
+    }
 
-        new Thread(() -> {
-            BlockingQueue<TextMessage> queue = messageQueues.get(session.getId());
-            while (session.isOpen()) {
-                try {
-                    TextMessage message = queue.take();
-                    session.sendMessage(message);
-                } catch (InterruptedException | IOException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }).start();
+    public void unregisterRemoteSession(String sessionId) {
+        this.remoteSessions.remove(sessionId);
     }
 
     /**
-     * Removes a session from the broadcast system.
+     * Queues a message that another node encoded for sessions connected here. Sessions that are
+     * no longer registered are skipped; nothing is forwarded again.
      */
-    public static void unregisterSession(String sessionId) {
-        messageQueues.remove(sessionId);
+    public void deliverLocally(Collection<String> recipients, byte[] payload, boolean binary,
+                               OutboundMessageClass messageClass) {
+        WebSocketMessage<?> message = binary ? new BinaryMessage(payload) : new TextMessage(payload);
+        this.enqueueAll(recipients, null, message, messageClass, false);
     }
 
     /**
-     * Broadcasts a message to recipients.
+     * Sets the recipient count from which a broadcast is split across the fan-out pool instead of
+     * being queued on the calling thread. Below it, the hand-off to other threads costs more than
+     * it saves.
      */
-    public static void broadcast(List<String> recipients, Object payload) {
-        TextMessage textMessage = new TextMessage(JsonUtil.toJson(payload));
+    public void setParallelFanOutThreshold(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        this.parallelFanOutThreshold = threshold;
+    }
 
-        for (String sessionId : recipients) {
-            BlockingQueue<TextMessage> queue = messageQueues.get(sessionId);
+    public boolean isRegistered(String sessionId) {
+        return this.senders.containsKey(sessionId);
+    }
+
+    /**
+     * Queues a heartbeat ping to a session, behind whatever it is already waiting for.
+     */
+    public void ping(String sessionId) {
+        SessionSender sender = this.senders.get(sessionId);
+        if (sender != null) {
+            sender.enqueue(PING, OutboundMessageClass.PING);
+        }
+    }
+
+    /**
+     * Queues a message for one session, behind whatever it is already waiting for. Does nothing
+     * if the session is not registered here.
+     */
+    public void send(String sessionId, WebSocketMessage<?> message) {
+        SessionSender sender = this.senders.get(sessionId);
+        if (sender != null) {
+            sender.enqueue(message, OutboundMessageClass.EVENT);
+        }
+    }
+
+    /**
+     * Closes a session from its writer, so the close never races a send in progress. Pending
+     * messages are dropped.
+     */
+    public void closeSession(String sessionId, CloseStatus status) {
+        SessionSender sender = this.senders.get(sessionId);
+        if (sender != null) {
+            sender.requestClose(status);
+        }
+    }
+
+    /**
+     * Returns the number of sessions currently registered for outbound messages.
+     */
+    public int getRegisteredSessionCount() {
+        return this.senders.size();
+    }
+
+    /**
+     * Returns the number of session writers currently draining on the writer pool.
+     */
+    public static int getActiveWriterCount() {
+        return SessionSender.ACTIVE_WRITERS.get();
+    }
+
+    /**
+     * Returns the number of messages waiting to be sent to a session, or 0 if it is not registered.
+     */
+    public int getQueuedMessageCount(String sessionId) {
+        SessionSender sender = this.senders.get(sessionId);
+        return sender == null ? 0 : sender.getQueuedCount();
+    }
+
+    /**
+     * Broadcasts an event to recipients. Recipients that are no longer registered are skipped.
+     */
+    public void broadcast(Collection<String> recipients, Object payload) {
+        this.broadcast(recipients, payload, OutboundMessageClass.EVENT);
+    }
+
+    /**
+     * Broadcasts a message of the given class to recipients. The class decides what happens when
+     * a recipient's queue is full.
+     */
+    public void broadcast(Collection<String> recipients, Object payload, OutboundMessageClass messageClass) {
+        TextMessage textMessage = new TextMessage(JsonUtil.toJsonBytes(payload));
+
+        this.enqueueAll(recipients, null, textMessage, messageClass, true);
+    }
+
+    /**
+     * Broadcasts a message to every recipient but one. Lets callers pass a live view such as a
+     * map's key set instead of copying it just to filter out the sender.
+     */
+    public void broadcastExcept(Collection<String> recipients, String excludedSessionId, Object payload) {
+        TextMessage textMessage = new TextMessage(JsonUtil.toJsonBytes(payload));
+
+        this.enqueueAll(recipients, excludedSessionId, textMessage, OutboundMessageClass.EVENT, true);
+    }
+
+    /**
+     * Broadcasts an already-encoded draw frame to recipients. The bytes are shared, not copied.
+     */
+    public void broadcastBinary(Collection<String> recipients, byte[] payload) {
+        this.broadcastBinary(recipients, payload, OutboundMessageClass.DRAW);
+    }
+
+    /**
+     * Broadcasts an already-encoded binary frame of the given class to recipients.
+     */
+    public void broadcastBinary(Collection<String> recipients, byte[] payload, OutboundMessageClass messageClass) {
+        this.enqueueAll(recipients, null, new BinaryMessage(payload), messageClass, true);
+    }
+
+    /**
+     * Broadcasts a binary frame held in a buffer, such as a read-only view of a shared frame. The
+     * buffer's bytes must not change while messages are queued with it.
+     */
+    public void broadcastBinary(Collection<String> recipients, ByteBuffer payload, OutboundMessageClass messageClass) {
+        this.enqueueAll(recipients, null, new BinaryMessage(payload), messageClass, true);
+    }
+
+    /**
+     * Queues a message for every local recipient and hands remote ones off to their nodes.
+     *
+     * @param forwardRemote False for messages that arrived from another node, which are never
+     *                      forwarded again.
+     */
+    private void enqueueAll(Collection<String> recipients, String excludedSessionId,
+                            WebSocketMessage<?> message, OutboundMessageClass messageClass,
+                            boolean forwardRemote) {
+        long startNanos = System.nanoTime();
+        FanOut.Tally tally = new FanOut(this.senders, this.remoteSessions, excludedSessionId, message, messageClass, forwardRemote)
+                .run(recipients, this.parallelFanOutThreshold);
+
+        if (tally.remoteRecipients != null) {
+            // One hand-off per node, however many of its sessions are recipients.
+            boolean binary = message instanceof BinaryMessage;
+            byte[] payload = payloadBytes(message);
+            tally.remoteRecipients.forEach((delivery, sessionIds) -> delivery.deliver(sessionIds, payload, binary, messageClass));
+        }
+
+        GameServerMetrics.BROADCAST_PAYLOAD_SIZE.record(message.getPayloadLength());
+        GameServerMetrics.BROADCAST_FAN_OUT.record(tally.queued);
+        GameServerMetrics.BROADCAST_BYTES_QUEUED.increment(tally.bytesQueued);
+        GameServerMetrics.BROADCAST_FAN_OUT_TIME.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
 
-            queue.offer(textMessage);
+    static byte[] payloadBytes(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage textMessage) {
+            return textMessage.asBytes();
         }
+        ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return bytes;
     }
 }
@@ -0,0 +1,143 @@
+package com.drawathang.game_server.communication;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import com.drawathang.game_server.services.GameServer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks every open connection and reaps the ones that went quiet.
+ * <p>
+ * Each connection records when anything last arrived from it: a message, or the pong a client
+ * sends back for every ping. Every heartbeat interval the monitor pings each connection through
+ * its outbound writer, and closes any connection that has not been heard from within the idle
+ * timeout. A half-open socket never reports its own close, so without this its player would stay
+ * in the lobby or a room indefinitely, still counted and still sent every broadcast.
+ * <p>
+ * A connection closed by the client and one reaped here go through the same cleanup, exactly
+ * once: the session stops receiving messages, drops its rate limits, then leaves the lobby or
+ * its room.
+ */
+@Component
+public class ConnectionMonitor {
+    public static final int DEFAULT_HEARTBEAT_MILLIS = 15_000;
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 45_000;
+
+    /**
+     * Close status for connections that stopped answering heartbeats.
+     */
+    public static final CloseStatus IDLE_TIMEOUT = CloseStatus.SESSION_NOT_RELIABLE.withReason("Idle timeout");
+
+    /**
+     * When something last arrived on a connection; written by the connection's inbound thread.
+     */
+    private static final class Connection {
+        volatile long lastSeenNanos = System.nanoTime();
+    }
+
+    private final GameServer gameServer;
+    private final BroadcastService broadcastService;
+    private final InboundRateLimiter rateLimiter;
+    private final long idleTimeoutNanos;
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connection-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param heartbeatMillis   How often every connection is pinged and checked.
+     * @param idleTimeoutMillis How long a connection may stay silent before it is closed. Should
+     *                          cover a few heartbeats, so one late pong does not cost a player the game.
+     */
+    public ConnectionMonitor(GameServer gameServer, InboundRateLimiter rateLimiter,
+                             @Value("${game-server.connections.heartbeat-millis:" + DEFAULT_HEARTBEAT_MILLIS + "}") int heartbeatMillis,
+                             @Value("${game-server.connections.idle-timeout-millis:" + DEFAULT_IDLE_TIMEOUT_MILLIS + "}") int idleTimeoutMillis) {
+        if (heartbeatMillis <= 0 || idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("heartbeatMillis and idleTimeoutMillis must be positive");
+        }
+        this.gameServer = gameServer;
+        this.broadcastService = gameServer.getBroadcastService();
+        this.rateLimiter = rateLimiter;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.heartbeat.scheduleWithFixedDelay(this::beat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.heartbeat.shutdownNow();
+    }
+
+    /**
+     * Starts watching a connection that was just registered with the game server's
+     * {@link BroadcastService}, and gives it full rate limit buckets.
+     */
+    public void connectionOpened(String sessionId) {
+        this.connections.put(sessionId, new Connection());
+        this.rateLimiter.connectionOpened(sessionId);
+    }
+
+    /**
+     * Records that something arrived on a connection.
+     */
+    public void seen(String sessionId) {
+        Connection connection = this.connections.get(sessionId);
+        if (connection != null) {
+            connection.lastSeenNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Cleans up after a closed connection. Only the first call for a session does anything, so a
+     * reaped session is not cleaned up again when its close is reported.
+     */
+    public void connectionClosed(String sessionId) {
+        if (this.connections.remove(sessionId) == null) {
+            return;
+        }
+        // Unregister first: a session on its way back to the lobby checks its registration once
+        // it is there, so it cannot slip past the disconnect.
+        this.broadcastService.unregisterSession(sessionId);
+        this.rateLimiter.connectionClosed(sessionId);
+        this.gameServer.disconnect(sessionId);
+    }
+
+    /**
+     * Number of connections being watched.
+     */
+    public int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    private void beat() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Connection> entry : this.connections.entrySet()) {
+            String sessionId = entry.getKey();
+            if (now - entry.getValue().lastSeenNanos > this.idleTimeoutNanos) {
+                this.reap(sessionId);
+            } else {
+                this.broadcastService.ping(sessionId);
+            }
+        }
+    }
+
+    /**
+     * Closes an idle connection and cleans up right away, rather than waiting for a close that a
+     * dead socket may never report.
+     */
+    private void reap(String sessionId) {
+        GameServerMetrics.SESSIONS_REAPED.increment();
+        this.broadcastService.closeSession(sessionId, IDLE_TIMEOUT);
+        this.connectionClosed(sessionId);
+    }
+}
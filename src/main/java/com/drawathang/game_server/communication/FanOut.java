@@ -0,0 +1,177 @@
+package com.drawathang.game_server.communication;
+
+import com.drawathang.game_server.util.FrameCompressor;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Queues one broadcast for each of its recipients.
+ * <p>
+ * Recipients are walked on the calling thread unless there are at least as many as the parallel
+ * threshold. Larger sets, such as a full lobby, are split into chunks of about
+ * {@value #CHUNK_SIZE} and walked on a shared fork-join pool while the caller waits. Since the
+ * caller only returns once every recipient has the message queued, a session still gets the
+ * messages of one thread in the order they were broadcast, however they were fanned out.
+ * <p>
+ * Recipients that accept compressed frames get the payload compressed if it is at or above
+ * their threshold. It is compressed at most once, for the first such recipient, and the frame
+ * is shared by all of them. Remote recipients are collected per node for the caller to hand
+ * off; they always get the original payload, and their node compresses it for its own sessions.
+ */
+final class FanOut {
+    /**
+     * Recipients walked by one fork-join task.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("broadcast-fan-out-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    /**
+     * What a walk over some of the recipients queued and collected.
+     */
+    static final class Tally {
+        int queued;
+        long bytesQueued;
+        Map<RemoteDelivery, List<String>> remoteRecipients;
+
+        private void merge(Tally other) {
+            this.queued += other.queued;
+            this.bytesQueued += other.bytesQueued;
+            if (other.remoteRecipients != null) {
+                if (this.remoteRecipients == null) {
+                    this.remoteRecipients = other.remoteRecipients;
+                } else {
+                    other.remoteRecipients.forEach((delivery, sessionIds) ->
+                            this.remoteRecipients.computeIfAbsent(delivery, key -> new ArrayList<>()).addAll(sessionIds));
+                }
+            }
+        }
+    }
+
+    private final Map<String, SessionSender> senders;
+    private final Map<String, RemoteDelivery> remoteSessions;
+    private final String excludedSessionId;
+    private final WebSocketMessage<?> message;
+    private final OutboundMessageClass messageClass;
+    private final boolean forwardRemote;
+    private final int payloadSize;
+
+    /**
+     * The message as a compressed frame; null until compressed, and after if it did not compress well.
+     */
+    private WebSocketMessage<?> compressed;
+    private boolean compressionTried = false;
+
+    /**
+     * @param forwardRemote False for messages that arrived from another node, which are never
+     *                      forwarded again.
+     */
+    FanOut(Map<String, SessionSender> senders, Map<String, RemoteDelivery> remoteSessions, String excludedSessionId,
+           WebSocketMessage<?> message, OutboundMessageClass messageClass, boolean forwardRemote) {
+        this.senders = senders;
+        this.remoteSessions = remoteSessions;
+        this.excludedSessionId = excludedSessionId;
+        this.message = message;
+        this.messageClass = messageClass;
+        this.forwardRemote = forwardRemote;
+        this.payloadSize = message.getPayloadLength();
+    }
+
+    /**
+     * Queues the message for every recipient, in parallel if there are at least
+     * {@code parallelThreshold} of them.
+     */
+    Tally run(Collection<String> recipients, int parallelThreshold) {
+        if (recipients.size() < parallelThreshold) {
+            Tally tally = new Tally();
+            for (String sessionId : recipients) {
+                this.enqueue(sessionId, tally);
+            }
+            return tally;
+        }
+        return POOL.invoke(new Chunk(recipients.spliterator()));
+    }
+
+    private void enqueue(String sessionId, Tally tally) {
+        if (sessionId.equals(this.excludedSessionId)) {
+            return;
+        }
+        SessionSender sender = this.senders.get(sessionId);
+
+        if (sender != null) {
+            WebSocketMessage<?> outbound = this.message;
+            if (this.payloadSize >= sender.compressionThreshold) {
+                WebSocketMessage<?> compressed = this.compressed();
+                if (compressed != null) {
+                    outbound = compressed;
+                }
+            }
+            sender.enqueue(outbound, this.messageClass);
+            tally.queued++;
+            tally.bytesQueued += outbound.getPayloadLength();
+        } else if (this.forwardRemote && !this.remoteSessions.isEmpty()) {
+            RemoteDelivery delivery = this.remoteSessions.get(sessionId);
+            if (delivery != null) {
+                if (tally.remoteRecipients == null) {
+                    tally.remoteRecipients = new HashMap<>();
+                }
+                tally.remoteRecipients.computeIfAbsent(delivery, key -> new ArrayList<>()).add(sessionId);
+            }
+        }
+    }
+
+    private synchronized WebSocketMessage<?> compressed() {
+        if (!this.compressionTried) {
+            this.compressionTried = true;
+            byte kind = this.message instanceof TextMessage ? FrameCompressor.TEXT : FrameCompressor.BINARY;
+            byte[] frame = FrameCompressor.compress(kind, BroadcastService.payloadBytes(this.message));
+            this.compressed = frame == null ? null : new BinaryMessage(frame);
+        }
+        return this.compressed;
+    }
+
+    /**
+     * Walks a share of the recipients, forking off halves until the share is one chunk.
+     */
+    private final class Chunk extends RecursiveTask<Tally> {
+        private final Spliterator<String> recipients;
+
+        private Chunk(Spliterator<String> recipients) {
+            this.recipients = recipients;
+        }
+
+        @Override
+        protected Tally compute() {
+            List<Chunk> forked = new ArrayList<>();
+            Spliterator<String> half;
+            while (this.recipients.estimateSize() > CHUNK_SIZE && (half = this.recipients.trySplit()) != null) {
+                Chunk chunk = new Chunk(half);
+                chunk.fork();
+                forked.add(chunk);
+            }
+
+            Tally tally = new Tally();
+            this.recipients.forEachRemaining(sessionId -> FanOut.this.enqueue(sessionId, tally));
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                tally.merge(forked.get(i).join());
+            }
+            return tally;
+        }
+    }
+}
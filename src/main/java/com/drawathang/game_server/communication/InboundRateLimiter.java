@@ -0,0 +1,194 @@
+package com.drawathang.game_server.communication;
+
+import com.drawathang.game_server.contract.ClientMessageType;
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket limits on what each session may send, per message type.
+ * <p>
+ * Every session has a bucket for draw frames, one for guesses, one for each other message
+ * type and one for messages with a missing or unknown type, which are answered but never reach
+ * the game. A message takes a token from its bucket; buckets refill at a steady rate up to their
+ * burst size, and a message that finds its bucket empty is dropped before it reaches the game.
+ * A session that keeps sending into empty buckets is flooding and gets disconnected: each dropped
+ * message is a strike, and strikes are forgiven at a tenth of the disconnect threshold per second.
+ * <p>
+ * Each bucket is a single {@code long} in the generic cell rate form: the time at which the
+ * bucket would be full again. A check is a clock read and a few comparisons, with no allocation
+ * and no lock. Inbound messages of one session are handled one at a time, so its buckets are
+ * only ever touched by one thread at once.
+ */
+@Component
+public class InboundRateLimiter {
+    public static final int DEFAULT_DRAW_BURST = 240;
+    public static final int DEFAULT_DRAW_PER_SECOND = 120;
+    public static final int DEFAULT_GUESS_BURST = 5;
+    public static final int DEFAULT_GUESS_PER_SECOND = 2;
+    public static final int DEFAULT_CONTROL_BURST = 10;
+    public static final int DEFAULT_CONTROL_PER_SECOND = 5;
+    public static final int DEFAULT_DISCONNECT_AFTER = 100;
+
+    /**
+     * Close status for sessions that kept flooding after being throttled.
+     */
+    public static final CloseStatus FLOODING = CloseStatus.POLICY_VIOLATION.withReason("Rate limit exceeded");
+
+    public enum Verdict {
+        ALLOW, THROTTLE, DISCONNECT
+    }
+
+    /**
+     * Bucket indices: one per text message type, then draw frames, then invalid messages, then strikes.
+     */
+    private static final ClientMessageType[] TYPES = ClientMessageType.values();
+    private static final int DRAW = TYPES.length;
+    private static final int INVALID = DRAW + 1;
+    private static final int STRIKES = INVALID + 1;
+    private static final int BUCKETS = STRIKES + 1;
+
+    /**
+     * Stands in for the buckets of a session being closed for flooding, whose messages are
+     * dropped without being counted again until the close goes through.
+     */
+    private static final long[] DISCONNECTING = new long[0];
+
+    /**
+     * Per bucket: the time one token takes to refill, and how far ahead of now a bucket may be
+     * booked, which is the refill time of all but one token of the burst.
+     */
+    private final long[] intervalNanos = new long[BUCKETS];
+    private final long[] toleranceNanos = new long[BUCKETS];
+
+    /**
+     * Per session, the time at which each bucket is full again.
+     */
+    private final Map<String, long[]> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * @param drawBurst        Draw frames a session may send at once.
+     * @param drawPerSecond    Draw frames a session may keep sending per second.
+     * @param guessBurst       Guesses a session may send at once.
+     * @param guessPerSecond   Guesses a session may keep sending per second.
+     * @param controlBurst     Messages of any other one type, or without a valid type, a session may send at once.
+     * @param controlPerSecond Messages of any other one type, or without a valid type, a session may keep sending per second.
+     * @param disconnectAfter  Dropped messages, net of those forgiven, after which a session is closed.
+     */
+    public InboundRateLimiter(@Value("${game-server.rate-limit.draw.burst:" + DEFAULT_DRAW_BURST + "}") int drawBurst,
+                              @Value("${game-server.rate-limit.draw.per-second:" + DEFAULT_DRAW_PER_SECOND + "}") int drawPerSecond,
+                              @Value("${game-server.rate-limit.guess.burst:" + DEFAULT_GUESS_BURST + "}") int guessBurst,
+                              @Value("${game-server.rate-limit.guess.per-second:" + DEFAULT_GUESS_PER_SECOND + "}") int guessPerSecond,
+                              @Value("${game-server.rate-limit.control.burst:" + DEFAULT_CONTROL_BURST + "}") int controlBurst,
+                              @Value("${game-server.rate-limit.control.per-second:" + DEFAULT_CONTROL_PER_SECOND + "}") int controlPerSecond,
+                              @Value("${game-server.rate-limit.disconnect-after:" + DEFAULT_DISCONNECT_AFTER + "}") int disconnectAfter) {
+        for (ClientMessageType type : TYPES) {
+            if (type == ClientMessageType.SUBMIT_GUESS) {
+                this.configure(type.ordinal(), guessBurst, guessPerSecond);
+            } else {
+                this.configure(type.ordinal(), controlBurst, controlPerSecond);
+            }
+        }
+        this.configure(DRAW, drawBurst, drawPerSecond);
+        this.configure(INVALID, controlBurst, controlPerSecond);
+        this.configure(STRIKES, disconnectAfter, Math.max(1, disconnectAfter / 10));
+    }
+
+    private void configure(int bucket, int burst, int perSecond) {
+        if (burst <= 0 || perSecond <= 0) {
+            throw new IllegalArgumentException("Rate limit bursts and rates must be positive");
+        }
+        this.intervalNanos[bucket] = TimeUnit.SECONDS.toNanos(1) / perSecond;
+        this.toleranceNanos[bucket] = this.intervalNanos[bucket] * (burst - 1);
+    }
+
+    /**
+     * Gives a new session full buckets.
+     */
+    public void connectionOpened(String sessionId) {
+        long[] fullAt = new long[BUCKETS];
+        long now = System.nanoTime();
+        for (int i = 0; i < BUCKETS; i++) {
+            fullAt[i] = now;
+        }
+        this.sessions.put(sessionId, fullAt);
+    }
+
+    public void connectionClosed(String sessionId) {
+        this.sessions.remove(sessionId);
+    }
+
+    /**
+     * Number of sessions with buckets.
+     */
+    public int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Takes a token for a text message of the given type.
+     */
+    public Verdict check(String sessionId, ClientMessageType type) {
+        return this.check(sessionId, type.ordinal());
+    }
+
+    /**
+     * Takes a token for a binary draw frame.
+     */
+    public Verdict checkDrawEvent(String sessionId) {
+        return this.check(sessionId, DRAW);
+    }
+
+    /**
+     * Takes a token for a text message with a missing or unknown type.
+     */
+    public Verdict checkInvalid(String sessionId) {
+        return this.check(sessionId, INVALID);
+    }
+
+    private Verdict check(String sessionId, int bucket) {
+        long[] fullAt = this.sessions.get(sessionId);
+        if (fullAt == null) {
+            // Not opened here, or already closed; nothing to hold it to.
+            return Verdict.ALLOW;
+        }
+        if (fullAt == DISCONNECTING) {
+            return Verdict.THROTTLE;
+        }
+        long now = System.nanoTime();
+        if (this.take(fullAt, bucket, now)) {
+            return Verdict.ALLOW;
+        }
+
+        if (bucket == DRAW) {
+            GameServerMetrics.INBOUND_DRAW_EVENT_THROTTLED.increment();
+        } else if (bucket == INVALID) {
+            GameServerMetrics.INBOUND_INVALID_THROTTLED.increment();
+        } else {
+            GameServerMetrics.inboundThrottled(TYPES[bucket]).increment();
+        }
+        if (this.take(fullAt, STRIKES, now)) {
+            return Verdict.THROTTLE;
+        }
+        this.sessions.replace(sessionId, fullAt, DISCONNECTING);
+        GameServerMetrics.FLOOD_DISCONNECTS.increment();
+        return Verdict.DISCONNECT;
+    }
+
+    /**
+     * Takes one token from a bucket if it has any.
+     */
+    private boolean take(long[] fullAt, int bucket, long now) {
+        long start = now - fullAt[bucket] > 0 ? now : fullAt[bucket];
+        if (start - now > this.toleranceNanos[bucket]) {
+            return false;
+        }
+        fullAt[bucket] = start + this.intervalNanos[bucket];
+        return true;
+    }
+}
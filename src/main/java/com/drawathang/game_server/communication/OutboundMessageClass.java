@@ -0,0 +1,68 @@
+package com.drawathang.game_server.communication;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * Kinds of outbound messages, each with its own policy for when a session's queue is full.
+ * <p>
+ * Draw batches are the only traffic that is safe to lose: a full queue sheds them first to make
+ * room for anything else. A session whose queue is full of messages that cannot be lost is closed
+ * with {@link SessionSender#SLOW_CONSUMER} and starts over from fresh snapshots on reconnect.
+ */
+public enum OutboundMessageClass {
+    /**
+     * Incremental room and lobby events. Losing one would leave the client out of sync with no
+     * way to notice.
+     */
+    EVENT(OverflowPolicy.CLOSE_SESSION),
+
+    /**
+     * Draw batches. When the queue is full the oldest queued batch is dropped; drawing is
+     * best-effort and fresh strokes matter more than stale ones.
+     */
+    DRAW(OverflowPolicy.DROP_OLDEST),
+
+    /**
+     * Full state of the player's room. A newer snapshot supersedes any that is still queued.
+     */
+    ROOM_SNAPSHOT(OverflowPolicy.COLLAPSE),
+
+    /**
+     * Full lobby room list. A newer snapshot supersedes any that is still queued.
+     */
+    ROOMS_SNAPSHOT(OverflowPolicy.COLLAPSE),
+
+    /**
+     * Everything drawn in the player's room so far. A newer canvas supersedes any that is still
+     * queued, and already covers the draw batches queued before it.
+     */
+    CANVAS_SNAPSHOT(OverflowPolicy.COLLAPSE),
+
+    /**
+     * Heartbeat pings. One queued ping is as good as several.
+     */
+    PING(OverflowPolicy.COLLAPSE);
+
+    enum OverflowPolicy {
+        CLOSE_SESSION, DROP_OLDEST, COLLAPSE
+    }
+
+    final OverflowPolicy overflowPolicy;
+
+    /**
+     * Messages of this class discarded because the queue was full.
+     */
+    final Counter dropped;
+
+    /**
+     * Queued messages of this class replaced by a newer one.
+     */
+    final Counter collapsed;
+
+    OutboundMessageClass(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        this.dropped = GameServerMetrics.outboundDropped(this.name());
+        this.collapsed = GameServerMetrics.outboundCollapsed(this.name());
+    }
+}
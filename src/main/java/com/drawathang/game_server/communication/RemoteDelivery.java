@@ -0,0 +1,20 @@
+package com.drawathang.game_server.communication;
+
+import java.util.List;
+
+/**
+ * Hands outbound messages to another node, for sessions whose connections live there.
+ *
+ * @see BroadcastService#registerRemoteSession(String, RemoteDelivery)
+ */
+@FunctionalInterface
+public interface RemoteDelivery {
+
+    /**
+     * Called once per broadcast with every recipient behind this delivery.
+     *
+     * @param payload The encoded message, shared by all recipients; not to be modified.
+     * @param binary  Whether the payload goes out as a binary frame rather than a text frame.
+     */
+    void deliver(List<String> recipients, byte[] payload, boolean binary, OutboundMessageClass messageClass);
+}
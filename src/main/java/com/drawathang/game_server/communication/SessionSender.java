@@ -0,0 +1,295 @@
+package com.drawathang.game_server.communication;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound writer for a single WebSocket session.
+ * <p>
+ * Messages are queued and drained by a short-lived task on the shared writer executor.
+ * At most one drain task per session is scheduled at a time, so sends to a session stay
+ * ordered and never overlap, while idle sessions hold no thread at all.
+ * <p>
+ * The queue is bounded. When it is full, the incoming message's {@link OutboundMessageClass}
+ * decides what gives way, so a stalled client costs at most {@code capacity} queued messages.
+ */
+class SessionSender implements Runnable {
+    /**
+     * Close status for sessions that stop reading while events keep piling up.
+     */
+    static final CloseStatus SLOW_CONSUMER = CloseStatus.SESSION_NOT_RELIABLE.withReason("Outbound queue overflow");
+
+    /**
+     * Drain tasks currently running, across all sessions.
+     */
+    static final AtomicInteger ACTIVE_WRITERS = new AtomicInteger();
+
+    private final WebSocketSession session;
+    private final Executor writerExecutor;
+
+    /**
+     * Ring buffer of queued messages with their classes, guarded by {@code this}.
+     */
+    private final WebSocketMessage<?>[] messages;
+    private final OutboundMessageClass[] messageClasses;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * True while a drain task is queued or running for this session.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private volatile boolean closed = false;
+
+    /**
+     * Set when the session must be closed, such as when the queue overflowed with an event. The
+     * drain task closes the session, so the close never races a send in progress.
+     */
+    private volatile CloseStatus closeStatus = null;
+
+    /**
+     * Set by the drain task once it has closed the session for {@link #closeStatus}.
+     */
+    private volatile boolean sessionClosed = false;
+
+    /**
+     * Payloads this large or larger are sent compressed; {@link Integer#MAX_VALUE} if the client
+     * did not ask for compression.
+     */
+    final int compressionThreshold;
+
+    SessionSender(WebSocketSession session, Executor writerExecutor, int capacity) {
+        this(session, writerExecutor, capacity, Integer.MAX_VALUE);
+    }
+
+    SessionSender(WebSocketSession session, Executor writerExecutor, int capacity, int compressionThreshold) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.session = session;
+        this.writerExecutor = writerExecutor;
+        this.compressionThreshold = compressionThreshold;
+        this.messages = new WebSocketMessage<?>[capacity];
+        this.messageClasses = new OutboundMessageClass[capacity];
+    }
+
+    /**
+     * Queues a message and makes sure a drain task will pick it up.
+     */
+    void enqueue(WebSocketMessage<?> message, OutboundMessageClass messageClass) {
+        if (this.closed || this.closeStatus != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (messageClass.overflowPolicy == OutboundMessageClass.OverflowPolicy.COLLAPSE) {
+                // Only the latest snapshot of a kind is worth sending.
+                int superseded = this.indexOf(messageClass);
+                if (superseded >= 0) {
+                    this.removeAt(superseded);
+                    messageClass.collapsed.increment();
+                }
+            }
+
+            if (this.size < this.messages.length || this.makeRoomFor(messageClass)) {
+                int tail = (this.head + this.size) % this.messages.length;
+                this.messages[tail] = message;
+                this.messageClasses[tail] = messageClass;
+                this.size++;
+            }
+        }
+        // Also wakes the drain task when the overflow requested a close.
+        this.schedule();
+    }
+
+    /**
+     * Frees one slot in a full queue according to the incoming message's policy.
+     *
+     * @return false if the incoming message must be discarded instead.
+     */
+    private boolean makeRoomFor(OutboundMessageClass messageClass) {
+        switch (messageClass.overflowPolicy) {
+            case DROP_OLDEST -> {
+                int stale = this.indexOf(messageClass);
+                if (stale < 0) {
+                    // The queue is all other traffic; the new batch is the one to go.
+                    messageClass.dropped.increment();
+                    return false;
+                }
+                this.removeAt(stale);
+                messageClass.dropped.increment();
+                return true;
+            }
+            default -> {
+                // Events and snapshots must not be lost. Shed draw traffic, the only class that
+                // is safe to lose, and give up on the session if there is none left to shed.
+                int stale = this.indexOf(OutboundMessageClass.DRAW);
+                if (stale >= 0) {
+                    this.removeAt(stale);
+                    OutboundMessageClass.DRAW.dropped.increment();
+                    return true;
+                }
+                messageClass.dropped.increment();
+                GameServerMetrics.OUTBOUND_OVERFLOW_CLOSED.increment();
+                this.closeStatus = SLOW_CONSUMER;
+                this.clear();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Drops anything still queued and has the drain task close the session with {@code status}.
+     */
+    void requestClose(CloseStatus status) {
+        if (this.closed) {
+            return;
+        }
+        synchronized (this) {
+            if (this.closeStatus == null) {
+                this.closeStatus = status;
+            }
+            this.clear();
+        }
+        this.schedule();
+    }
+
+    /**
+     * Stops the sender and drops anything still queued. A close already requested still goes out,
+     * so a session unregistered right after {@link #requestClose} is closed all the same.
+     */
+    void close() {
+        this.closed = true;
+        synchronized (this) {
+            this.clear();
+        }
+        if (this.closeStatus != null) {
+            this.schedule();
+        }
+    }
+
+    boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Number of messages waiting to be sent.
+     */
+    synchronized int getQueuedCount() {
+        return this.size;
+    }
+
+    private int indexOf(OutboundMessageClass messageClass) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.messageClasses[(this.head + i) % this.messages.length] == messageClass) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the i-th queued message, shifting the later ones forward to keep send order.
+     */
+    private void removeAt(int i) {
+        int capacity = this.messages.length;
+        for (int j = i; j < this.size - 1; j++) {
+            int to = (this.head + j) % capacity;
+            int from = (to + 1) % capacity;
+            this.messages[to] = this.messages[from];
+            this.messageClasses[to] = this.messageClasses[from];
+        }
+        int last = (this.head + this.size - 1) % capacity;
+        this.messages[last] = null;
+        this.messageClasses[last] = null;
+        this.size--;
+    }
+
+    private WebSocketMessage<?> poll() {
+        synchronized (this) {
+            if (this.size == 0) {
+                return null;
+            }
+            WebSocketMessage<?> message = this.messages[this.head];
+            this.messages[this.head] = null;
+            this.messageClasses[this.head] = null;
+            this.head = (this.head + 1) % this.messages.length;
+            this.size--;
+            return message;
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < this.size; i++) {
+            int index = (this.head + i) % this.messages.length;
+            this.messages[index] = null;
+            this.messageClasses[index] = null;
+        }
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Binary messages are shared between recipients, and sending consumes the payload buffer's
+     * position. Each send gets its own view of the bytes so the shared buffer is never advanced.
+     */
+    private static WebSocketMessage<?> ownView(WebSocketMessage<?> message) {
+        if (message instanceof BinaryMessage binaryMessage) {
+            return new BinaryMessage(binaryMessage.getPayload().duplicate(), binaryMessage.isLast());
+        }
+        return message;
+    }
+
+    private void schedule() {
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.writerExecutor.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        ACTIVE_WRITERS.incrementAndGet();
+        try {
+            CloseStatus closeStatus = this.closeStatus;
+            if (closeStatus != null) {
+                if (!this.sessionClosed) {
+                    this.closed = true;
+                    this.sessionClosed = true;
+                    this.session.close(closeStatus);
+                }
+                return;
+            }
+
+            GameServerMetrics.OUTBOUND_QUEUE_DEPTH.record(this.getQueuedCount());
+
+            WebSocketMessage<?> message;
+            while (!this.closed && this.closeStatus == null && (message = this.poll()) != null) {
+                if (!this.session.isOpen()) {
+                    this.close();
+                    break;
+                }
+                this.session.sendMessage(ownView(message));
+            }
+        } catch (IOException e) {
+            this.close();
+        } finally {
+            this.scheduled.set(false);
+            ACTIVE_WRITERS.decrementAndGet();
+        }
+
+        // A message or close request may have arrived after the last poll but before the flag was
+        // cleared. A requested close is carried out even if the sender was stopped meanwhile.
+        if ((this.closeStatus != null && !this.sessionClosed) || (!this.closed && this.getQueuedCount() > 0)) {
+            this.schedule();
+        }
+    }
+}
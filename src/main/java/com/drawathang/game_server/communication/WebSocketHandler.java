@@ -1,31 +1,48 @@
 package com.drawathang.game_server.communication;
 
+import com.drawathang.game_server.contract.BinaryFrameType;
 import com.drawathang.game_server.contract.ClientMessage;
+import com.drawathang.game_server.contract.ClientMessageType;
 import com.drawathang.game_server.contract.GameServerMessage;
 import com.drawathang.game_server.contract.GameServerResponse;
 import com.drawathang.game_server.contract.RequiredBroadcastInfo;
+import com.drawathang.game_server.metrics.GameServerMetrics;
 import com.drawathang.game_server.services.GameServer;
 import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.util.ClientMessageReader;
+import com.drawathang.game_server.util.DrawEventCodec;
 import com.drawathang.game_server.util.JsonUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
-import java.util.Map;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles WebSocket connections for the Draw-a-Thang game server.
  * Manages WebSocket sessions, message queues, and real-time communication.
+ * <p>
+ * Text frames carry JSON control messages. Binary frames carry drawing traffic, see {@link DrawEventCodec}.
  */
 @Component  // just a "bean" that spring boot manages
-public class WebSocketHandler extends TextWebSocketHandler {
+public class WebSocketHandler extends AbstractWebSocketHandler {
+
+    /**
+     * Reply to a message the server cannot act on. Immutable, so every session shares it.
+     */
+    private static final TextMessage INVALID_MESSAGE = new TextMessage("Not a valid message.");
 
     /**
      * Stores message queues for each session to enable asynchronous message sending.
@@ -37,24 +54,67 @@ public class WebSocketHandler extends TextWebSocketHandler {
      */
     private final GameServer gameServer;
 
+    /**
+     * The game server's outbound queues, where every session connected here is registered.
+     */
+    private final BroadcastService broadcastService;
+
+    /**
+     * Heartbeats and idle reaping; also cleans up after every closed connection.
+     */
+    private final ConnectionMonitor connectionMonitor;
+
+    /**
+     * Per-session limits on inbound traffic, checked before a message is dispatched.
+     */
+    private final InboundRateLimiter rateLimiter;
+
+    /**
+     * Most outbound messages held for one session before its overflow policies apply.
+     */
+    private final int outboundQueueCapacity;
+
+    /**
+     * Payload size from which messages are compressed for clients that ask for it.
+     */
+    private final int compressionThreshold;
+
     /**
      * Constructor to initialize the WebSocketHandler with a GameServer instance.
      *
-     * @param gameServer The game server instance that handles business logic.
+     * @param gameServer            The game server instance that handles business logic.
+     * @param connectionMonitor     Tracks connection liveness.
+     * @param rateLimiter           Limits how fast each session may send.
+     * @param outboundQueueCapacity Per-session outbound queue capacity.
+     * @param compressionThreshold  Payload size from which messages are compressed, or 0 to never compress.
+     * @param parallelFanOut        Recipient count from which a broadcast is fanned out in parallel.
      */
-    public WebSocketHandler(GameServer gameServer) {
+    public WebSocketHandler(GameServer gameServer, ConnectionMonitor connectionMonitor, InboundRateLimiter rateLimiter,
+                            @Value("${game-server.outbound.queue-capacity:" + BroadcastService.DEFAULT_QUEUE_CAPACITY + "}") int outboundQueueCapacity,
+                            @Value("${game-server.outbound.compression-threshold:" + BroadcastService.DEFAULT_COMPRESSION_THRESHOLD + "}") int compressionThreshold,
+                            @Value("${game-server.outbound.parallel-fan-out:" + BroadcastService.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD + "}") int parallelFanOut) {
         this.gameServer = gameServer;
+        this.broadcastService = gameServer.getBroadcastService();
+        this.connectionMonitor = connectionMonitor;
+        this.rateLimiter = rateLimiter;
+        this.outboundQueueCapacity = outboundQueueCapacity;
+        this.compressionThreshold = compressionThreshold > 0 ? compressionThreshold : BroadcastService.NO_COMPRESSION;
+        this.broadcastService.setParallelFanOutThreshold(parallelFanOut);
     }
 
     /**
      * Called when a new WebSocket connection is established.
-     * Initializes the session and starts a dedicated message sender thread for the session.
+     * Registers the session with the shared outbound writer pool and starts its heartbeats.
+     * Clients that connect with {@code ?compression=deflate} are sent large payloads as
+     * {@link BinaryFrameType#COMPRESSED} frames.
      *
      * @param session The WebSocket session that was established.
      */
     @Override
     public void afterConnectionEstablished(@NonNull WebSocketSession session) {
-        BroadcastService.registerSession(session);
+        this.broadcastService.registerSession(session, this.outboundQueueCapacity,
+                acceptsCompression(session) ? this.compressionThreshold : BroadcastService.NO_COMPRESSION);
+        this.connectionMonitor.connectionOpened(session.getId());
 //        messageQueues.put(session.getId(), new LinkedBlockingQueue<>());
 //
 //        // Start a separate thread to process and send outgoing messages for this session
@@ -77,56 +137,109 @@ public class WebSocketHandler extends TextWebSocketHandler {
     /**
      * Handles incoming WebSocket messages from clients.
      * Parses the message, determines the action type, and processes accordingly.
+     * Messages over the session's rate limit for their type are dropped, and sessions that send
+     * malformed JSON are closed from their outbound writer.
      *
      * @param session The WebSocket session from which the message was received.
      * @param message The text message received from the client.
-     * @throws IOException If an error occurs while sending a response.
      */
     @Override
-    protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws IOException {
-        // Parse JSON string into a Map instead of a class
-        @SuppressWarnings("unchecked") // Suppresses the unchecked cast warning
-        Map<String, Object> clientMessageMap = JsonUtil.fromJson(message.getPayload(), Map.class);
+    protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) {
+        // Handling time covers parsing and dispatch
+        long startNanos = System.nanoTime();
+        this.connectionMonitor.seen(session.getId());
+        ClientMessage clientMessage;
+        try {
+            clientMessage = ClientMessageReader.read(message.getPayload());
+        } catch (IllegalArgumentException e) {
+            this.broadcastService.closeSession(session.getId(), CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
 
-        // Extract the type dynamically
-        String type = (String) clientMessageMap.get("type");
+        ClientMessageType type = clientMessage.getType();
+        if (type == null) {
+            if (this.withinRateLimit(session, this.rateLimiter.checkInvalid(session.getId()))) {
+                this.broadcastService.send(session.getId(), INVALID_MESSAGE);
+            }
+            return;
+        }
+        if (!this.withinRateLimit(session, this.rateLimiter.check(session.getId(), type))) {
+            return;
+        }
 
         switch (type) {
-            case "JOIN_SERVER":
-                this.gameServer.joinServer(session.getId());
-                break;
-
-            case "LEAVE_SERVER":
-                this.gameServer.leaveServer(session.getId());
-                break;
-
-            case "CREATE_ROOM":
-                this.gameServer.createRoom(session.getId(), (String) clientMessageMap.get("roomName"));
-                break;
-
-            case "SET_USERNAME":
-                this.gameServer.setUsername(session.getId(), (String) clientMessageMap.get("username"));
-                break;
-
-            case "JOIN_ROOM":
-                this.gameServer.joinRoom(session.getId(), (String) clientMessageMap.get("roomId"));
-                break;
-
-            case "LEAVE_ROOM":
-                this.gameServer.leaveRoom(session.getId());
-                break;
+            case JOIN_SERVER -> this.gameServer.joinServer(session.getId());
+            case LEAVE_SERVER -> this.gameServer.leaveServer(session.getId());
+            case CREATE_ROOM -> {
+                String roomName = clientMessage.getRoomName();
+                if (roomName == null || roomName.isBlank()) {
+                    this.broadcastService.send(session.getId(), INVALID_MESSAGE);
+                } else {
+                    this.gameServer.createRoom(session.getId(), roomName);
+                }
+            }
+            case SET_USERNAME -> this.gameServer.setUsername(session.getId(), clientMessage.getUsername());
+            case JOIN_ROOM -> this.gameServer.joinRoom(session.getId(), clientMessage.getRoomId());
+            case LEAVE_ROOM -> this.gameServer.leaveRoom(session.getId());
+            case SUBMIT_GUESS -> this.gameServer.submitGuess(session.getId(), clientMessage.getGuess());
+            case START_GAME -> this.gameServer.startGame(session.getId());
+            case PICK_WORD -> this.gameServer.pickWord(session.getId(), clientMessage.getWord());
+            case REQUEST_ROOM_SNAPSHOT -> this.gameServer.requestRoomSnapshot(session.getId());
+            case SYNC_ROOMS -> {
+                Long roomsVersion = clientMessage.getRoomsVersion();
+                this.gameServer.syncRooms(session.getId(), roomsVersion != null ? roomsVersion : -1);
+            }
+            default -> this.broadcastService.send(session.getId(), INVALID_MESSAGE);
+        }
+        GameServerMetrics.inboundHandling(type).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
 
-            case "SUBMIT_GUESS":
-                this.gameServer.submitGuess(session.getId(), (String) clientMessageMap.get("guess"));
-                break;
+    /**
+     * Handles incoming binary frames from clients. The first byte selects the frame type.
+     * Sessions that send an unsupported or malformed frame are closed from their outbound writer,
+     * after whatever is already queued for them.
+     *
+     * @param session The WebSocket session from which the message was received.
+     * @param message The binary message received from the client.
+     */
+    @Override
+    protected void handleBinaryMessage(@NonNull WebSocketSession session, @NonNull BinaryMessage message) {
+        long startNanos = System.nanoTime();
+        this.connectionMonitor.seen(session.getId());
+        ByteBuffer frame = message.getPayload();
+        if (!frame.hasRemaining()) {
+            return;
+        }
 
-            case "DRAW_EVENT":
-                this.gameServer.submitDrawEvent(session.getId(), (DrawEvent) clientMessageMap.get("drawEvent"));
+        BinaryFrameType frameType = BinaryFrameType.fromCode(frame.get(frame.position()));
+        if (frameType != BinaryFrameType.DRAW_EVENT) {
+            this.broadcastService.closeSession(session.getId(), CloseStatus.NOT_ACCEPTABLE.withReason("Unsupported binary frame"));
+            return;
+        }
+        if (!this.withinRateLimit(session, this.rateLimiter.checkDrawEvent(session.getId()))) {
+            return;
+        }
 
-            default:
-                session.sendMessage(new TextMessage("Not a valid message."));
-                break;
+        DrawEvent drawEvent;
+        try {
+            drawEvent = DrawEventCodec.decodeDrawEvent(frame, session.getId());
+        } catch (IllegalArgumentException e) {
+            this.broadcastService.closeSession(session.getId(), CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
         }
+        this.gameServer.submitDrawEvent(session.getId(), drawEvent);
+        GameServerMetrics.INBOUND_DRAW_EVENT.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Handles the client's answer to a heartbeat ping.
+     *
+     * @param session The WebSocket session that answered.
+     * @param message The pong received from the client.
+     */
+    @Override
+    protected void handlePongMessage(@NonNull WebSocketSession session, @NonNull PongMessage message) {
+        this.connectionMonitor.seen(session.getId());
     }
 
     /**
@@ -139,7 +252,7 @@ public class WebSocketHandler extends TextWebSocketHandler {
      */
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) throws IOException {
-        BroadcastService.unregisterSession(session.getId());
+        this.connectionMonitor.connectionClosed(session.getId());
         //        // Remove session's message queue
 //        messageQueues.remove(session.getId());
 //
@@ -160,4 +273,30 @@ public class WebSocketHandler extends TextWebSocketHandler {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Acts on a rate limit verdict: a throttled message is dropped, and a flooding session is
+     * closed through its writer so the close is ordered after what was already queued for it.
+     *
+     * @return Whether the message may be dispatched.
+     */
+    private boolean withinRateLimit(WebSocketSession session, InboundRateLimiter.Verdict verdict) {
+        if (verdict == InboundRateLimiter.Verdict.DISCONNECT) {
+            this.broadcastService.closeSession(session.getId(), InboundRateLimiter.FLOODING);
+        }
+        return verdict == InboundRateLimiter.Verdict.ALLOW;
+    }
+
+    private static boolean acceptsCompression(WebSocketSession session) {
+        URI uri = session.getUri();
+        String query = uri == null ? null : uri.getQuery();
+        if (query == null) {
+            return false;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.equals("compression=deflate")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
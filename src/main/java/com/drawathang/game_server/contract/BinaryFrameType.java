@@ -0,0 +1,54 @@
+package com.drawathang.game_server.contract;
+
+/**
+ * Leading byte of every binary WebSocket frame. Text frames carry JSON control messages;
+ * binary frames carry the high-volume drawing traffic.
+ */
+public enum BinaryFrameType {
+    /**
+     * Client to server: one stroke segment from the sending player.
+     */
+    DRAW_EVENT((byte) 0x01),
+
+    /**
+     * Server to client: one or more stroke segments, each tagged with its drawer.
+     */
+    DRAW_BATCH((byte) 0x02),
+
+    /**
+     * Server to client: everything drawn in the room so far, laid out like {@link #DRAW_BATCH}.
+     * Replaces whatever the client has on its canvas.
+     */
+    CANVAS_SNAPSHOT((byte) 0x03),
+
+    /**
+     * Server to client: a large JSON message or binary frame, deflated. Only sent to clients that
+     * asked for compression when they connected; see {@code FrameCompressor} for the layout.
+     */
+    COMPRESSED((byte) 0x04);
+
+    private static final BinaryFrameType[] BY_CODE = new BinaryFrameType[256];
+
+    static {
+        for (BinaryFrameType type : values()) {
+            BY_CODE[type.code & 0xFF] = type;
+        }
+    }
+
+    private final byte code;
+
+    BinaryFrameType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the frame type for a leading byte, or null if the byte is not a known frame type.
+     */
+    public static BinaryFrameType fromCode(byte code) {
+        return BY_CODE[code & 0xFF];
+    }
+}
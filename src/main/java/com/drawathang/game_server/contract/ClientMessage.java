@@ -1,7 +1,19 @@
 package com.drawathang.game_server.contract;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A text message from a client: its type and whichever payload field that type carries.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ClientMessage {
     private ClientMessageType type;
+    private String username;
+    private String roomName;
+    private String roomId;
+    private String guess;
+    private String word;
+    private Long roomsVersion;
 
     // Default constructor for JSON deserialization
     public ClientMessage() {
@@ -21,5 +33,58 @@ public class ClientMessage {
     public void setType(ClientMessageType type) {
         this.type = type;
     }
-}
 
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+
+    public void setRoomName(String roomName) {
+        this.roomName = roomName;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public void setRoomId(String roomId) {
+        this.roomId = roomId;
+    }
+
+    public String getGuess() {
+        return guess;
+    }
+
+    public void setGuess(String guess) {
+        this.guess = guess;
+    }
+
+    /**
+     * The word a drawer picks with {@code PICK_WORD}.
+     */
+    public String getWord() {
+        return word;
+    }
+
+    public void setWord(String word) {
+        this.word = word;
+    }
+
+    /**
+     * The lobby room directory version a {@code SYNC_ROOMS} client holds, or null if it sent none.
+     */
+    public Long getRoomsVersion() {
+        return roomsVersion;
+    }
+
+    public void setRoomsVersion(Long roomsVersion) {
+        this.roomsVersion = roomsVersion;
+    }
+}
@@ -1,5 +1,29 @@
 package com.drawathang.game_server.contract;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Every text message a client can send. The constant name is the message's {@code type} field.
+ */
 public enum ClientMessageType {
-    JOIN_SERVER, SET_USERNAME, CREATE_ROOM, JOIN_ROOM, LEAVE_ROOM, START_GAME,
+    JOIN_SERVER, LEAVE_SERVER, SET_USERNAME, CREATE_ROOM, JOIN_ROOM, LEAVE_ROOM, SUBMIT_GUESS, START_GAME,
+    PICK_WORD, REQUEST_ROOM_SNAPSHOT, SYNC_ROOMS;
+
+    private static final Map<String, ClientMessageType> BY_NAME = new HashMap<>();
+
+    static {
+        for (ClientMessageType type : values()) {
+            BY_NAME.put(type.name(), type);
+        }
+    }
+
+    /**
+     * Looks up a type by its wire name without the exception {@link #valueOf} throws for unknown names.
+     *
+     * @return The matching type, or null if there is none.
+     */
+    public static ClientMessageType fromName(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
 }
@@ -0,0 +1,134 @@
+package com.drawathang.game_server.journal;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of journal entries.
+ * <p>
+ * An entry is {@code [int bodyLength][int crc32c(body)][body]}, and a body is a type byte, the
+ * room id, then the record's fields. Strings are an int byte count followed by UTF-8; byte arrays
+ * are an int count followed by the bytes. The checksum lets replay tell a torn write at the end
+ * of a segment from a complete entry.
+ */
+final class JournalCodec {
+    static final int ENTRY_HEADER_BYTES = 8;
+
+    private static final byte ROOM_CREATED = 1;
+    private static final byte ROOM_REMOVED = 2;
+    private static final byte GUESS_ADDED = 3;
+    private static final byte CANVAS_CLEARED = 4;
+    private static final byte DRAW_BATCH = 5;
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Encodes a record as a complete entry, header included.
+     */
+    static byte[] encodeEntry(JournalRecord record) {
+        byte[] roomId = utf8(record.roomId());
+        byte[][] fields = switch (record) {
+            case JournalRecord.RoomCreated created -> new byte[][]{utf8(created.roomName())};
+            case JournalRecord.RoomRemoved removed -> new byte[0][];
+            case JournalRecord.GuessAdded guess ->
+                    new byte[][]{utf8(guess.sessionId()), utf8(guess.username()), utf8(guess.guess())};
+            case JournalRecord.CanvasCleared cleared -> new byte[0][];
+            case JournalRecord.DrawBatch batch -> new byte[][]{batch.frame()};
+        };
+
+        int bodyLength = 1 + 4 + roomId.length;
+        for (byte[] field : fields) {
+            bodyLength += 4 + field.length;
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_BYTES + bodyLength);
+        entry.putInt(bodyLength);
+        entry.putInt(0);
+        entry.put(typeOf(record));
+        putBytes(entry, roomId);
+        for (byte[] field : fields) {
+            putBytes(entry, field);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(entry.array(), ENTRY_HEADER_BYTES, bodyLength);
+        entry.putInt(4, (int) crc.getValue());
+        return entry.array();
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return null if what is left is not a complete, intact entry: the end of the segment, or a
+     * write cut short by a crash. The buffer's position is then unspecified.
+     */
+    static JournalRecord readEntry(ByteBuffer buffer) {
+        if (buffer.remaining() < ENTRY_HEADER_BYTES) {
+            return null;
+        }
+        int bodyLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (bodyLength <= 0 || bodyLength > buffer.remaining()) {
+            return null;
+        }
+
+        ByteBuffer body = buffer.slice(buffer.position(), bodyLength);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        buffer.position(buffer.position() + bodyLength);
+
+        try {
+            byte type = body.get();
+            String roomId = getString(body);
+            return switch (type) {
+                case ROOM_CREATED -> new JournalRecord.RoomCreated(roomId, getString(body));
+                case ROOM_REMOVED -> new JournalRecord.RoomRemoved(roomId);
+                case GUESS_ADDED -> new JournalRecord.GuessAdded(roomId, getString(body), getString(body), getString(body));
+                case CANVAS_CLEARED -> new JournalRecord.CanvasCleared(roomId);
+                case DRAW_BATCH -> new JournalRecord.DrawBatch(roomId, getBytes(body));
+                default -> throw new IllegalArgumentException("Unknown journal record type " + type);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Journal record overruns its entry", e);
+        }
+    }
+
+    private static byte typeOf(JournalRecord record) {
+        return switch (record) {
+            case JournalRecord.RoomCreated created -> ROOM_CREATED;
+            case JournalRecord.RoomRemoved removed -> ROOM_REMOVED;
+            case JournalRecord.GuessAdded guess -> GUESS_ADDED;
+            case JournalRecord.CanvasCleared cleared -> CANVAS_CLEARED;
+            case JournalRecord.DrawBatch batch -> DRAW_BATCH;
+        };
+    }
+
+    static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Field overruns its entry");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,35 @@
+package com.drawathang.game_server.journal;
+
+/**
+ * A change to a room, as written to the {@link RoomJournal}.
+ * <p>
+ * Only what a restarted node needs to bring a room back is journaled: that it exists, its recent
+ * guesses and its canvas. Connections do not survive a restart, so players, the running game and
+ * lobby presence are not recorded; players rejoin restored rooms from the lobby.
+ */
+public sealed interface JournalRecord {
+
+    String roomId();
+
+    record RoomCreated(String roomId, String roomName) implements JournalRecord {
+    }
+
+    record RoomRemoved(String roomId) implements JournalRecord {
+    }
+
+    record GuessAdded(String roomId, String sessionId, String username, String guess) implements JournalRecord {
+    }
+
+    /**
+     * A new round started with a blank canvas.
+     */
+    record CanvasCleared(String roomId) implements JournalRecord {
+    }
+
+    /**
+     * A {@code DRAW_BATCH} frame flushed to the room. The frame is shared with the broadcast that
+     * sent it and must not be modified.
+     */
+    record DrawBatch(String roomId, byte[] frame) implements JournalRecord {
+    }
+}
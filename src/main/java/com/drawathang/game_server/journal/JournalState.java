@@ -0,0 +1,235 @@
+package com.drawathang.game_server.journal;
+
+import com.drawathang.game_server.services.CanvasHistory;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import com.drawathang.game_server.services.domain.Guess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * The rooms a journal describes, rebuilt by applying its records in order.
+ * <p>
+ * Used both to restore rooms on startup and to fold old journal segments into a snapshot. A
+ * snapshot is the state written out whole: a header, then one checksummed block per room with
+ * its name, kept guesses and canvas. Canvases are held as {@link CanvasHistory}s, so strokes are
+ * merged while the journal is folded and snapshots stay compact.
+ */
+public class JournalState {
+    private static final int SNAPSHOT_MAGIC = 0x44525753;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * A room as the journal left it.
+     */
+    public static final class RoomImage {
+        private final String roomId;
+        private final String roomName;
+        private final GuessHistory guesses;
+        private final CanvasHistory canvas;
+
+        private RoomImage(String roomId, String roomName, GuessHistory guesses, CanvasHistory canvas) {
+            this.roomId = roomId;
+            this.roomName = roomName;
+            this.guesses = guesses;
+            this.canvas = canvas;
+        }
+
+        public String getRoomId() {
+            return this.roomId;
+        }
+
+        public String getRoomName() {
+            return this.roomName;
+        }
+
+        public GuessHistory getGuesses() {
+            return this.guesses;
+        }
+
+        public CanvasHistory getCanvas() {
+            return this.canvas;
+        }
+    }
+
+    private final Map<String, RoomImage> rooms = new LinkedHashMap<>();
+    private final StrokeSegmentPool strokeSegmentPool;
+    private final int guessRetention;
+
+    /**
+     * @param strokeSegmentPool Storage for the rebuilt canvases.
+     * @param guessRetention    How many of the latest guesses each room keeps.
+     */
+    public JournalState(StrokeSegmentPool strokeSegmentPool, int guessRetention) {
+        this.strokeSegmentPool = strokeSegmentPool;
+        this.guessRetention = guessRetention;
+    }
+
+    public Collection<RoomImage> getRooms() {
+        return this.rooms.values();
+    }
+
+    public void apply(JournalRecord record) {
+        if (record instanceof JournalRecord.RoomCreated created) {
+            this.put(created.roomId(), created.roomName());
+            return;
+        }
+
+        RoomImage room = this.rooms.get(record.roomId());
+        if (room == null) {
+            return;
+        }
+        switch (record) {
+            case JournalRecord.RoomRemoved removed -> {
+                this.rooms.remove(removed.roomId());
+                room.canvas.release();
+            }
+            case JournalRecord.GuessAdded guess ->
+                    room.guesses.add(new Guess(guess.sessionId(), guess.username(), guess.guess()));
+            case JournalRecord.CanvasCleared cleared -> room.canvas.release();
+            case JournalRecord.DrawBatch batch -> room.canvas.appendDrawBatch(batch.frame());
+            case JournalRecord.RoomCreated created -> {
+            }
+        }
+    }
+
+    /**
+     * Returns every canvas to the pool and forgets every room.
+     */
+    public void release() {
+        for (RoomImage room : this.rooms.values()) {
+            room.canvas.release();
+        }
+        this.rooms.clear();
+    }
+
+    /**
+     * Hands the rooms over to their new owner. The state forgets them without releasing their canvases.
+     */
+    public Collection<RoomImage> takeRooms() {
+        List<RoomImage> taken = List.copyOf(this.rooms.values());
+        this.rooms.clear();
+        return taken;
+    }
+
+    private RoomImage put(String roomId, String roomName) {
+        RoomImage previous = this.rooms.remove(roomId);
+        if (previous != null) {
+            previous.canvas.release();
+        }
+        RoomImage room = new RoomImage(roomId, roomName, new GuessHistory(this.guessRetention),
+                new CanvasHistory(this.strokeSegmentPool));
+        this.rooms.put(roomId, room);
+        return room;
+    }
+
+    /**
+     * Adds the rooms of a snapshot written by {@link #writeSnapshot(Path)}.
+     *
+     * @throws IOException if the snapshot cannot be read or is damaged.
+     */
+    public void readSnapshot(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a room snapshot: " + file);
+            }
+            int roomCount = buffer.getInt();
+            for (int i = 0; i < roomCount; i++) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                ByteBuffer block = buffer.slice(buffer.position(), length);
+                CRC32C crc = new CRC32C();
+                crc.update(block.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("Damaged room in snapshot " + file);
+                }
+                buffer.position(buffer.position() + length);
+
+                RoomImage room = this.put(JournalCodec.getString(block), JournalCodec.getString(block));
+                int guessCount = block.getInt();
+                for (int g = 0; g < guessCount; g++) {
+                    room.guesses.add(new Guess(JournalCodec.getString(block), JournalCodec.getString(block),
+                            JournalCodec.getString(block)));
+                }
+                byte[] canvas = JournalCodec.getBytes(block);
+                if (canvas.length > 0) {
+                    room.canvas.appendCanvasSnapshot(canvas);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Writes every room to {@code file}. The snapshot is written beside it and moved into place
+     * once it is on disk, so a crash never leaves a partial snapshot under the final name.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(this.rooms.size()).flip();
+            writeFully(channel, header);
+
+            for (RoomImage room : this.rooms.values()) {
+                writeFully(channel, ByteBuffer.wrap(encodeRoom(room)));
+            }
+            channel.force(true);
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static byte[] encodeRoom(RoomImage room) {
+        byte[] roomId = JournalCodec.utf8(room.roomId);
+        byte[] roomName = JournalCodec.utf8(room.roomName);
+        List<Guess> guesses = room.guesses.last(room.guesses.size());
+        byte[][] guessFields = new byte[guesses.size() * 3][];
+        for (int i = 0; i < guesses.size(); i++) {
+            Guess guess = guesses.get(i);
+            guessFields[i * 3] = JournalCodec.utf8(guess.getSessionId());
+            guessFields[i * 3 + 1] = JournalCodec.utf8(guess.getUsername());
+            guessFields[i * 3 + 2] = JournalCodec.utf8(guess.getGuess());
+        }
+        byte[] canvas = room.canvas.isEmpty() ? new byte[0] : room.canvas.encodeSnapshot();
+
+        int length = 4 + roomId.length + 4 + roomName.length + 4 + 4 + canvas.length;
+        for (byte[] field : guessFields) {
+            length += 4 + field.length;
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(8 + length);
+        block.putInt(length).putInt(0);
+        JournalCodec.putBytes(block, roomId);
+        JournalCodec.putBytes(block, roomName);
+        block.putInt(guesses.size());
+        for (byte[] field : guessFields) {
+            JournalCodec.putBytes(block, field);
+        }
+        JournalCodec.putBytes(block, canvas);
+
+        CRC32C crc = new CRC32C();
+        crc.update(block.array(), 8, length);
+        block.putInt(4, (int) crc.getValue());
+        return block.array();
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
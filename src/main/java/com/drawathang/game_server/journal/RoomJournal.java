@@ -0,0 +1,466 @@
+package com.drawathang.game_server.journal;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only journal of room changes, so rooms outlive a restart.
+ * <p>
+ * Rooms hand records to {@link #append} from their shard threads. Appending is a lock-free queue
+ * offer and nothing else: encoding and disk I/O happen on the journal's writer thread, which
+ * wakes every commit interval, encodes everything queued into one direct buffer, writes it with
+ * a single {@link FileChannel} write and forces it once. One commit covers every record of the
+ * interval, so a crash loses at most the last interval.
+ * <p>
+ * The journal is a directory of numbered segments, {@code journal-<generation>.log}. A node
+ * writes to a fresh segment each time it starts, and rotates to the next one once a segment is
+ * large or a snapshot is due. A compaction thread periodically folds the latest snapshot and
+ * every closed segment into a new {@code snapshot-<generation>.bin}, holding every room as of
+ * the end of that segment, and deletes what it replaced. Restoring is reading the latest
+ * snapshot and replaying the few segments written after it.
+ */
+public class RoomJournal {
+    public static final long DEFAULT_COMMIT_MILLIS = 10;
+    public static final long DEFAULT_SNAPSHOT_SECONDS = 300;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * A journal that records nothing and restores nothing.
+     */
+    public static final RoomJournal DISABLED = new RoomJournal();
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("journal-(\\d{16})\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d{16})\\.bin");
+    private static final Pattern GENERATION = Pattern.compile("\\d{16}");
+
+    /**
+     * Size of the writer's commit buffer. Larger commits are written in several chunks.
+     */
+    private static final int COMMIT_BUFFER_BYTES = 1024 * 1024;
+
+    /**
+     * Opens the channel of a new segment file.
+     */
+    interface SegmentOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    private static final SegmentOpener CREATE_NEW = file ->
+            FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+    private final Path directory;
+    private final SegmentOpener segmentOpener;
+    private final long segmentBytes;
+    private final int guessRetention;
+
+    private final ConcurrentLinkedQueue<JournalRecord> pending = new ConcurrentLinkedQueue<>();
+    private final LongAdder pendingCount = new LongAdder();
+
+    /**
+     * Runs every commit and rotation, so only its thread touches the open segment.
+     */
+    private final ScheduledExecutorService writer;
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Generation of the first segment this journal wrote. Restore reads everything before it.
+     */
+    private final long openedGeneration;
+
+    /**
+     * Generation of the segment being written. Compaction folds everything before it.
+     */
+    private long generation;
+    private FileChannel segment;
+    private long segmentWritten;
+
+    /**
+     * Where the last commit that was written and forced in full ends in the open segment.
+     */
+    private long segmentCommitted;
+    private final ByteBuffer commitBuffer;
+
+    private RoomJournal() {
+        this.directory = null;
+        this.segmentOpener = null;
+        this.openedGeneration = 0;
+        this.segmentBytes = 0;
+        this.guessRetention = 0;
+        this.writer = null;
+        this.compactor = null;
+        this.commitBuffer = null;
+    }
+
+    private RoomJournal(Path directory, long segmentBytes, int guessRetention, SegmentOpener segmentOpener)
+            throws IOException {
+        this.directory = directory;
+        this.segmentOpener = segmentOpener;
+        this.segmentBytes = segmentBytes;
+        this.guessRetention = guessRetention;
+        this.commitBuffer = ByteBuffer.allocateDirect(COMMIT_BUFFER_BYTES);
+
+        Files.createDirectories(directory);
+        long latest = -1;
+        for (Path file : this.list(SEGMENT_FILE, Long.MAX_VALUE)) {
+            latest = Math.max(latest, generationOf(file));
+        }
+        for (Path file : this.list(SNAPSHOT_FILE, Long.MAX_VALUE)) {
+            latest = Math.max(latest, generationOf(file));
+        }
+        this.openedGeneration = latest + 1;
+        this.openSegment(this.openedGeneration);
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "room-journal"));
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "room-journal-compactor"));
+    }
+
+    /**
+     * Opens the journal in {@code directory}, creating it if needed, and starts writing a new
+     * segment.
+     *
+     * @param commitMillis    How often queued records are written and forced to disk.
+     * @param snapshotSeconds How often closed segments are folded into a snapshot.
+     * @param guessRetention  How many of the latest guesses a snapshot keeps per room.
+     * @throws UncheckedIOException if the directory cannot be read or written.
+     */
+    public static RoomJournal open(Path directory, long commitMillis, long snapshotSeconds, int guessRetention) {
+        return open(directory, commitMillis, snapshotSeconds, DEFAULT_SEGMENT_BYTES, guessRetention);
+    }
+
+    /**
+     * @param segmentBytes Size past which the writer moves on to a new segment.
+     */
+    public static RoomJournal open(Path directory, long commitMillis, long snapshotSeconds, long segmentBytes,
+                                   int guessRetention) {
+        return open(directory, commitMillis, snapshotSeconds, segmentBytes, guessRetention, CREATE_NEW);
+    }
+
+    /**
+     * @param segmentOpener How segment files are opened for writing; tests use it to make writes fail.
+     */
+    static RoomJournal open(Path directory, long commitMillis, long snapshotSeconds, long segmentBytes,
+                            int guessRetention, SegmentOpener segmentOpener) {
+        if (commitMillis <= 0 || snapshotSeconds <= 0 || segmentBytes <= 0) {
+            throw new IllegalArgumentException("Journal intervals and segment size must be positive");
+        }
+        RoomJournal journal;
+        try {
+            journal = new RoomJournal(directory, segmentBytes, guessRetention, segmentOpener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the room journal in " + directory, e);
+        }
+        journal.writer.scheduleWithFixedDelay(journal::commit, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+        journal.compactor.scheduleWithFixedDelay(journal::compact, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+        return journal;
+    }
+
+    public boolean isEnabled() {
+        return this.writer != null;
+    }
+
+    /**
+     * Queues a record for the next commit. Never blocks and never touches the disk.
+     */
+    public void append(JournalRecord record) {
+        if (this.writer == null) {
+            return;
+        }
+        this.pending.offer(record);
+        this.pendingCount.increment();
+    }
+
+    /**
+     * Records queued and not yet committed.
+     */
+    public long getPendingCount() {
+        return this.pendingCount.sum();
+    }
+
+    /**
+     * Rebuilds the rooms written before this journal was opened: the latest snapshot, then every
+     * segment after it. A segment is replayed up to its first incomplete or damaged entry, which
+     * is where a crash cut it short.
+     *
+     * @param strokeSegmentPool Storage for the restored canvases.
+     * @param guessRetention    How many of the latest guesses each restored room keeps.
+     * @return The rooms, in the order they were created. The caller owns their canvases.
+     * @throws UncheckedIOException if the journal cannot be read.
+     */
+    public Collection<JournalState.RoomImage> restore(StrokeSegmentPool strokeSegmentPool, int guessRetention) {
+        if (this.writer == null) {
+            return List.of();
+        }
+        JournalState state = new JournalState(strokeSegmentPool, guessRetention);
+        try {
+            this.fold(state, this.openedGeneration);
+        } catch (IOException e) {
+            state.release();
+            throw new UncheckedIOException("Cannot restore rooms from " + this.directory, e);
+        }
+        return state.takeRooms();
+    }
+
+    /**
+     * Commits what is queued, then stops writing and compacting. Safe to call more than once.
+     */
+    public synchronized void close() {
+        if (this.writer == null || this.writer.isShutdown()) {
+            return;
+        }
+        this.compactor.shutdownNow();
+        this.writer.execute(() -> {
+            this.commit();
+            try {
+                this.segment.close();
+            } catch (IOException e) {
+                GameServerMetrics.JOURNAL_WRITE_ERRORS.increment();
+            }
+        });
+        this.writer.shutdown();
+        try {
+            this.writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes every queued record to the open segment and forces it to disk. Runs on the writer.
+     */
+    private void commit() {
+        // Take no more than was queued on entry, so a busy server still gets regular commits.
+        long count = this.pendingCount.sum();
+        if (count == 0) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        int committed = 0;
+        try {
+            this.commitBuffer.clear();
+            JournalRecord record;
+            while (committed < count && (record = this.pending.poll()) != null) {
+                committed++;
+                byte[] entry = JournalCodec.encodeEntry(record);
+                if (entry.length > this.commitBuffer.remaining()) {
+                    this.writeCommitBuffer();
+                    if (entry.length > this.commitBuffer.capacity()) {
+                        this.write(ByteBuffer.wrap(entry));
+                        continue;
+                    }
+                }
+                this.commitBuffer.put(entry);
+            }
+            this.writeCommitBuffer();
+            this.segment.force(false);
+            this.segmentCommitted = this.segmentWritten;
+        } catch (IOException | RuntimeException e) {
+            // The batch is lost; later commits go on.
+            GameServerMetrics.JOURNAL_WRITE_ERRORS.increment();
+            this.discardFailedCommit();
+        } finally {
+            this.pendingCount.add(-committed);
+        }
+        GameServerMetrics.JOURNAL_COMMIT_SIZE.record(committed);
+        GameServerMetrics.JOURNAL_COMMIT_LATENCY.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+        if (this.segmentWritten >= this.segmentBytes) {
+            this.rotate();
+        }
+    }
+
+    private void writeCommitBuffer() throws IOException {
+        this.commitBuffer.flip();
+        this.write(this.commitBuffer);
+        this.commitBuffer.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        this.segmentWritten += buffer.remaining();
+        JournalState.writeFully(this.segment, buffer);
+    }
+
+    /**
+     * Cuts what a failed commit left in the open segment back to the last good commit. Replay
+     * stops at the first damaged entry, so a torn entry left in place would hide every commit
+     * after it. If the segment cannot be cut, the writer moves on to a new one and the torn
+     * entry stays at the end of the old one, where it hides nothing. Runs on the writer.
+     */
+    private void discardFailedCommit() {
+        if (this.segmentWritten == this.segmentCommitted) {
+            return;
+        }
+        try {
+            this.segment.truncate(this.segmentCommitted);
+            this.segment.position(this.segmentCommitted);
+            this.segmentWritten = this.segmentCommitted;
+        } catch (IOException e) {
+            this.rotate();
+        }
+    }
+
+    /**
+     * Closes the open segment and starts the next. Runs on the writer.
+     *
+     * @return The generation of the new segment; every earlier segment is closed for good.
+     */
+    private long rotate() {
+        try {
+            this.segment.close();
+        } catch (IOException e) {
+            GameServerMetrics.JOURNAL_WRITE_ERRORS.increment();
+        }
+        try {
+            this.openSegment(this.generation + 1);
+        } catch (IOException e) {
+            GameServerMetrics.JOURNAL_WRITE_ERRORS.increment();
+        }
+        return this.generation;
+    }
+
+    private void openSegment(long generation) throws IOException {
+        this.segment = this.segmentOpener.open(this.directory.resolve(segmentName(generation)));
+        this.generation = generation;
+        this.segmentWritten = 0;
+        this.segmentCommitted = 0;
+    }
+
+    /**
+     * Folds the latest snapshot and every closed segment into a new snapshot, then deletes them.
+     * Runs on the compaction thread; the writer only stops for the rotation.
+     */
+    private void compact() {
+        long sealed;
+        try {
+            sealed = this.writer.submit(() -> {
+                this.commit();
+                return this.rotate();
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | RejectedExecutionException e) {
+            // Rotation failed, or the journal is closing.
+            GameServerMetrics.JOURNAL_WRITE_ERRORS.increment();
+            return;
+        }
+
+        // Released canvases go back to the cleaner, not to a pool nobody else draws from.
+        JournalState state = new JournalState(new StrokeSegmentPool(StrokeSegmentPool.DEFAULT_SEGMENT_SIZE, 0),
+                this.guessRetention);
+        try {
+            this.fold(state, sealed);
+            state.writeSnapshot(this.directory.resolve(snapshotName(sealed - 1)));
+            for (Path file : this.list(SNAPSHOT_FILE, sealed - 1)) {
+                Files.deleteIfExists(file);
+            }
+            for (Path file : this.list(SEGMENT_FILE, sealed)) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The files stay as they were; the next compaction starts over from them.
+            GameServerMetrics.JOURNAL_WRITE_ERRORS.increment();
+        } finally {
+            state.release();
+        }
+    }
+
+    /**
+     * Applies the latest snapshot and every later segment before {@code endGeneration} to {@code state}.
+     */
+    private void fold(JournalState state, long endGeneration) throws IOException {
+        long snapshotGeneration = -1;
+        for (Path file : this.list(SNAPSHOT_FILE, endGeneration)) {
+            snapshotGeneration = Math.max(snapshotGeneration, generationOf(file));
+        }
+        if (snapshotGeneration >= 0) {
+            state.readSnapshot(this.directory.resolve(snapshotName(snapshotGeneration)));
+        }
+
+        for (Path file : this.list(SEGMENT_FILE, endGeneration)) {
+            if (generationOf(file) > snapshotGeneration) {
+                replay(file, state);
+            }
+        }
+    }
+
+    /**
+     * Applies a segment's entries to {@code state}, up to the first one that is not complete and intact.
+     */
+    static void replay(Path file, JournalState state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            JournalRecord record;
+            while ((record = readEntryOrNull(buffer)) != null) {
+                state.apply(record);
+            }
+        }
+    }
+
+    private static JournalRecord readEntryOrNull(ByteBuffer buffer) {
+        try {
+            return JournalCodec.readEntry(buffer);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Files matching {@code pattern} with a generation below {@code endGeneration}, oldest first.
+     */
+    private List<Path> list(Pattern pattern, long endGeneration) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (var entries = Files.list(this.directory)) {
+            entries.filter(file -> pattern.matcher(file.getFileName().toString()).matches())
+                    .filter(file -> generationOf(file) < endGeneration)
+                    .sorted()
+                    .forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long generationOf(Path file) {
+        Matcher matcher = GENERATION.matcher(file.getFileName().toString());
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Not a journal file: " + file);
+        }
+        return Long.parseLong(matcher.group());
+    }
+
+    static String segmentName(long generation) {
+        return String.format("journal-%016d.log", generation);
+    }
+
+    static String snapshotName(long generation) {
+        return String.format("snapshot-%016d.bin", generation);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
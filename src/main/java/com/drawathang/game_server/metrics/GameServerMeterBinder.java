@@ -0,0 +1,80 @@
+package com.drawathang.game_server.metrics;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.services.GameServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Gauges over the live state of the game server, read at scrape time, and the static
+ * {@link GameServerMetrics} meters.
+ * <p>
+ * Spring Boot binds this to the application's registry, so the gauges follow the application
+ * context and never pin a stale {@link GameServer}. The static meters record into that registry
+ * until the context closes.
+ */
+@Component
+public class GameServerMeterBinder implements MeterBinder {
+
+    private final GameServer gameServer;
+
+    /**
+     * Registries the static meters were bound to, to unbind on shutdown.
+     */
+    private final List<MeterRegistry> boundRegistries = new CopyOnWriteArrayList<>();
+
+    public GameServerMeterBinder(GameServer gameServer) {
+        this.gameServer = gameServer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GameServerMetrics.bindTo(registry);
+        this.boundRegistries.add(registry);
+
+        Gauge.builder("drawathang.sessions", gameServer, GameServer::getSessionsCount)
+                .description("Sessions on the game server")
+                .register(registry);
+        Gauge.builder("drawathang.sessions.lobby", gameServer, GameServer::getLobbySessionsCount)
+                .description("Sessions in the lobby")
+                .register(registry);
+        Gauge.builder("drawathang.rooms", gameServer, GameServer::getRoomsCount)
+                .description("Open rooms")
+                .register(registry);
+        Gauge.builder("drawathang.canvas.offheap.used", gameServer, GameServer::getCanvasBytesInUse)
+                .description("Direct memory holding room canvas history")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("drawathang.canvas.offheap.pooled", gameServer, GameServer::getCanvasBytesPooled)
+                .description("Direct memory kept for reuse by new canvas history")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("drawathang.timers.pending", gameServer, GameServer::getPendingTimersCount)
+                .description("Round, turn and hint deadlines waiting on the timer wheel")
+                .register(registry);
+        Gauge.builder("drawathang.journal.pending", gameServer, GameServer::getJournalPendingCount)
+                .description("Room journal records waiting for the next commit")
+                .register(registry);
+        Gauge.builder("drawathang.outbound.sessions", gameServer, server -> server.getBroadcastService().getRegisteredSessionCount())
+                .description("Sessions registered for outbound messages")
+                .register(registry);
+        Gauge.builder("drawathang.outbound.writers.active", BroadcastService::getActiveWriterCount)
+                .description("Session writers currently draining on the writer pool")
+                .register(registry);
+    }
+
+    /**
+     * Stops the static meters from recording into this context's registries once it closes.
+     */
+    @PreDestroy
+    public void unbind() {
+        this.boundRegistries.forEach(GameServerMetrics::unbind);
+        this.boundRegistries.clear();
+    }
+}
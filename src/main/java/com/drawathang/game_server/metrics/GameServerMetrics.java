@@ -0,0 +1,287 @@
+package com.drawathang.game_server.metrics;
+
+import com.drawathang.game_server.contract.ClientMessageType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+
+/**
+ * Meters recorded by the game server.
+ * <p>
+ * Meters are registered once against a composite registry of their own and held in static
+ * fields, so hot paths record into a ready meter without any lookup or tag allocation. They
+ * record nothing until a registry is bound with {@link #bindTo(MeterRegistry)}:
+ * {@link GameServerMeterBinder} binds the application's registry, so every meter here is served
+ * at {@code /actuator/prometheus}, and unbinds it when the context closes. Tests and benchmarks
+ * that read or pay for these meters bind a registry of their own, such as a
+ * {@code SimpleMeterRegistry}. Gauges over live server state are bound per application context
+ * by {@link GameServerMeterBinder}.
+ * <p>
+ * Latency and size distributions publish fixed histogram buckets rather than client-side
+ * percentiles: recording is a bucket increment, and percentiles are computed at query time
+ * across instances.
+ */
+public final class GameServerMetrics {
+    private static final CompositeMeterRegistry REGISTRY = new CompositeMeterRegistry();
+
+    /**
+     * Number of stroke segments coalesced into each flushed draw batch.
+     */
+    public static final DistributionSummary DRAW_BATCH_SIZE = DistributionSummary.builder("drawathang.draw.batch.size")
+            .description("Stroke segments per flushed draw batch")
+            .baseUnit("segments")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(4096.0)
+            .register(REGISTRY);
+
+    /**
+     * Time the oldest segment in a batch waited in the room buffer before being flushed.
+     */
+    public static final Timer DRAW_FLUSH_LATENCY = Timer.builder("drawathang.draw.flush.latency")
+            .description("Age of the oldest stroke segment when its batch is flushed")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(100_000))
+            .maximumExpectedValue(Duration.ofSeconds(1))
+            .register(REGISTRY);
+
+    /**
+     * Sessions closed because an event could not be queued for them.
+     */
+    public static final Counter OUTBOUND_OVERFLOW_CLOSED = Counter.builder("drawathang.outbound.overflow.closed")
+            .description("Sessions closed because their outbound queue overflowed")
+            .register(REGISTRY);
+
+    /**
+     * Room commands and draw flushes that threw on their shard. The shard drops them and keeps
+     * serving its other rooms.
+     */
+    public static final Counter ROOM_TASK_FAILURES = Counter.builder("drawathang.rooms.task.failures")
+            .description("Room commands and draw flushes that failed on their shard")
+            .register(REGISTRY);
+
+    /**
+     * Sessions closed because neither messages nor heartbeat pongs arrived within the idle timeout.
+     */
+    public static final Counter SESSIONS_REAPED = Counter.builder("drawathang.sessions.reaped")
+            .description("Sessions closed for going idle")
+            .register(REGISTRY);
+
+    /**
+     * Handling time of inbound messages, by {@link ClientMessageType}.
+     */
+    private static final EnumMap<ClientMessageType, Timer> INBOUND_HANDLING = new EnumMap<>(ClientMessageType.class);
+
+    static {
+        for (ClientMessageType type : ClientMessageType.values()) {
+            INBOUND_HANDLING.put(type, inboundHandlingTimer(type.name()));
+        }
+    }
+
+    /**
+     * Handling time of inbound binary draw frames.
+     */
+    public static final Timer INBOUND_DRAW_EVENT = inboundHandlingTimer("DRAW_EVENT");
+
+    /**
+     * Inbound messages dropped by a session's rate limit, by {@link ClientMessageType}.
+     */
+    private static final EnumMap<ClientMessageType, Counter> INBOUND_THROTTLED = new EnumMap<>(ClientMessageType.class);
+
+    static {
+        for (ClientMessageType type : ClientMessageType.values()) {
+            INBOUND_THROTTLED.put(type, inboundThrottledCounter(type.name()));
+        }
+    }
+
+    /**
+     * Inbound binary draw frames dropped by a session's rate limit.
+     */
+    public static final Counter INBOUND_DRAW_EVENT_THROTTLED = inboundThrottledCounter("DRAW_EVENT");
+
+    /**
+     * Inbound text messages with a missing or unknown type dropped by a session's rate limit.
+     */
+    public static final Counter INBOUND_INVALID_THROTTLED = inboundThrottledCounter("INVALID");
+
+    /**
+     * Sessions closed for flooding: they kept sending after their rate limit dropped their messages.
+     */
+    public static final Counter FLOOD_DISCONNECTS = Counter.builder("drawathang.inbound.flood.disconnects")
+            .description("Sessions closed for sending past their rate limit")
+            .register(REGISTRY);
+
+    /**
+     * Messages waiting in a session's outbound queue, sampled each time its writer starts draining.
+     */
+    public static final DistributionSummary OUTBOUND_QUEUE_DEPTH = DistributionSummary.builder("drawathang.outbound.queue.depth")
+            .description("Outbound queue depth when a session writer starts draining")
+            .baseUnit("messages")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(4096.0)
+            .register(REGISTRY);
+
+    /**
+     * Size of each broadcast payload, serialized once and shared by every recipient.
+     */
+    public static final DistributionSummary BROADCAST_PAYLOAD_SIZE = DistributionSummary.builder("drawathang.broadcast.payload.size")
+            .description("Serialized size of each broadcast payload")
+            .baseUnit("bytes")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(16.0)
+            .maximumExpectedValue(1_048_576.0)
+            .register(REGISTRY);
+
+    /**
+     * Recipients each broadcast was queued for.
+     */
+    public static final DistributionSummary BROADCAST_FAN_OUT = DistributionSummary.builder("drawathang.broadcast.fan.out")
+            .description("Recipients each broadcast was queued for")
+            .baseUnit("sessions")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(100_000.0)
+            .register(REGISTRY);
+
+    /**
+     * Payload bytes queued across all recipients: the outbound volume broadcasts generate.
+     */
+    public static final Counter BROADCAST_BYTES_QUEUED = Counter.builder("drawathang.broadcast.bytes.queued")
+            .description("Payload bytes queued for sending, summed over recipients")
+            .baseUnit("bytes")
+            .register(REGISTRY);
+
+    /**
+     * Time the broadcasting thread spends queuing a broadcast for all of its recipients, whether
+     * walked on that thread or fanned out in parallel.
+     */
+    public static final Timer BROADCAST_FAN_OUT_TIME = Timer.builder("drawathang.broadcast.fan.out.time")
+            .description("Time to queue a broadcast for all of its recipients")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1_000))
+            .maximumExpectedValue(Duration.ofSeconds(1))
+            .register(REGISTRY);
+
+    /**
+     * Compressed size over original size of each payload compressed for a broadcast. Payloads
+     * that compress poorly are sent as they are.
+     */
+    public static final DistributionSummary COMPRESSION_RATIO = DistributionSummary.builder("drawathang.outbound.compression.ratio")
+            .description("Compressed over original size of broadcast payloads")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(0.01)
+            .maximumExpectedValue(1.5)
+            .register(REGISTRY);
+
+    /**
+     * Time spent compressing each broadcast payload, once for all of its recipients.
+     */
+    public static final Timer COMPRESSION_TIME = Timer.builder("drawathang.outbound.compression.time")
+            .description("Time to compress one broadcast payload")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1_000))
+            .maximumExpectedValue(Duration.ofMillis(100))
+            .register(REGISTRY);
+
+    /**
+     * Time to write and force one room journal commit to disk.
+     */
+    public static final Timer JOURNAL_COMMIT_LATENCY = Timer.builder("drawathang.journal.commit.latency")
+            .description("Time to write and force one room journal commit")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(10_000))
+            .maximumExpectedValue(Duration.ofSeconds(5))
+            .register(REGISTRY);
+
+    /**
+     * Records written by each room journal commit.
+     */
+    public static final DistributionSummary JOURNAL_COMMIT_SIZE = DistributionSummary.builder("drawathang.journal.commit.size")
+            .description("Room journal records written per commit")
+            .baseUnit("records")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(1_000_000.0)
+            .register(REGISTRY);
+
+    /**
+     * Journal commits, rotations and compactions that failed. A failed commit loses its records.
+     */
+    public static final Counter JOURNAL_WRITE_ERRORS = Counter.builder("drawathang.journal.write.errors")
+            .description("Room journal writes that failed")
+            .register(REGISTRY);
+
+    // Prevent instantiation
+    private GameServerMetrics() {}
+
+    /**
+     * Records every meter here into {@code registry} too, from now on.
+     */
+    public static void bindTo(MeterRegistry registry) {
+        REGISTRY.add(registry);
+    }
+
+    /**
+     * Stops recording into a registry bound with {@link #bindTo(MeterRegistry)}.
+     */
+    public static void unbind(MeterRegistry registry) {
+        REGISTRY.remove(registry);
+    }
+
+    /**
+     * Returns the handling-time timer for an inbound message type.
+     */
+    public static Timer inboundHandling(ClientMessageType type) {
+        return INBOUND_HANDLING.get(type);
+    }
+
+    private static Timer inboundHandlingTimer(String type) {
+        return Timer.builder("drawathang.inbound.handling")
+                .description("Time to handle an inbound message, by message type")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(1))
+                .register(REGISTRY);
+    }
+
+    /**
+     * Returns the rate-limit drop counter for an inbound message type.
+     */
+    public static Counter inboundThrottled(ClientMessageType type) {
+        return INBOUND_THROTTLED.get(type);
+    }
+
+    private static Counter inboundThrottledCounter(String type) {
+        return Counter.builder("drawathang.inbound.throttled")
+                .description("Inbound messages dropped by the session rate limit, by message type")
+                .tag("type", type)
+                .register(REGISTRY);
+    }
+
+    /**
+     * Outbound messages of the given class dropped because a session queue was full.
+     */
+    public static Counter outboundDropped(String messageClass) {
+        return Counter.builder("drawathang.outbound.dropped")
+                .description("Outbound messages dropped because the session queue was full")
+                .tag("class", messageClass)
+                .register(REGISTRY);
+    }
+
+    /**
+     * Queued outbound messages of the given class superseded by a newer one.
+     */
+    public static Counter outboundCollapsed(String messageClass) {
+        return Counter.builder("drawathang.outbound.collapsed")
+                .description("Queued outbound messages replaced by a newer message of the same class")
+                .tag("class", messageClass)
+                .register(REGISTRY);
+    }
+}
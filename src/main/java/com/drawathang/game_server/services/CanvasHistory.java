@@ -0,0 +1,285 @@
+package com.drawathang.game_server.services;
+
+import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.util.DrawEventCodec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything drawn in a room, kept so players who join mid-round see the canvas.
+ * <p>
+ * New segments go into a short tail. Once the tail reaches {@link #COMPACT_THRESHOLD} segments
+ * it is compacted: segments of the same stroke are merged into as few segments as the wire
+ * format allows, and appended to the compacted log. Each time the compacted log doubles, it is
+ * rewritten whole, so strokes cut across compactions end up merged too.
+ * <p>
+ * The compacted log is capped at a number of bytes. A rewrite that finds it over the cap drops
+ * the oldest strokes, whole, until it is back to three quarters of the cap, so a room that draws
+ * all day keeps its latest drawing and a bounded amount of memory.
+ * <p>
+ * Both the tail and the compacted log hold segments already encoded as wire records, in
+ * {@link StrokeLog}s outside the heap. The tail takes the records straight out of each flushed
+ * {@code DRAW_BATCH} frame. A late joiner's {@code CANVAS_SNAPSHOT} is a header plus a bulk copy
+ * of both logs, with nothing decoded or re-encoded. The frame is built on the heap the first time
+ * it is needed after a change, and shared by every join until the next change, so joins cost no
+ * copy of their own and a stale frame is reclaimed by the garbage collector once its last send is
+ * done. No queued message ever points into pooled memory, so {@link #release()} can recycle the
+ * segments at once.
+ * <p>
+ * Owned by the room, and only touched from the room's shard.
+ */
+public class CanvasHistory {
+    /**
+     * Tail length that triggers a compaction.
+     */
+    static final int COMPACT_THRESHOLD = 256;
+
+    /**
+     * Cap on the compacted log used when the caller does not pick one.
+     */
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    /**
+     * A drawer's stroke; stroke ids are only unique per drawer.
+     */
+    private record StrokeKey(String drawerSessionId, int strokeId) {
+    }
+
+    private final StrokeLog compacted;
+    private final StrokeLog tail;
+    private final int maxBytes;
+    private int compactedSegmentCount = 0;
+    private int tailSegmentCount = 0;
+
+    /**
+     * Size of the compacted log after its last rewrite.
+     */
+    private int rewrittenBytes = 0;
+
+    /**
+     * The snapshot frame last handed out, or null once the history changed since. Never reused
+     * once replaced, as queued messages may still be reading it.
+     */
+    private ByteBuffer snapshotFrame;
+
+    public CanvasHistory(StrokeSegmentPool pool) {
+        this(pool, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes Size past which the compacted log sheds its oldest strokes.
+     */
+    public CanvasHistory(StrokeSegmentPool pool, int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.compacted = new StrokeLog(pool);
+        this.tail = new StrokeLog(pool);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Records a {@code DRAW_BATCH} frame that has just been sent to the room. Its segment records
+     * are copied into the tail as they are.
+     */
+    public void appendDrawBatch(byte[] drawBatchFrame) {
+        ByteBuffer frame = ByteBuffer.wrap(drawBatchFrame);
+        int segmentCount = DrawEventCodec.readDrawBatchHeader(frame);
+
+        this.tail.append(drawBatchFrame, frame.position(), frame.remaining());
+        this.tailSegmentCount += segmentCount;
+        this.snapshotFrame = null;
+        if (this.tailSegmentCount >= COMPACT_THRESHOLD) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Restores a canvas saved with {@link #encodeSnapshot()} on top of what the history holds.
+     * The saved segments were already compacted once, so they go straight to the compacted log.
+     */
+    public void appendCanvasSnapshot(byte[] canvasSnapshotFrame) {
+        ByteBuffer frame = ByteBuffer.wrap(canvasSnapshotFrame);
+        int segmentCount = DrawEventCodec.readCanvasSnapshotHeader(frame);
+
+        this.compact();
+        this.compacted.append(canvasSnapshotFrame, frame.position(), frame.remaining());
+        this.compactedSegmentCount += segmentCount;
+        this.snapshotFrame = null;
+        if (this.compacted.size() > this.maxBytes) {
+            this.rewrite();
+        }
+    }
+
+    /**
+     * Records segments that have just been sent to the room, in the order they were sent.
+     */
+    public void append(List<DrawEvent> segments) {
+        this.appendDrawBatch(DrawEventCodec.encodeDrawBatch(segments));
+    }
+
+    public boolean isEmpty() {
+        return this.getSegmentCount() == 0;
+    }
+
+    /**
+     * Number of segment records a snapshot would carry right now.
+     */
+    public int getSegmentCount() {
+        return this.compactedSegmentCount + this.tailSegmentCount;
+    }
+
+    /**
+     * The whole canvas as a {@code CANVAS_SNAPSHOT} frame, for sending. Read-only, and safe to
+     * read from any thread; the history never writes to a frame it has handed out.
+     */
+    public ByteBuffer snapshotFrame() {
+        if (this.snapshotFrame == null) {
+            this.snapshotFrame = ByteBuffer.wrap(this.encodeSnapshot()).asReadOnlyBuffer();
+        }
+        return this.snapshotFrame.duplicate();
+    }
+
+    /**
+     * Encodes the whole canvas as a {@code CANVAS_SNAPSHOT} frame on the heap.
+     */
+    public byte[] encodeSnapshot() {
+        byte[] header = DrawEventCodec.encodeCanvasSnapshotHeader(this.getSegmentCount());
+        byte[] frame = new byte[header.length + this.compacted.size() + this.tail.size()];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        this.compacted.copyTo(frame, header.length);
+        this.tail.copyTo(frame, header.length + this.compacted.size());
+        return frame;
+    }
+
+    /**
+     * Returns the history's storage to the pool. The history is empty afterwards.
+     */
+    public void release() {
+        this.compacted.release();
+        this.tail.release();
+        this.compactedSegmentCount = 0;
+        this.tailSegmentCount = 0;
+        this.rewrittenBytes = 0;
+        this.snapshotFrame = null;
+    }
+
+    /**
+     * Merges the tail and appends it to the compacted log, rewriting the log once it has doubled
+     * or gone over its cap.
+     */
+    void compact() {
+        if (this.tailSegmentCount == 0) {
+            return;
+        }
+
+        List<DrawEvent> merged = new ArrayList<>();
+        for (List<DrawEvent> stroke : groupByStroke(this.tail, this.tailSegmentCount).values()) {
+            mergeStroke(stroke, merged);
+        }
+
+        byte[] mergedRecords = DrawEventCodec.encodeSegmentRecords(merged);
+        this.compacted.append(mergedRecords, 0, mergedRecords.length);
+        this.compactedSegmentCount += merged.size();
+        this.tail.release();
+        this.tailSegmentCount = 0;
+
+        if (this.compacted.size() > this.maxBytes || this.compacted.size() >= 2 * this.rewrittenBytes) {
+            this.rewrite();
+        }
+    }
+
+    /**
+     * Rewrites the compacted log with every stroke merged whole, dropping the oldest strokes if
+     * the log is over its cap. The latest stroke is always kept.
+     */
+    private void rewrite() {
+        List<byte[]> strokeRecords = new ArrayList<>();
+        List<Integer> strokeSegmentCounts = new ArrayList<>();
+        int totalBytes = 0;
+        for (List<DrawEvent> stroke : groupByStroke(this.compacted, this.compactedSegmentCount).values()) {
+            List<DrawEvent> merged = new ArrayList<>();
+            mergeStroke(stroke, merged);
+            byte[] records = DrawEventCodec.encodeSegmentRecords(merged);
+            strokeRecords.add(records);
+            strokeSegmentCounts.add(merged.size());
+            totalBytes += records.length;
+        }
+
+        int first = 0;
+        if (totalBytes > this.maxBytes) {
+            int targetBytes = this.maxBytes / 4 * 3;
+            while (first < strokeRecords.size() - 1 && totalBytes > targetBytes) {
+                totalBytes -= strokeRecords.get(first).length;
+                first++;
+            }
+        }
+
+        this.compacted.release();
+        this.compactedSegmentCount = 0;
+        for (int i = first; i < strokeRecords.size(); i++) {
+            byte[] records = strokeRecords.get(i);
+            this.compacted.append(records, 0, records.length);
+            this.compactedSegmentCount += strokeSegmentCounts.get(i);
+        }
+        this.rewrittenBytes = this.compacted.size();
+    }
+
+    /**
+     * Decodes a log's segment records and groups them by stroke, in order of each stroke's first
+     * segment.
+     */
+    private static Map<StrokeKey, List<DrawEvent>> groupByStroke(StrokeLog log, int segmentCount) {
+        byte[] records = new byte[log.size()];
+        log.copyTo(records, 0);
+        List<DrawEvent> segments = DrawEventCodec.decodeSegmentRecords(ByteBuffer.wrap(records), segmentCount);
+
+        Map<StrokeKey, List<DrawEvent>> strokes = new LinkedHashMap<>();
+        for (DrawEvent segment : segments) {
+            strokes.computeIfAbsent(new StrokeKey(segment.getDrawerSessionId(), segment.getStrokeId()), key -> new ArrayList<>())
+                    .add(segment);
+        }
+        return strokes;
+    }
+
+    /**
+     * Concatenates the points of one stroke's segments, split only where a segment would exceed
+     * {@link DrawEventCodec#MAX_POINTS_PER_EVENT}. The stroke keeps its start and end flags.
+     */
+    private static void mergeStroke(List<DrawEvent> stroke, List<DrawEvent> out) {
+        DrawEvent first = stroke.get(0);
+        DrawEvent last = stroke.get(stroke.size() - 1);
+
+        int coordinateCount = 0;
+        for (DrawEvent segment : stroke) {
+            coordinateCount += segment.getPoints().length;
+        }
+        int[] points = new int[coordinateCount];
+        int offset = 0;
+        for (DrawEvent segment : stroke) {
+            System.arraycopy(segment.getPoints(), 0, points, offset, segment.getPoints().length);
+            offset += segment.getPoints().length;
+        }
+
+        int maxCoordinates = DrawEventCodec.MAX_POINTS_PER_EVENT * 2;
+        int from = 0;
+        do {
+            int to = Math.min(points.length, from + maxCoordinates);
+            int flags = 0;
+            if (from == 0 && first.isStrokeStart()) {
+                flags |= DrawEvent.FLAG_STROKE_START;
+            }
+            if (to == points.length && last.isStrokeEnd()) {
+                flags |= DrawEvent.FLAG_STROKE_END;
+            }
+            out.add(new DrawEvent(first.getDrawerSessionId(), first.getStrokeId(), flags,
+                    first.getColor(), first.getWidth(), Arrays.copyOfRange(points, from, to)));
+            from = to;
+        } while (from < points.length);
+    }
+}
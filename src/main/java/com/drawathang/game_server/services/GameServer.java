@@ -1,24 +1,80 @@
 package com.drawathang.game_server.services;
 
+import com.drawathang.game_server.cluster.ClusterBus;
+import com.drawathang.game_server.cluster.ClusterMessage;
+import com.drawathang.game_server.cluster.HashRing;
+import com.drawathang.game_server.cluster.InProcessClusterBus;
 import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.communication.RemoteDelivery;
+import com.drawathang.game_server.journal.RoomJournal;
 import com.drawathang.game_server.services.domain.DrawEvent;
 import com.drawathang.game_server.services.domain.Session;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * GameServer manages active sessions and game state.
  * Serving as the main class/entrypoint to our business logic .
+ * <p>
+ * Several game servers can run as one cluster over a {@link ClusterBus}. Players stay connected
+ * to the node they reached, and its lobby. Each room lives on one node, picked by consistent
+ * hashing of the room id when the room is created; commands from players on other nodes are
+ * forwarded to it, and its broadcasts are forwarded back. Presence and the room directory are
+ * replicated to every node. Without a bus the server runs on its own and nothing is forwarded.
  */
 @Service // Another bean that spring boot manages
 public class GameServer implements IGameServer {
 
-    private final RoomService roomService = new RoomService();
+    /**
+     * Node id of a server running on its own.
+     */
+    public static final String STANDALONE_NODE_ID = "standalone";
+
+    private final RoomService roomService;
+
+    private final ClusterBus clusterBus;
+
+    /**
+     * Outbound queues of the sessions connected to this node, and routes to the other nodes for
+     * their sessions in rooms owned here.
+     */
+    private final BroadcastService broadcastService = new BroadcastService();
+
+    /**
+     * Places new rooms on nodes.
+     */
+    private final HashRing hashRing;
+
+    /**
+     * A local session in a room owned by another node.
+     */
+    private record RemoteMembership(String ownerNodeId, Session session) {
+    }
+
+    /**
+     * Local sessions whose rooms are owned by other nodes. Their room commands are forwarded.
+     */
+    private final ConcurrentHashMap<String, RemoteMembership> remoteMemberships = new ConcurrentHashMap<>();
+
+    /**
+     * How to reach each other node, for its sessions in rooms owned here.
+     */
+    private final ConcurrentHashMap<String, RemoteDelivery> remoteDeliveries = new ConcurrentHashMap<>();
+
+    /**
+     * Versioned room list shown to sessions in the lobby.
+     */
+    private final RoomDirectory roomDirectory;
 
     /**
      * Stores active sessions in the lobby by their session IDs.
@@ -26,53 +82,251 @@ public class GameServer implements IGameServer {
     private final ConcurrentHashMap<String, Session> sessionsInLobby = new ConcurrentHashMap<>();
 
     /**
-     * Stores count of sessions on the game server.
+     * Bits of {@link #presence} holding the session count.
      */
-    private final AtomicInteger totalSessionsCount = new AtomicInteger(0);
+    private static final int SESSIONS_COUNT_BITS = 24;
+    private static final long SESSIONS_COUNT_MASK = (1L << SESSIONS_COUNT_BITS) - 1;
 
     /**
-     * Atomic counter for generating unique event timestamps.
+     * Most sessions the packed count can hold, across the cluster. Joins beyond it are refused
+     * rather than wrapping the count.
      */
-    private final AtomicLong atomicTimestamp = new AtomicLong(0);
+    public static final int MAX_SESSIONS = (int) SESSIONS_COUNT_MASK;
 
+    /**
+     * Count of sessions on the game server and the presence event timestamp, packed in one word:
+     * the timestamp in the high bits and the count in the low {@value #SESSIONS_COUNT_BITS} bits.
+     * A single CAS updates both, so every join and leave gets a unique timestamp paired with the
+     * exact count at that timestamp, without a lock. Presence broadcasts from concurrent joins and
+     * leaves may reach a client in either order; clients keep the count with the highest timestamp.
+     */
+    private final AtomicLong presence = new AtomicLong(0);
 
-    public void joinServer(String sessionId) {
-        synchronized (sessionsInLobby) {
+    /**
+     * @param drawFlushHz            How many times per second each room flushes its buffered draw events.
+     * @param roomShards             Number of single-threaded room shards, or 0 for one per core.
+     * @param guessHistory           How many of the latest guesses each room keeps.
+     * @param wordLists              Resource pattern matching the word lists, laid out as {@code <locale>/<category>.txt}.
+     * @param wordLocale             Locale that rooms draw words from.
+     * @param journalDirectory       Where rooms are journaled so they survive a restart; empty to keep rooms in memory only.
+     * @param journalCommitMillis    How often journaled changes are written and forced to disk.
+     * @param journalSnapshotSeconds How often the journal is compacted into a snapshot.
+     * @param pickSeconds            How long a drawer has to pick a word.
+     * @param drawSeconds            How long a drawer has to draw it.
+     * @param hints                  How many letters of the word are revealed while it is drawn.
+     * @param intermissionSeconds    The break between rounds.
+     * @param clusterBus             The bus to the other nodes, if a {@link ClusterBus} bean is defined.
+     */
+    @Autowired
+    public GameServer(@Value("${game-server.draw.flush-hz:30}") int drawFlushHz,
+                      @Value("${game-server.rooms.shards:0}") int roomShards,
+                      @Value("${game-server.rooms.guess-history:" + GuessHistory.DEFAULT_CAPACITY + "}") int guessHistory,
+                      @Value("${game-server.words.location:" + WordBank.DEFAULT_LOCATION + "}") String wordLists,
+                      @Value("${game-server.words.locale:" + WordBank.DEFAULT_LOCALE + "}") String wordLocale,
+                      @Value("${game-server.journal.directory:}") String journalDirectory,
+                      @Value("${game-server.journal.commit-millis:" + RoomJournal.DEFAULT_COMMIT_MILLIS + "}") long journalCommitMillis,
+                      @Value("${game-server.journal.snapshot-seconds:" + RoomJournal.DEFAULT_SNAPSHOT_SECONDS + "}") long journalSnapshotSeconds,
+                      @Value("${game-server.rounds.pick-seconds:" + RoundTimings.DEFAULT_PICK_SECONDS + "}") long pickSeconds,
+                      @Value("${game-server.rounds.draw-seconds:" + RoundTimings.DEFAULT_DRAW_SECONDS + "}") long drawSeconds,
+                      @Value("${game-server.rounds.hints:" + RoundTimings.DEFAULT_HINTS + "}") int hints,
+                      @Value("${game-server.rounds.intermission-seconds:" + RoundTimings.DEFAULT_INTERMISSION_SECONDS + "}") long intermissionSeconds,
+                      ObjectProvider<ClusterBus> clusterBus) {
+        this(drawFlushHz, roomShards, guessHistory, wordLists, wordLocale,
+                clusterBus.getIfAvailable(() -> InProcessClusterBus.standalone(STANDALONE_NODE_ID)),
+                journalDirectory.isBlank() ? RoomJournal.DISABLED
+                        : RoomJournal.open(Path.of(journalDirectory), journalCommitMillis, journalSnapshotSeconds, guessHistory),
+                RoundTimings.ofSeconds(pickSeconds, drawSeconds, hints, intermissionSeconds));
+    }
+
+    /**
+     * A game server on its own.
+     */
+    public GameServer(int drawFlushHz, int roomShards, int guessHistory, String wordLists, String wordLocale) {
+        this(drawFlushHz, roomShards, guessHistory, wordLists, wordLocale, InProcessClusterBus.standalone(STANDALONE_NODE_ID));
+    }
+
+    /**
+     * A game server on its own, with rounds of the given length.
+     */
+    public GameServer(int drawFlushHz, int roomShards, int guessHistory, String wordLists, String wordLocale,
+                      RoundTimings roundTimings) {
+        this(drawFlushHz, roomShards, guessHistory, wordLists, wordLocale, InProcessClusterBus.standalone(STANDALONE_NODE_ID),
+                RoomJournal.DISABLED, roundTimings);
+    }
 
-            // MAIN TRANSACTION:
-            // Create a new session for the player and store it
-            Session session = new Session(sessionId);
-            sessionsInLobby.put(sessionId, session);
+    /**
+     * A game server that is one node of a cluster. Every node must already be on the bus.
+     */
+    public GameServer(int drawFlushHz, int roomShards, int guessHistory, String wordLists, String wordLocale,
+                      ClusterBus clusterBus) {
+        this(drawFlushHz, roomShards, guessHistory, wordLists, wordLocale, clusterBus, RoomJournal.DISABLED);
+    }
+
+    /**
+     * A game server that journals its rooms, and starts with the rooms already in the journal.
+     */
+    public GameServer(int drawFlushHz, int roomShards, int guessHistory, String wordLists, String wordLocale,
+                      ClusterBus clusterBus, RoomJournal journal) {
+        this(drawFlushHz, roomShards, guessHistory, wordLists, wordLocale, clusterBus, journal, RoundTimings.DEFAULT);
+    }
 
-            // BROADCAST THE UPDATE:
-            long timestamp = atomicTimestamp.incrementAndGet();
-            List<String> recipients = List.copyOf(sessionsInLobby.keySet());
+    public GameServer(int drawFlushHz, int roomShards, int guessHistory, String wordLists, String wordLocale,
+                      ClusterBus clusterBus, RoomJournal journal, RoundTimings roundTimings) {
+        this.clusterBus = clusterBus;
+        this.hashRing = new HashRing(clusterBus.getNodeIds());
+        this.roomDirectory = new RoomDirectory(this.broadcastService, sessionsInLobby::keySet, clusterBus.getLocalNodeId(),
+                clusterBus::publish);
+        this.roomService = new RoomService(roomDirectory, this.broadcastService, drawFlushHz, roomShards, guessHistory,
+                WordBank.load(wordLists, wordLocale), journal, roundTimings);
+        clusterBus.subscribe(this::onClusterMessage);
+    }
 
-            BroadcastService.broadcast(recipients, Map.of(
-                    "timestamp", timestamp,
-                    "event", "USER_JOINED",
-                    "sessionsCount", totalSessionsCount.incrementAndGet()
-            ));
+    /**
+     * Stops the rooms and leaves the cluster bus.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.clusterBus.close();
+        this.roomService.shutdown();
+    }
+
+    /**
+     * Where sessions connected to this node are registered for outbound messages.
+     */
+    public BroadcastService getBroadcastService() {
+        return this.broadcastService;
+    }
+
+    public void joinServer(String sessionId) {
+        // MAIN TRANSACTION:
+        // Create a new session for the player and store it
+        Session session = new Session(sessionId);
+        if (sessionsInLobby.putIfAbsent(sessionId, session) != null) {
+            return;
         }
+        long updatedPresence;
+        try {
+            updatedPresence = updatePresence(1);
+        } catch (IllegalStateException e) {
+            sessionsInLobby.remove(sessionId, session);
+            throw e;
+        }
+        this.clusterBus.publish(new ClusterMessage.PresenceChanged(1));
 
+        // BROADCAST THE UPDATE:
+        // Everyone else hears about the new session; the new session also gets the room list.
+        Map<String, Object> userJoined = presenceEvent("USER_JOINED", updatedPresence);
+        this.broadcastService.broadcastExcept(sessionsInLobby.keySet(), sessionId, userJoined);
+        roomDirectory.sendSnapshot(sessionId, userJoined);
     }
 
     public void leaveServer(String sessionId) {
-        synchronized (sessionsInLobby) {
+        // MAIN TRANSACTION:
+        // Remove the session
+        if (sessionsInLobby.remove(sessionId) == null) {
+            return;
+        }
+        this.sessionLeft();
+    }
+
+    /**
+     * Drops every trace of a session whose connection is gone, wherever it is: the lobby, or a
+     * room, which is reclaimed if the session was its last player. Safe to call more than once.
+     */
+    public void disconnect(String sessionId) {
+        if (sessionsInLobby.remove(sessionId) != null) {
+            this.sessionLeft();
+            return;
+        }
+        RemoteMembership membership = this.remoteMemberships.remove(sessionId);
+        if (membership != null) {
+            // The owner's answer finds no membership left and is ignored.
+            this.clusterBus.send(membership.ownerNodeId(), new ClusterMessage.LeaveRoom(sessionId));
+            this.sessionLeft();
+            return;
+        }
+        // Not in the lobby, so either in a room or never joined. The room hands the session back
+        // once it is out; it does not return to the lobby.
+        this.roomService.leaveRoom(sessionId, session -> this.sessionLeft());
+    }
+
+    /**
+     * Counts a session off the server and tells the lobby and the other nodes.
+     */
+    private void sessionLeft() {
+        long updatedPresence = updatePresence(-1);
+        this.clusterBus.publish(new ClusterMessage.PresenceChanged(-1));
 
-            // MAIN TRANSACTION:
-            // Remove the session
-            sessionsInLobby.remove(sessionId);
-            totalSessionsCount.decrementAndGet();
+        // BROADCAST THE UPDATE:
+        this.broadcastService.broadcast(sessionsInLobby.keySet(), presenceEvent("USER_LEFT", updatedPresence));
+    }
 
-            // BROADCAST THE UPDATE:
-            List<String> recipients = List.copyOf(sessionsInLobby.keySet());
+    private static Map<String, Object> presenceEvent(String event, long updatedPresence) {
+        return Map.of(
+                "timestamp", updatedPresence >>> SESSIONS_COUNT_BITS,
+                "event", event,
+                "sessionsCount", updatedPresence & SESSIONS_COUNT_MASK
+        );
+    }
 
-            BroadcastService.broadcast(recipients, Map.of(
-                    "timestamp", atomicTimestamp.incrementAndGet(),
-                    "event", "USER_LEFT",
-                    "sessionsCount", totalSessionsCount.get()
-            ));
+    /**
+     * Number of sessions on the game server, across every node of the cluster.
+     */
+    public int getSessionsCount() {
+        return (int) (presence.get() & SESSIONS_COUNT_MASK);
+    }
+
+    /**
+     * Number of sessions in the lobby, not in any room.
+     */
+    public int getLobbySessionsCount() {
+        return sessionsInLobby.size();
+    }
+
+    /**
+     * Number of open rooms.
+     */
+    public int getRoomsCount() {
+        return roomService.getRoomsCount();
+    }
+
+    public long getJournalPendingCount() {
+        return roomService.getJournalPendingCount();
+    }
+
+    public int getPendingTimersCount() {
+        return roomService.getPendingTimersCount();
+    }
+
+    /**
+     * Direct memory holding canvas history, in use and pooled for reuse.
+     */
+    public long getCanvasBytesInUse() {
+        return roomService.getStrokeSegmentPool().getBytesInUse();
+    }
+
+    public long getCanvasBytesPooled() {
+        return roomService.getStrokeSegmentPool().getBytesPooled();
+    }
+
+    /**
+     * Atomically adds {@code delta} to the session count and advances the presence timestamp.
+     *
+     * @return The packed presence value after the update.
+     * @throws IllegalStateException if the count would go below zero or above {@link #MAX_SESSIONS}.
+     */
+    private long updatePresence(int delta) {
+        while (true) {
+            long current = presence.get();
+            long timestamp = (current >>> SESSIONS_COUNT_BITS) + 1;
+            long sessionsCount = (current & SESSIONS_COUNT_MASK) + delta;
+            if (sessionsCount < 0 || sessionsCount > MAX_SESSIONS) {
+                throw new IllegalStateException("Session count out of range: " + sessionsCount);
+            }
+            long updated = (timestamp << SESSIONS_COUNT_BITS) | sessionsCount;
+            if (presence.compareAndSet(current, updated)) {
+                return updated;
+            }
         }
     }
 
@@ -80,70 +334,218 @@ public class GameServer implements IGameServer {
         Session session = this.sessionsInLobby.get(sessionId);
         session.setUsername(username);
 
-        BroadcastService.broadcast(List.of(session.getSessionId()), Map.of(
+        this.broadcastService.broadcast(List.of(session.getSessionId()), Map.of(
                 "event", "USERNAME_UPDATED",
                 "username", username
         ));
     }
 
+    /**
+     * Moves a session from the lobby into a new room. A missing or blank name is ignored and the
+     * session stays in the lobby, so nothing reaches the room's shard half-formed.
+     */
     public void createRoom(String sessionId, String roomName) {
+        if (roomName == null || roomName.isBlank()) {
+            return;
+        }
         Session session = this.sessionsInLobby.remove(sessionId);
+        if (session == null) {
+            return;
+        }
 
-        this.roomService.createRoom(session, roomName);
-
-        // Collect room info for broadcast
-        List<Map<String, Object>> roomsInfo = roomService.getRoomsInfo();
-
-        List<String> recipients = List.copyOf(sessionsInLobby.keySet());
-
-        BroadcastService.broadcast(recipients, Map.of(
-                "timestamp", this.atomicTimestamp.incrementAndGet(),
-                "event", "ROOM_CREATED",
-                "sessionsCount", totalSessionsCount.get(),
-                "roomsInfo", roomsInfo
-        ));
+        // The room directory sends the lobby a ROOMS_DELTA for the new room.
+        String roomId = UUID.randomUUID().toString();
+        String ownerNodeId = this.hashRing.ownerOf(roomId);
+        if (this.isLocal(ownerNodeId)) {
+            this.roomService.createRoom(session, roomId, roomName);
+        } else {
+            this.remoteMemberships.put(sessionId, new RemoteMembership(ownerNodeId, session));
+            this.clusterBus.send(ownerNodeId, new ClusterMessage.CreateRoom(sessionId, session.getUsername(), roomId, roomName));
+        }
+        this.leaveIfDisconnected(sessionId);
     }
 
     public void joinRoom(String sessionId, String roomId) {
         Session session = this.sessionsInLobby.remove(sessionId);
-        this.roomService.joinRoom(session, roomId);
-
-        // Collect room info for broadcast
-        List<Map<String, Object>> roomsInfo = roomService.getRoomsInfo();
+        if (session == null) {
+            return;
+        }
 
-        List<String> recipients = List.copyOf(sessionsInLobby.keySet());
+        // The room directory sends the lobby a ROOMS_DELTA with the new participant count.
+        // If the room is gone by the time the join runs, the session goes back to the lobby.
+        String ownerNodeId = roomId == null ? null : this.roomDirectory.getOwnerNodeId(roomId);
+        if (ownerNodeId == null || this.isLocal(ownerNodeId)) {
+            this.roomService.joinRoom(session, roomId, this::returnToLobby);
+        } else {
+            this.remoteMemberships.put(sessionId, new RemoteMembership(ownerNodeId, session));
+            this.clusterBus.send(ownerNodeId, new ClusterMessage.JoinRoom(sessionId, session.getUsername(), roomId));
+        }
+        this.leaveIfDisconnected(sessionId);
+    }
 
-        BroadcastService.broadcast(recipients, Map.of(
-                "timestamp", this.atomicTimestamp.incrementAndGet(),
-                "event", "ROOMS_UPDATE",
-                "sessionsCount", totalSessionsCount.get(),
-                "roomsInfo", roomsInfo
-        ));
+    /**
+     * Cleans up after a connection that closed while its session was between the lobby and a
+     * room, so its disconnect found it in neither. Called once the session's room is recorded:
+     * the connection is unregistered before its disconnect runs, so either the disconnect finds
+     * the room or this check finds the connection gone. Cleaning up twice is harmless.
+     */
+    private void leaveIfDisconnected(String sessionId) {
+        if (!this.broadcastService.isRegistered(sessionId)) {
+            this.disconnect(sessionId);
+        }
     }
 
     public void leaveRoom(String sessionId) {
-        Session session = roomService.leaveRoom(sessionId);
+        RemoteMembership membership = this.remoteMemberships.get(sessionId);
+        if (membership != null) {
+            // The owner answers with ReturnedToLobby once the session is out.
+            this.clusterBus.send(membership.ownerNodeId(), new ClusterMessage.LeaveRoom(sessionId));
+            return;
+        }
+        this.roomService.leaveRoom(sessionId, this::returnToLobby);
+    }
+
+    /**
+     * Puts a session back in the lobby. The session missed every directory change while it was
+     * away, so it starts over from a snapshot.
+     */
+    private void returnToLobby(Session session) {
+        String sessionId = session.getSessionId();
         this.sessionsInLobby.put(sessionId, session);
+        // The connection may have closed while the session was between the lobby and a room, and
+        // its disconnect found it in neither. Checking after the put means either the disconnect
+        // or this check sees the session in the lobby.
+        if (!this.broadcastService.isRegistered(sessionId)) {
+            if (this.sessionsInLobby.remove(sessionId, session)) {
+                this.sessionLeft();
+            }
+            return;
+        }
+        this.roomDirectory.sendSnapshot(sessionId);
+    }
 
-        List<String> recipients = List.copyOf(sessionsInLobby.keySet());
+    public void syncRooms(String sessionId, long roomsVersion) {
+        this.roomDirectory.sync(sessionId, roomsVersion);
+    }
+
+    public void submitGuess(String sessionId, String guess) {
+        if (!this.forwardToRoomOwner(sessionId, ClusterMessage.RoomAction.Action.SUBMIT_GUESS, guess)) {
+            roomService.submitGuess(sessionId, guess);
+        }
+    }
 
-        // Collect room info for broadcast
-        List<Map<String, Object>> roomsInfo = roomService.getRoomsInfo();
+    public void startGame(String sessionId) {
+        if (!this.forwardToRoomOwner(sessionId, ClusterMessage.RoomAction.Action.START_GAME, null)) {
+            roomService.startGame(sessionId);
+        }
+    }
 
-        BroadcastService.broadcast(recipients, Map.of(
-                "timestamp", this.atomicTimestamp.incrementAndGet(),
-                "event", "ROOMS_UPDATE",
-                "sessionsCount", totalSessionsCount.get(),
-                "roomsInfo", roomsInfo
-        ));
+    public void pickWord(String sessionId, String word) {
+        if (!this.forwardToRoomOwner(sessionId, ClusterMessage.RoomAction.Action.PICK_WORD, word)) {
+            roomService.pickWord(sessionId, word);
+        }
     }
 
-    public void submitGuess(String sessionId, String guess) {
-        roomService.submitGuess(sessionId, guess);
+    public void requestRoomSnapshot(String sessionId) {
+        if (!this.forwardToRoomOwner(sessionId, ClusterMessage.RoomAction.Action.REQUEST_ROOM_SNAPSHOT, null)) {
+            roomService.sendRoomSnapshot(sessionId);
+        }
     }
 
     public void submitDrawEvent(String sessionId, DrawEvent drawEvent) {
+        RemoteMembership membership = this.remoteMemberships.get(sessionId);
+        if (membership != null) {
+            this.clusterBus.send(membership.ownerNodeId(), new ClusterMessage.SubmitDrawEvent(sessionId, drawEvent));
+            return;
+        }
         roomService.submitDrawEvent(sessionId, drawEvent);
     }
 
+    /**
+     * Sends a room command to the node owning the session's room, if that is another node.
+     *
+     * @return false if the command is for this node.
+     */
+    private boolean forwardToRoomOwner(String sessionId, ClusterMessage.RoomAction.Action action, String argument) {
+        RemoteMembership membership = this.remoteMemberships.get(sessionId);
+        if (membership == null) {
+            return false;
+        }
+        this.clusterBus.send(membership.ownerNodeId(), new ClusterMessage.RoomAction(sessionId, action, argument));
+        return true;
+    }
+
+    private boolean isLocal(String nodeId) {
+        return nodeId.equals(this.clusterBus.getLocalNodeId());
+    }
+
+    /**
+     * Handles a message from another node. Runs on the bus's inbound thread, one message at a time.
+     */
+    private void onClusterMessage(String fromNodeId, ClusterMessage message) {
+        switch (message) {
+            case ClusterMessage.PresenceChanged changed -> {
+                long updatedPresence = updatePresence(changed.delta());
+                this.broadcastService.broadcast(sessionsInLobby.keySet(),
+                        presenceEvent(changed.delta() > 0 ? "USER_JOINED" : "USER_LEFT", updatedPresence));
+            }
+            case ClusterMessage.RoomListed listed ->
+                    this.roomDirectory.remoteRoomAdded(fromNodeId, listed.roomId(), listed.roomName(), listed.participantCount());
+            case ClusterMessage.RoomUnlisted unlisted -> this.roomDirectory.remoteRoomRemoved(unlisted.roomId());
+            case ClusterMessage.ParticipantCountChanged changed ->
+                    this.roomDirectory.remoteParticipantCountChanged(changed.roomId(), changed.participantCount());
+            case ClusterMessage.CreateRoom create -> this.roomService.createRoom(
+                    this.hostRemoteSession(fromNodeId, create.sessionId(), create.username()), create.roomId(), create.roomName());
+            case ClusterMessage.JoinRoom join -> this.roomService.joinRoom(
+                    this.hostRemoteSession(fromNodeId, join.sessionId(), join.username()), join.roomId(),
+                    session -> this.sendBackToLobby(fromNodeId, session.getSessionId()));
+            case ClusterMessage.LeaveRoom leave -> {
+                // The player's node waits for ReturnedToLobby, so it is sent even if the room
+                // went away first. A second answer finds no membership and is ignored.
+                boolean inRoom = this.roomService.leaveRoom(leave.sessionId(),
+                        session -> this.sendBackToLobby(fromNodeId, session.getSessionId()),
+                        () -> this.sendBackToLobby(fromNodeId, leave.sessionId()));
+                if (!inRoom) {
+                    this.sendBackToLobby(fromNodeId, leave.sessionId());
+                }
+            }
+            case ClusterMessage.ReturnedToLobby returned -> {
+                RemoteMembership membership = this.remoteMemberships.remove(returned.sessionId());
+                if (membership != null) {
+                    this.returnToLobby(membership.session());
+                }
+            }
+            case ClusterMessage.RoomAction action -> {
+                String sessionId = action.sessionId();
+                switch (action.action()) {
+                    case SUBMIT_GUESS -> this.roomService.submitGuess(sessionId, action.argument());
+                    case START_GAME -> this.roomService.startGame(sessionId);
+                    case PICK_WORD -> this.roomService.pickWord(sessionId, action.argument());
+                    case REQUEST_ROOM_SNAPSHOT -> this.roomService.sendRoomSnapshot(sessionId);
+                }
+            }
+            case ClusterMessage.SubmitDrawEvent draw -> this.roomService.submitDrawEvent(draw.sessionId(), draw.drawEvent());
+            case ClusterMessage.Deliver deliver ->
+                    this.broadcastService.deliverLocally(deliver.recipients(), deliver.payload(), deliver.binary(), deliver.messageClass());
+        }
+    }
+
+    /**
+     * A player connected to another node, entering a room owned here. Broadcasts to the player
+     * are forwarded to that node until the player is out of the room.
+     */
+    private Session hostRemoteSession(String nodeId, String sessionId, String username) {
+        Session session = new Session(sessionId);
+        session.setUsername(username);
+        this.broadcastService.registerRemoteSession(sessionId, this.remoteDeliveries.computeIfAbsent(nodeId,
+                node -> (recipients, payload, binary, messageClass) ->
+                        this.clusterBus.send(node, new ClusterMessage.Deliver(recipients, payload, binary, messageClass))));
+        return session;
+    }
+
+    private void sendBackToLobby(String nodeId, String sessionId) {
+        this.broadcastService.unregisterRemoteSession(sessionId);
+        this.clusterBus.send(nodeId, new ClusterMessage.ReturnedToLobby(sessionId));
+    }
+
 }
@@ -0,0 +1,151 @@
+package com.drawathang.game_server.services;
+
+import java.util.Arrays;
+
+/**
+ * Judges guesses against the current word.
+ * <p>
+ * Guesses and the word are compared in normalized form: letters and digits only, lower-cased, so
+ * {@code "Ice-Cream"}, {@code "ice cream"} and {@code "icecream"} are the same guess. The word is
+ * normalized once when it is set; each guess is normalized into a scratch buffer while it is
+ * read, and given up on as soon as it is too long to be close. A guess that is not an exact
+ * match is checked for a small edit distance, computed only within a band around the diagonal
+ * and abandoned once every cell exceeds the limit.
+ * <p>
+ * Evaluating a guess allocates nothing. The buffers are reused, so an evaluator belongs to one
+ * room and is only touched from the room's shard.
+ */
+public class GuessEvaluator {
+
+    public enum Verdict {
+        WRONG,
+        /**
+         * Within a typo or two of the word.
+         */
+        CLOSE,
+        CORRECT
+    }
+
+    private char[] answer = new char[0];
+    private int maxDistance = 0;
+
+    /**
+     * Normalized guess; one slot longer than the longest guess that can still be close.
+     */
+    private char[] guess = new char[0];
+
+    /**
+     * Two rows of the edit distance table, swapped after each guess character.
+     */
+    private int[] previousRow = new int[1];
+    private int[] currentRow = new int[1];
+
+    /**
+     * Sets the word to guess, or clears it with {@code null}.
+     */
+    public void setAnswer(String word) {
+        if (word == null) {
+            this.answer = new char[0];
+            this.maxDistance = 0;
+            return;
+        }
+
+        char[] normalized = new char[word.length()];
+        int length = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized[length++] = Character.toLowerCase(c);
+            }
+        }
+        this.answer = Arrays.copyOf(normalized, length);
+        this.maxDistance = closeDistanceFor(length);
+        this.guess = new char[length + this.maxDistance];
+        this.previousRow = new int[length + 1];
+        this.currentRow = new int[length + 1];
+    }
+
+    public boolean hasAnswer() {
+        return this.answer.length > 0;
+    }
+
+    /**
+     * How many edits still count as close. Short words get no leeway, or every guess would be close.
+     */
+    static int closeDistanceFor(int answerLength) {
+        if (answerLength < 4) {
+            return 0;
+        }
+        return answerLength < 8 ? 1 : 2;
+    }
+
+    public Verdict evaluate(String text) {
+        if (text == null || !this.hasAnswer()) {
+            return Verdict.WRONG;
+        }
+
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            if (length == this.guess.length) {
+                // Too long to be within reach of the word.
+                return Verdict.WRONG;
+            }
+            this.guess[length++] = Character.toLowerCase(c);
+        }
+
+        if (length == this.answer.length && Arrays.equals(this.guess, 0, length, this.answer, 0, length)) {
+            return Verdict.CORRECT;
+        }
+        if (this.maxDistance == 0 || this.answer.length - length > this.maxDistance) {
+            return Verdict.WRONG;
+        }
+        return this.isWithinMaxDistance(length) ? Verdict.CLOSE : Verdict.WRONG;
+    }
+
+    /**
+     * Levenshtein distance between the normalized guess and the word, bounded by {@link #maxDistance}.
+     * Cells farther than the bound from the diagonal can never lead back under it, so each row only
+     * fills the band around the diagonal; cells just outside the band are capped at bound + 1.
+     */
+    private boolean isWithinMaxDistance(int guessLength) {
+        int bound = this.maxDistance;
+        int over = bound + 1;
+        int answerLength = this.answer.length;
+        int[] previous = this.previousRow;
+        int[] current = this.currentRow;
+
+        for (int j = 0; j <= answerLength; j++) {
+            previous[j] = Math.min(j, over);
+        }
+
+        for (int i = 1; i <= guessLength; i++) {
+            int from = Math.max(1, i - bound);
+            int to = Math.min(answerLength, i + bound);
+            current[from - 1] = from == 1 ? Math.min(i, over) : over;
+            int rowMin = current[from - 1];
+
+            char c = this.guess[i - 1];
+            for (int j = from; j <= to; j++) {
+                int substitute = previous[j - 1] + (this.answer[j - 1] == c ? 0 : 1);
+                int distance = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(distance, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < answerLength) {
+                current[to + 1] = over;
+            }
+            if (rowMin > bound) {
+                return false;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[answerLength] <= bound;
+    }
+}
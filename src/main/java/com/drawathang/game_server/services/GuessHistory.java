@@ -0,0 +1,67 @@
+package com.drawathang.game_server.services;
+
+import com.drawathang.game_server.services.domain.Guess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent guesses in a room, in a fixed-size ring.
+ * <p>
+ * The ring is allocated once with the room. Adding a guess overwrites the oldest one when the
+ * ring is full, so a chatty room costs the same memory as a quiet one and no guess ever copies
+ * the history. Owned by the room, and only touched from the room's shard.
+ */
+public class GuessHistory {
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private final Guess[] guesses;
+
+    /**
+     * Slot the next guess goes into.
+     */
+    private int next = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity How many guesses are kept; older ones are forgotten.
+     */
+    public GuessHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.guesses = new Guess[capacity];
+    }
+
+    public void add(Guess guess) {
+        this.guesses[this.next] = guess;
+        this.next = (this.next + 1) % this.guesses.length;
+        if (this.size < this.guesses.length) {
+            this.size++;
+        }
+    }
+
+    /**
+     * Number of guesses currently kept.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.guesses.length;
+    }
+
+    /**
+     * The latest {@code k} guesses, or all of them if fewer are kept, oldest first.
+     */
+    public List<Guess> last(int k) {
+        int count = Math.min(Math.max(k, 0), this.size);
+        List<Guess> latest = new ArrayList<>(count);
+        int start = this.next - count + this.guesses.length;
+        for (int i = 0; i < count; i++) {
+            latest.add(this.guesses[(start + i) % this.guesses.length]);
+        }
+        return latest;
+    }
+}
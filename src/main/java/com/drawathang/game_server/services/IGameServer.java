@@ -19,6 +19,13 @@ public interface IGameServer {
      */
     void leaveServer(String sessionId);
 
+    /**
+     * Cleans up after a player whose connection closed, whether they were in the lobby or a room.
+     *
+     * @param sessionId The session ID of the disconnected player.
+     */
+    void disconnect(String sessionId);
+
     void setUsername(String sessionId, String username);
 
     void createRoom(String sessionId, String roomName);
@@ -29,6 +36,36 @@ public interface IGameServer {
 
     void submitGuess(String sessionId, String guess);
 
+    /**
+     * Starts a game in the player's room. Only the room's host can start a game.
+     *
+     * @param sessionId The session ID of the player starting the game.
+     */
+    void startGame(String sessionId);
+
+    /**
+     * Picks the word to draw from the choices the drawer was offered.
+     *
+     * @param sessionId The session ID of the drawer.
+     * @param word      One of the offered words.
+     */
+    void pickWord(String sessionId, String word);
+
+    /**
+     * Sends the player the full state of the room they are in.
+     *
+     * @param sessionId The session ID of the player asking for the snapshot.
+     */
+    void requestRoomSnapshot(String sessionId);
+
+    /**
+     * Brings a lobby session's room list up to date.
+     *
+     * @param sessionId    The session ID of the player in the lobby.
+     * @param roomsVersion The last room directory version the player applied.
+     */
+    void syncRooms(String sessionId, long roomsVersion);
+
 //    void drawAction(String sessionId, DrawEvent drawEvent);
 
 //
@@ -50,9 +87,5 @@ public interface IGameServer {
 //    GameServerResponse submitGuess(String sessionId, String guess);
 //
 //    GameServerResponse submitDrawAction(String sessionId, DrawAction drawAction);
-//
-//    GameServerResponse startGame(String sessionId);
-//
-//    GameServerResponse pickWordToDraw(String sessionId, String word);
 
 }
\ No newline at end of file
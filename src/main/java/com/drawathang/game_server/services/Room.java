@@ -1,31 +1,207 @@
 package com.drawathang.game_server.services;
 
 import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.communication.OutboundMessageClass;
+import com.drawathang.game_server.journal.JournalRecord;
+import com.drawathang.game_server.journal.RoomJournal;
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import com.drawathang.game_server.services.domain.DrawEvent;
 import com.drawathang.game_server.services.domain.Guess;
 import com.drawathang.game_server.services.domain.Session;
+import com.drawathang.game_server.util.DrawEventCodec;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * State of one game room.
+ * <p>
+ * A room is owned by a single {@link RoomShard}: every method is called on that shard's thread,
+ * so the room's state is plain fields and collections with no locking.
+ */
 public class Room {
+    /**
+     * Upper bound on segments per flushed batch; anything beyond waits for the next tick.
+     */
+    static final int MAX_DRAW_BATCH_SIZE = 512;
+
+    /**
+     * Most guesses a room snapshot carries, however many the room keeps.
+     */
+    static final int SNAPSHOT_GUESSES = 50;
+
+    /**
+     * Words the drawer picks from at the start of a round.
+     */
+    static final int WORD_CHOICES = 3;
+
     private final String id;
     private final String name;
-    private final List<Session> players = new CopyOnWriteArrayList<>();
-    private final AtomicLong atomicTimestamp = new AtomicLong(0);
-    private final List<Guess> guesses = new CopyOnWriteArrayList<>();
+    /**
+     * Players by session id, in join order. Lookups and removal are O(1); iteration follows join
+     * order, which decides the next host and the drawing order.
+     */
+    private final LinkedHashMap<String, Session> players = new LinkedHashMap<>();
+
+    /**
+     * Read-only view of the players' session ids, handed straight to every broadcast: fan-out
+     * never copies the member list.
+     */
+    private final Set<String> recipients = Collections.unmodifiableSet(this.players.keySet());
+
+    /**
+     * Set once the room is dropped. Commands still queued for it are ignored.
+     */
+    private boolean released = false;
+    /**
+     * Incremented on every room event. Snapshots carry the current value so clients can
+     * line up the incremental events that follow.
+     */
+    private long sequence = 0;
+    private final GuessHistory guesses;
+
+    /**
+     * Judges guesses against the word being drawn; has no answer between rounds.
+     */
+    private final GuessEvaluator guessEvaluator = new GuessEvaluator();
+
+    /**
+     * Words for this room's rounds, in an order that does not repeat until the list runs out.
+     * Created on the first round.
+     */
+    private WordBank.Sampler wordSampler;
+
+    /**
+     * The shard the room's timers fire on, and how long each phase of a round lasts; set when
+     * a game starts.
+     */
+    private RoomShard shard;
+    private RoundTimings timings;
+
+    /**
+     * Rounds in the running game, or 0 when no game is running.
+     */
+    private int roundsInGame = 0;
+
+    /**
+     * Rounds started in the running game.
+     */
+    private int round = 0;
+
+    /**
+     * Players yet to draw in the running game, in join order. Leavers are taken out, so the turn
+     * passes to whoever is next, however the room has changed.
+     */
+    private final ArrayDeque<Session> drawOrder = new ArrayDeque<>();
+
+    /**
+     * The current round's drawer; null between rounds.
+     */
+    private Session drawer;
+
+    /**
+     * Words the drawer is choosing from; null once a word is picked.
+     */
+    private List<String> wordChoices;
+
+    /**
+     * The word being drawn, and what guessers see of it; null until the drawer picks.
+     */
+    private String word;
+    private char[] hint;
+
+    /**
+     * Letters in each word of the one being drawn, leaving out spaces and punctuation, which
+     * guessers need not type; empty until the drawer picks.
+     */
+    private List<Integer> wordLengths = List.of();
+
+    private final Set<String> guessedCorrectly = new HashSet<>();
+
+    /**
+     * Deadline of the current phase: word pick, drawing or intermission. Every timer callback also
+     * checks the round it was scheduled for, so one that fires as it is cancelled does nothing.
+     */
+    private TimerWheel.Timeout phaseTimer;
+    private TimerWheel.Timeout hintTimer;
     private Session host;
 
-    public Room(String name, Session host) {
-        this.id = UUID.randomUUID().toString();
+    /**
+     * Stroke segments received since the last flush, in arrival order.
+     */
+    private List<DrawEvent> pendingDrawEvents = new ArrayList<>();
+
+    /**
+     * True while the room is queued for the next draw flush.
+     */
+    private boolean drawFlushScheduled = false;
+
+    /**
+     * Arrival time of the oldest segment waiting to be flushed.
+     */
+    private long oldestPendingDrawNanos;
+
+    /**
+     * Everything flushed to the room so far, for players who join mid-round.
+     */
+    private final CanvasHistory canvas;
+
+    /**
+     * Where the room's guesses and canvas are recorded, so they survive a restart.
+     */
+    private final RoomJournal journal;
+
+    /**
+     * Where the room's players are registered for outbound messages.
+     */
+    private final BroadcastService broadcastService;
+
+    /**
+     * @param broadcastService  Where the room's players are registered.
+     * @param strokeSegmentPool Off-heap storage for the room's canvas history.
+     * @param guessRetention    How many of the latest guesses the room keeps.
+     */
+    public Room(String id, String name, Session host, BroadcastService broadcastService, StrokeSegmentPool strokeSegmentPool,
+                int guessRetention) {
+        this(id, name, host, broadcastService, strokeSegmentPool, guessRetention, RoomJournal.DISABLED);
+    }
+
+    public Room(String id, String name, Session host, BroadcastService broadcastService, StrokeSegmentPool strokeSegmentPool,
+                int guessRetention, RoomJournal journal) {
+        this(id, name, host, broadcastService, new CanvasHistory(strokeSegmentPool), new GuessHistory(guessRetention), journal);
+    }
+
+    /**
+     * A room brought back from the journal, with no players yet. Whoever joins first hosts it.
+     */
+    Room(String id, String name, BroadcastService broadcastService, CanvasHistory canvas, GuessHistory guesses,
+         RoomJournal journal) {
+        this(id, name, null, broadcastService, canvas, guesses, journal);
+    }
+
+    private Room(String id, String name, Session host, BroadcastService broadcastService, CanvasHistory canvas,
+                 GuessHistory guesses, RoomJournal journal) {
+        this.id = id;
         this.name = name;
-        this.players.add(host);
+        this.broadcastService = broadcastService;
+        this.canvas = canvas;
+        this.guesses = guesses;
+        this.journal = journal;
+        if (host != null) {
+            this.players.put(host.getSessionId(), host);
+        }
         this.host = host;
-
-        this.broadcastRoomUpdate();
     }
 
     public String getId() {
@@ -36,52 +212,458 @@ public class Room {
         return this.name;
     }
 
-    public List<Session> getPlayers() {
-        return this.players;
+    /**
+     * The players in join order, as a read-only view.
+     */
+    public Collection<Session> getPlayers() {
+        return Collections.unmodifiableCollection(this.players.values());
+    }
+
+    public int getPlayerCount() {
+        return this.players.size();
+    }
+
+    public boolean isReleased() {
+        return this.released;
     }
 
     public Session leave(String sessionId) {
-        Session removedPlayer = null;
+        Session removedPlayer = this.players.remove(sessionId);
+        if (removedPlayer == null) {
+            return null;
+        }
+        this.drawOrder.remove(removedPlayer);
+        this.guessedCorrectly.remove(sessionId);
 
-        for (Session player : players)
-            if (player.getSessionId().equals(sessionId)) {
-                players.remove(player);
-                removedPlayer = player;
-            }
-        this.broadcastRoomUpdate();
+        if (removedPlayer == this.host) {
+            this.host = this.players.isEmpty() ? null : this.players.values().iterator().next();
+        }
+
+        this.broadcastEvent(Map.of(
+                "event", "PLAYER_LEFT",
+                "sessionId", sessionId,
+                "hostSessionId", this.host == null ? "" : this.host.getSessionId()
+        ));
+        if (this.roundsInGame > 0 && this.players.size() < 2) {
+            this.endRound();
+            this.endGame();
+        } else if (removedPlayer == this.drawer || (this.word != null && this.everyoneGuessed())) {
+            // The last guesser still at it may be the one leaving.
+            this.endRound();
+        }
         return removedPlayer;
     }
 
     public void join(Session session) {
-        this.players.add(session);
+        this.broadcastEvent(Map.of(
+                "event", "PLAYER_JOINED",
+                "sessionId", session.getSessionId(),
+                "userName", session.getUsername()
+        ));
 
-        this.broadcastRoomUpdate();
+        this.players.put(session.getSessionId(), session);
+        if (this.host == null) {
+            // A restored room has no host until someone joins.
+            this.host = session;
+        }
+        this.sendSnapshot(session.getSessionId());
     }
 
+    /**
+     * Records a guess and shares it with the room.
+     * <p>
+     * A correct guess is announced without its text, so the word stays hidden from everyone else,
+     * and the round ends once every guesser has it. A close guess is shared as usual, and the
+     * guesser alone is told it was close. That hint is not room state, so it carries no sequence
+     * number.
+     */
     public void submitGuess(String sessionId, String guessText) {
         Session session = getSessionById(sessionId);
-        if (session != null) {
-            Guess guess = new Guess(sessionId, session.getUsername(), guessText);
-            this.guesses.add(guess);
+        if (session == null || session == this.drawer || this.guessedCorrectly.contains(sessionId)) {
+            // The drawer and those who have guessed know the word, so they sit the round out.
+            return;
+        }
+
+        GuessEvaluator.Verdict verdict = this.guessEvaluator.evaluate(guessText);
+        if (verdict == GuessEvaluator.Verdict.CORRECT) {
+            this.broadcastEvent(Map.of(
+                    "event", "GUESS_CORRECT",
+                    "sessionId", sessionId,
+                    "userName", session.getUsername()
+            ));
+            this.guessedCorrectly.add(sessionId);
+            if (this.everyoneGuessed()) {
+                this.endRound();
+            }
+            return;
+        }
+
+        Guess guess = new Guess(sessionId, session.getUsername(), guessText);
+        this.guesses.add(guess);
+        this.journal.append(new JournalRecord.GuessAdded(this.id, sessionId, guess.getUsername(), guessText));
+
+        this.broadcastEvent(Map.of(
+                "event", "GUESS_ADDED",
+                "sessionId", guess.getSessionId(),
+                "userName", guess.getUsername(),
+                "guess", guess.getGuess()
+        ));
+
+        if (verdict == GuessEvaluator.Verdict.CLOSE) {
+            this.broadcastService.broadcast(List.of(sessionId), Map.of(
+                    "event", "GUESS_CLOSE",
+                    "roomId", this.id,
+                    "guess", guessText
+            ));
         }
-        this.broadcastRoomUpdate();
     }
 
-    public Session getSessionById(String sessionId) {
-        for (Session session : this.players) {
-            if (session.getSessionId().equals(sessionId)) {
-                return session;
+    /**
+     * True once every player but the drawer has guessed the word.
+     */
+    private boolean everyoneGuessed() {
+        return this.guessedCorrectly.size() >= this.players.size() - 1;
+    }
+
+    /**
+     * Starts a game, if the host asks, no game is running and there is someone to guess.
+     * <p>
+     * A game is one round per player, each drawing in turn. Players who leave before their turn
+     * lose it, and players who join mid-game wait for the next one. Rounds move on by themselves:
+     * every deadline is a timer on the shared wheel, delivered back onto this room's shard.
+     */
+    void startGame(String sessionId, WordBank wordBank, RoundTimings timings, RoomShard shard) {
+        if (this.host == null || !this.host.getSessionId().equals(sessionId) || this.roundsInGame > 0
+                || this.players.size() < 2 || wordBank.size() == 0) {
+            return;
+        }
+        if (this.wordSampler == null) {
+            this.wordSampler = wordBank.newSampler();
+        }
+        this.shard = shard;
+        this.timings = timings;
+        this.roundsInGame = this.players.size();
+        this.round = 0;
+        this.drawOrder.clear();
+        this.drawOrder.addAll(this.players.values());
+
+        this.broadcastEvent(Map.of(
+                "event", "GAME_STARTED",
+                "rounds", this.roundsInGame
+        ));
+        this.startRound();
+    }
+
+    /**
+     * Starts the next round: the next drawer is offered words to pick from, everyone else hears
+     * who is drawing. The canvas starts blank.
+     */
+    private void startRound() {
+        this.round++;
+        this.drawer = this.drawOrder.poll();
+        this.wordChoices = new ArrayList<>(WORD_CHOICES);
+        for (int i = 0; i < WORD_CHOICES; i++) {
+            this.wordChoices.add(this.wordSampler.next());
+        }
+        this.guessedCorrectly.clear();
+        this.clearCanvas();
+
+        this.broadcastEvent(Map.of(
+                "event", "ROUND_STARTED",
+                "round", this.round,
+                "drawerSessionId", this.drawer.getSessionId(),
+                "pickSeconds", TimeUnit.MILLISECONDS.toSeconds(this.timings.pickMillis())
+        ));
+        this.broadcastService.broadcast(List.of(this.drawer.getSessionId()), Map.of(
+                "event", "WORD_CHOICES",
+                "roomId", this.id,
+                "round", this.round,
+                "words", this.wordChoices
+        ));
+
+        int round = this.round;
+        this.phaseTimer = this.shard.schedule(() -> this.onPickTimeout(round), this.timings.pickMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The drawer picks one of the offered words.
+     */
+    public void pickWord(String sessionId, String word) {
+        if (this.wordChoices == null || this.drawer == null || !this.drawer.getSessionId().equals(sessionId)
+                || !this.wordChoices.contains(word)) {
+            return;
+        }
+        this.startDrawing(word);
+    }
+
+    private void onPickTimeout(int round) {
+        if (round == this.round && this.wordChoices != null) {
+            this.startDrawing(this.wordChoices.get(0));
+        }
+    }
+
+    private void startDrawing(String word) {
+        this.cancelTimers();
+        this.wordChoices = null;
+        this.setWord(word);
+        this.hint = new char[word.length()];
+        for (int i = 0; i < word.length(); i++) {
+            this.hint[i] = Character.isLetterOrDigit(word.charAt(i)) ? '_' : word.charAt(i);
+        }
+        this.wordLengths = letterCounts(word);
+
+        this.broadcastEvent(Map.of(
+                "event", "DRAWING_STARTED",
+                "round", this.round,
+                "drawerSessionId", this.drawer.getSessionId(),
+                "hint", new String(this.hint),
+                "wordLengths", this.wordLengths,
+                "drawSeconds", TimeUnit.MILLISECONDS.toSeconds(this.timings.drawMillis())
+        ));
+        this.broadcastService.broadcast(List.of(this.drawer.getSessionId()), Map.of(
+                "event", "WORD_TO_DRAW",
+                "roomId", this.id,
+                "round", this.round,
+                "word", word
+        ));
+
+        int round = this.round;
+        this.phaseTimer = this.shard.schedule(() -> this.onDrawTimeout(round), this.timings.drawMillis(), TimeUnit.MILLISECONDS);
+        this.scheduleHint(1);
+    }
+
+    /**
+     * Letters and digits in each space-separated word, so "ice cream" is [3, 5], not 9.
+     */
+    static List<Integer> letterCounts(String word) {
+        List<Integer> counts = new ArrayList<>();
+        int letters = 0;
+        for (int i = 0; i <= word.length(); i++) {
+            if (i == word.length() || Character.isWhitespace(word.charAt(i))) {
+                if (letters > 0) {
+                    counts.add(letters);
+                }
+                letters = 0;
+            } else if (Character.isLetterOrDigit(word.charAt(i))) {
+                letters++;
             }
         }
-        return null;
+        return List.copyOf(counts);
     }
 
-    public void broadcastRoomUpdate() {
-        List<String> recipients = players.stream()
-                .map(Session::getSessionId) // Extract session IDs
-                .collect(Collectors.toList());
+    /**
+     * Hints are spread evenly over the draw time.
+     */
+    private void scheduleHint(int hintNumber) {
+        if (hintNumber > this.timings.hints()) {
+            return;
+        }
+        int round = this.round;
+        this.hintTimer = this.shard.schedule(() -> this.revealHint(round, hintNumber), this.timings.hintIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reveals one more letter of the word, picked at random among those still hidden.
+     */
+    private void revealHint(int round, int hintNumber) {
+        if (round != this.round || this.word == null) {
+            return;
+        }
+
+        int hidden = 0;
+        for (char c : this.hint) {
+            if (c == '_') {
+                hidden++;
+            }
+        }
+        // Leave at least one letter for the guessers to work out.
+        if (hidden > 1) {
+            int reveal = ThreadLocalRandom.current().nextInt(hidden);
+            for (int i = 0; i < this.hint.length; i++) {
+                if (this.hint[i] == '_' && reveal-- == 0) {
+                    this.hint[i] = this.word.charAt(i);
+                    break;
+                }
+            }
+            this.broadcastEvent(Map.of(
+                    "event", "HINT",
+                    "round", this.round,
+                    "hint", new String(this.hint)
+            ));
+        }
+        this.scheduleHint(hintNumber + 1);
+    }
+
+    private void onDrawTimeout(int round) {
+        if (round == this.round && this.word != null) {
+            this.endRound();
+        }
+    }
+
+    /**
+     * Ends the running round, reveals its word and, after a short break, starts the next round or
+     * ends the game.
+     */
+    private void endRound() {
+        if (this.drawer == null) {
+            return;
+        }
+
+        this.cancelTimers();
+        String revealed = this.word;
+        this.drawer = null;
+        this.wordChoices = null;
+        this.hint = null;
+        this.wordLengths = List.of();
+        this.setWord(null);
+        this.broadcastEvent(Map.of(
+                "event", "ROUND_ENDED",
+                "round", this.round,
+                "word", revealed == null ? "" : revealed
+        ));
+
+        int round = this.round;
+        this.phaseTimer = this.shard.schedule(() -> this.onIntermissionEnd(round), this.timings.intermissionMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void onIntermissionEnd(int round) {
+        if (round != this.round || this.drawer != null || this.roundsInGame == 0) {
+            return;
+        }
+        if (!this.drawOrder.isEmpty()) {
+            this.startRound();
+        } else {
+            this.endGame();
+        }
+    }
+
+    private void endGame() {
+        if (this.roundsInGame == 0) {
+            return;
+        }
+        this.cancelTimers();
+        this.roundsInGame = 0;
+        this.drawOrder.clear();
+        this.broadcastEvent(Map.of(
+                "event", "GAME_ENDED",
+                "rounds", this.round
+        ));
+    }
 
-        List<Map<String, String>> guessData = guesses.stream()
+    private void cancelTimers() {
+        if (this.phaseTimer != null) {
+            this.phaseTimer.cancel();
+            this.phaseTimer = null;
+        }
+        if (this.hintTimer != null) {
+            this.hintTimer.cancel();
+            this.hintTimer = null;
+        }
+    }
+
+    /**
+     * Sets the word players are trying to guess, or clears it with {@code null}.
+     */
+    private void setWord(String word) {
+        this.word = word;
+        this.guessEvaluator.setAnswer(word);
+    }
+
+    /**
+     * Forgets everything drawn so far, including segments not yet flushed.
+     */
+    private void clearCanvas() {
+        this.pendingDrawEvents.clear();
+        this.canvas.release();
+        this.journal.append(new JournalRecord.CanvasCleared(this.id));
+    }
+
+    /**
+     * Buffers a stroke segment until the next draw flush. During a game, only the current drawer's
+     * segments are accepted.
+     *
+     * @return true if the room was not yet queued for a flush and the caller must queue it.
+     */
+    public boolean submitDrawEvent(String sessionId, DrawEvent drawEvent) {
+        Session session = getSessionById(sessionId);
+        if (session == null || (this.roundsInGame > 0 && session != this.drawer)) {
+            // During a game only the current drawer draws.
+            return false;
+        }
+
+        this.pendingDrawEvents.add(drawEvent);
+        if (!this.drawFlushScheduled) {
+            this.drawFlushScheduled = true;
+            this.oldestPendingDrawNanos = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends everything buffered since the last flush as one {@code DRAW_BATCH} frame.
+     * <p>
+     * The frame is encoded once and shared by every player, the drawer included; clients skip
+     * segments tagged with their own session id. Segments keep arrival order, so each drawer's
+     * strokes stay in order.
+     *
+     * @return true if segments were left over and the room must be queued for another flush.
+     */
+    public boolean flushDrawEvents() {
+        this.drawFlushScheduled = false;
+        if (this.pendingDrawEvents.isEmpty() || this.released) {
+            // A dropped room may still be queued for the tick; its canvas must stay released.
+            return false;
+        }
+
+        List<DrawEvent> batch = this.pendingDrawEvents;
+        List<DrawEvent> leftover = new ArrayList<>();
+        if (batch.size() > MAX_DRAW_BATCH_SIZE) {
+            leftover.addAll(batch.subList(MAX_DRAW_BATCH_SIZE, batch.size()));
+            batch = batch.subList(0, MAX_DRAW_BATCH_SIZE);
+        }
+        this.pendingDrawEvents = leftover;
+
+        byte[] frame = DrawEventCodec.encodeDrawBatch(batch);
+        this.broadcastService.broadcastBinary(this.recipients, frame);
+        this.canvas.appendDrawBatch(frame);
+        this.journal.append(new JournalRecord.DrawBatch(this.id, frame));
+
+        GameServerMetrics.DRAW_BATCH_SIZE.record(batch.size());
+        GameServerMetrics.DRAW_FLUSH_LATENCY.record(System.nanoTime() - this.oldestPendingDrawNanos, TimeUnit.NANOSECONDS);
+
+        if (!this.pendingDrawEvents.isEmpty()) {
+            this.drawFlushScheduled = true;
+            this.oldestPendingDrawNanos = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancels the room's timers and frees its off-heap canvas history. Called once the room has
+     * been dropped.
+     */
+    public void release() {
+        this.released = true;
+        this.cancelTimers();
+        this.canvas.release();
+    }
+
+    public Session getSessionById(String sessionId) {
+        return this.players.get(sessionId);
+    }
+
+    /**
+     * Sends the full room state to one player. The snapshot carries the current sequence number;
+     * the player applies only events with a higher one. Only the latest {@value #SNAPSHOT_GUESSES}
+     * guesses are included. If anything has been drawn, a
+     * {@code CANVAS_SNAPSHOT} frame follows with the canvas as of the last draw flush; later
+     * segments reach the player in the next {@code DRAW_BATCH}.
+     */
+    public void sendSnapshot(String sessionId) {
+        List<Map<String, String>> guessData = this.guesses.last(SNAPSHOT_GUESSES).stream()
                 .map(guess -> Map.of(
                         "sessionId", guess.getSessionId(),
                         "userName", guess.getUsername(),
@@ -89,16 +671,38 @@ public class Room {
                 ))
                 .collect(Collectors.toList());
 
-        BroadcastService.broadcast(recipients, Map.of(
-                "timestamp", this.atomicTimestamp.incrementAndGet(),
-                "roomName", this.name,
-                "players", this.players.stream()
+        this.broadcastService.broadcast(List.of(sessionId), Map.ofEntries(
+                Map.entry("event", "ROOM_SNAPSHOT"),
+                Map.entry("seq", this.sequence),
+                Map.entry("roomId", this.id),
+                Map.entry("roomName", this.name),
+                Map.entry("hostSessionId", this.host == null ? "" : this.host.getSessionId()),
+                Map.entry("players", this.players.values().stream()
                         .map(player -> Map.of(
                                 "sessionId", player.getSessionId(),
                                 "userName", player.getUsername()
                         ))
-                        .collect(Collectors.toList()),
-                "guesses", guessData)
-        );
+                        .collect(Collectors.toList())),
+                Map.entry("guesses", guessData),
+                Map.entry("round", this.round),
+                Map.entry("drawerSessionId", this.drawer == null ? "" : this.drawer.getSessionId()),
+                Map.entry("hint", this.hint == null ? "" : new String(this.hint)),
+                Map.entry("wordLengths", this.wordLengths)
+        ), OutboundMessageClass.ROOM_SNAPSHOT);
+
+        if (!this.canvas.isEmpty()) {
+            this.broadcastService.broadcastBinary(List.of(sessionId), this.canvas.snapshotFrame(), OutboundMessageClass.CANVAS_SNAPSHOT);
+        }
+    }
+
+    /**
+     * Stamps an incremental room event with the next sequence number and sends it to every player.
+     * Events are only produced on the room's shard, so sequence order matches send order.
+     */
+    private void broadcastEvent(Map<String, Object> event) {
+        Map<String, Object> payload = new HashMap<>(event);
+        payload.put("seq", ++this.sequence);
+        payload.put("roomId", this.id);
+        this.broadcastService.broadcast(this.recipients, payload);
     }
 }
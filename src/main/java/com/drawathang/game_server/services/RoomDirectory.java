@@ -0,0 +1,211 @@
+package com.drawathang.game_server.services;
+
+import com.drawathang.game_server.cluster.ClusterMessage;
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.communication.OutboundMessageClass;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Versioned list of open rooms, as shown to players in the lobby.
+ * <p>
+ * Every change bumps the version and is sent to the lobby as a single {@code ROOMS_DELTA}, so a
+ * room change costs one small message per lobby player instead of the whole room list. Players
+ * entering the lobby get a full snapshot with its version; a client that sees a gap in versions
+ * sends {@code SYNC_ROOMS} and gets a fresh snapshot.
+ * <p>
+ * Changes and snapshots are enqueued while holding the directory's monitor, so each lobby player
+ * receives versions in increasing order.
+ * <p>
+ * In a cluster every node keeps the full directory. Changes to rooms owned here are passed to the
+ * replication callback for the other nodes, and changes to rooms owned elsewhere come back through
+ * the {@code remote*} methods. Each entry remembers its owner, so a join goes to the node that has
+ * the room. Versions are per node: a lobby player only ever syncs with their own node.
+ */
+public class RoomDirectory {
+
+    /**
+     * Lobby view of one room.
+     */
+    private record Entry(String roomId, String roomName, int participantCount, String ownerNodeId) {
+        Map<String, Object> toMap() {
+            return Map.of(
+                    "roomId", roomId,
+                    "roomName", roomName,
+                    "participantCount", participantCount
+            );
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final BroadcastService broadcastService;
+    private final Supplier<Collection<String>> lobbyRecipients;
+    private final String localNodeId;
+    private final Consumer<ClusterMessage> replicas;
+    private long version = 0;
+
+    /**
+     * A directory for a server on its own.
+     *
+     * @param broadcastService Where the lobby's sessions are registered.
+     * @param lobbyRecipients  Supplies the session IDs currently in the lobby.
+     */
+    public RoomDirectory(BroadcastService broadcastService, Supplier<Collection<String>> lobbyRecipients) {
+        this(broadcastService, lobbyRecipients, null, change -> {
+        });
+    }
+
+    /**
+     * @param broadcastService Where the lobby's sessions are registered.
+     * @param lobbyRecipients  Supplies the session IDs currently in the lobby.
+     * @param localNodeId      Owner recorded for rooms added through {@link #roomAdded(Room)}.
+     * @param replicas         Receives every change to a room owned by this node, in order.
+     */
+    public RoomDirectory(BroadcastService broadcastService, Supplier<Collection<String>> lobbyRecipients,
+                         String localNodeId, Consumer<ClusterMessage> replicas) {
+        this.broadcastService = broadcastService;
+        this.lobbyRecipients = lobbyRecipients;
+        this.localNodeId = localNodeId;
+        this.replicas = replicas;
+    }
+
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    public synchronized void roomAdded(Room room) {
+        String roomName = String.valueOf(room.getName());
+        this.add(room.getId(), roomName, room.getPlayerCount(), this.localNodeId);
+        this.replicas.accept(new ClusterMessage.RoomListed(room.getId(), roomName, room.getPlayerCount()));
+    }
+
+    public synchronized void roomRemoved(Room room) {
+        if (this.remove(room.getId())) {
+            this.replicas.accept(new ClusterMessage.RoomUnlisted(room.getId()));
+        }
+    }
+
+    /**
+     * Publishes the room's current participant count. Called from the room's shard after each
+     * membership change, so the last delta for a room always reflects its latest membership.
+     */
+    public synchronized void participantCountChanged(Room room) {
+        int participantCount = room.getPlayerCount();
+        if (this.updateParticipantCount(room.getId(), participantCount)) {
+            this.replicas.accept(new ClusterMessage.ParticipantCountChanged(room.getId(), participantCount));
+        }
+    }
+
+    /**
+     * Lists a room owned by another node.
+     */
+    public synchronized void remoteRoomAdded(String ownerNodeId, String roomId, String roomName, int participantCount) {
+        this.add(roomId, roomName, participantCount, ownerNodeId);
+    }
+
+    public synchronized void remoteRoomRemoved(String roomId) {
+        this.remove(roomId);
+    }
+
+    public synchronized void remoteParticipantCountChanged(String roomId, int participantCount) {
+        this.updateParticipantCount(roomId, participantCount);
+    }
+
+    /**
+     * The node that owns a listed room, or {@code null} if the room is not listed.
+     */
+    public synchronized String getOwnerNodeId(String roomId) {
+        Entry entry = this.entries.get(roomId);
+        return entry == null ? null : entry.ownerNodeId();
+    }
+
+    private void add(String roomId, String roomName, int participantCount, String ownerNodeId) {
+        Entry entry = new Entry(roomId, roomName, participantCount, ownerNodeId);
+        this.entries.put(roomId, entry);
+        this.broadcastDelta(List.of(entry.toMap()), List.of(), List.of());
+    }
+
+    private boolean remove(String roomId) {
+        if (this.entries.remove(roomId) == null) {
+            return false;
+        }
+        this.broadcastDelta(List.of(), List.of(roomId), List.of());
+        return true;
+    }
+
+    /**
+     * @return false if the room is not listed or its count did not change.
+     */
+    private boolean updateParticipantCount(String roomId, int participantCount) {
+        Entry previous = this.entries.get(roomId);
+        if (previous == null || previous.participantCount() == participantCount) {
+            return false;
+        }
+
+        this.entries.put(roomId, new Entry(roomId, previous.roomName(), participantCount, previous.ownerNodeId()));
+        this.broadcastDelta(List.of(), List.of(), List.of(Map.of(
+                "roomId", roomId,
+                "participantCount", participantCount
+        )));
+        return true;
+    }
+
+    /**
+     * Returns the lobby view of every room.
+     */
+    public synchronized List<Map<String, Object>> getRooms() {
+        List<Map<String, Object>> rooms = new ArrayList<>(this.entries.size());
+        for (Entry entry : this.entries.values()) {
+            rooms.add(entry.toMap());
+        }
+        return rooms;
+    }
+
+    /**
+     * Sends one session the full room list as a {@code ROOMS_SNAPSHOT}.
+     */
+    public void sendSnapshot(String sessionId) {
+        this.sendSnapshot(sessionId, Map.of("event", "ROOMS_SNAPSHOT"), OutboundMessageClass.ROOMS_SNAPSHOT);
+    }
+
+    /**
+     * Sends one session the full room list, merged into the given event.
+     */
+    public void sendSnapshot(String sessionId, Map<String, Object> message) {
+        this.sendSnapshot(sessionId, message, OutboundMessageClass.EVENT);
+    }
+
+    private synchronized void sendSnapshot(String sessionId, Map<String, Object> message, OutboundMessageClass messageClass) {
+        Map<String, Object> payload = new HashMap<>(message);
+        payload.put("roomsVersion", this.version);
+        payload.put("rooms", this.getRooms());
+        this.broadcastService.broadcast(List.of(sessionId), payload, messageClass);
+    }
+
+    /**
+     * Answers a client's {@code SYNC_ROOMS}: a snapshot if the client's version is not current.
+     */
+    public synchronized void sync(String sessionId, long clientVersion) {
+        if (clientVersion != this.version) {
+            this.sendSnapshot(sessionId);
+        }
+    }
+
+    private void broadcastDelta(List<Map<String, Object>> added, List<String> removed, List<Map<String, Object>> updated) {
+        this.version++;
+        this.broadcastService.broadcast(this.lobbyRecipients.get(), Map.of(
+                "event", "ROOMS_DELTA",
+                "roomsVersion", this.version,
+                "added", added,
+                "removed", removed,
+                "updated", updated
+        ));
+    }
+}
@@ -1,67 +1,341 @@
 package com.drawathang.game_server.services;
 
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.journal.JournalRecord;
+import com.drawathang.game_server.journal.JournalState;
+import com.drawathang.game_server.journal.RoomJournal;
 import com.drawathang.game_server.services.domain.DrawEvent;
 import com.drawathang.game_server.services.domain.Session;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * Routes room commands to the shard that owns the room.
+ * <p>
+ * Rooms are partitioned by id across {@link RoomShard}s. Lookups that decide where a command goes
+ * happen on the caller's thread through concurrent maps; everything that touches a room's state
+ * runs on its shard. Commands are asynchronous: they return once queued on the shard.
+ * <p>
+ * A session's room is one lookup in {@link #sessionRooms}. A command that reaches the shard after
+ * its room was dropped finds the room released and does nothing.
+ * <p>
+ * Rooms are recorded in a {@link RoomJournal}, and the rooms it holds are brought back on
+ * startup, empty. A restored room nobody rejoins within {@link #RESTORED_ROOM_GRACE_SECONDS} is
+ * dropped.
+ */
 public class RoomService {
+    /**
+     * How long a restored room stays open for its players to come back.
+     */
+    static final long RESTORED_ROOM_GRACE_SECONDS = 300;
+
     /**
      * Store active rooms on the game server by their room IDs.
+     * Written only from the owning shard; read from anywhere.
      */
     private final ConcurrentHashMap<String, Room> roomsMap = new ConcurrentHashMap<>();
 
-    private final ConcurrentHashMap<String, String> playersToRoomMap = new ConcurrentHashMap<>();
+    /**
+     * The room each session in a room belongs to. Written on the caller's thread when a session
+     * enters or leaves a room, so commands that follow go straight to the right room. A session is
+     * put in a room and its create or join queued in one step, under the map's lock for that
+     * session: a leave racing it from another thread, such as a closing connection, can only
+     * find the room once the entry is queued, and so is queued behind it.
+     */
+    private final ConcurrentHashMap<String, Room> sessionRooms = new ConcurrentHashMap<>();
+
+    /**
+     * Lobby-facing list of rooms, kept in step with every create, join, leave and removal.
+     */
+    private final RoomDirectory roomDirectory;
+
+    /**
+     * Where the rooms' players are registered.
+     */
+    private final BroadcastService broadcastService;
+
+    private final RoomShard[] shards;
+
+    /**
+     * Deadlines of every room's rounds, expired onto the room's shard.
+     */
+    private final TimerWheel timers = new TimerWheel("room-timers", 100, TimeUnit.MILLISECONDS, 512);
+
+    /**
+     * Off-heap storage for every room's canvas history.
+     */
+    private final StrokeSegmentPool strokeSegmentPool = new StrokeSegmentPool();
+
+    private final int guessRetention;
+
+    /**
+     * Words for every room's rounds.
+     */
+    private final WordBank wordBank;
+
+    private final RoomJournal journal;
+
+    private final RoundTimings roundTimings;
+
+    public RoomService(RoomDirectory roomDirectory, BroadcastService broadcastService, int drawFlushHz, int shardCount,
+                       int guessRetention, WordBank wordBank) {
+        this(roomDirectory, broadcastService, drawFlushHz, shardCount, guessRetention, wordBank, RoomJournal.DISABLED);
+    }
+
+    public RoomService(RoomDirectory roomDirectory, BroadcastService broadcastService, int drawFlushHz, int shardCount,
+                       int guessRetention, WordBank wordBank, RoomJournal journal) {
+        this(roomDirectory, broadcastService, drawFlushHz, shardCount, guessRetention, wordBank, journal, RoundTimings.DEFAULT);
+    }
+
+    /**
+     * @param roomDirectory    The lobby room directory to keep up to date.
+     * @param broadcastService Where the rooms' players are registered.
+     * @param drawFlushHz      How many times per second buffered draw events are flushed to players.
+     * @param shardCount       Number of room shards, or 0 for one per available core.
+     * @param guessRetention   How many of the latest guesses each room keeps.
+     * @param wordBank         Words for the rooms' rounds.
+     * @param journal          Where rooms are recorded, and restored from.
+     * @param roundTimings     How long each phase of the rooms' rounds lasts.
+     */
+    public RoomService(RoomDirectory roomDirectory, BroadcastService broadcastService, int drawFlushHz, int shardCount,
+                       int guessRetention, WordBank wordBank, RoomJournal journal, RoundTimings roundTimings) {
+        this.roomDirectory = roomDirectory;
+        this.broadcastService = broadcastService;
+        this.wordBank = wordBank;
+        this.journal = journal;
+        this.roundTimings = roundTimings;
+        if (drawFlushHz <= 0) {
+            throw new IllegalArgumentException("drawFlushHz must be positive");
+        }
+        if (guessRetention <= 0) {
+            throw new IllegalArgumentException("guessRetention must be positive");
+        }
+        this.guessRetention = guessRetention;
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new RoomShard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new RoomShard(i, drawFlushHz, this.timers);
+        }
+        this.restoreRooms();
+    }
+
+    /**
+     * Reopens every room in the journal on its shard and lists it in the lobby.
+     */
+    private void restoreRooms() {
+        for (JournalState.RoomImage image : this.journal.restore(this.strokeSegmentPool, this.guessRetention)) {
+            Room room = new Room(image.getRoomId(), image.getRoomName(), this.broadcastService, image.getCanvas(),
+                    image.getGuesses(), this.journal);
+            RoomShard shard = shardFor(room);
+            shard.execute(() -> {
+                this.roomsMap.put(room.getId(), room);
+                this.roomDirectory.roomAdded(room);
+            });
+            shard.schedule(() -> {
+                if (!room.isReleased() && room.getPlayerCount() == 0) {
+                    this.dropRoom(room);
+                }
+            }, RESTORED_ROOM_GRACE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public void shutdown() {
+        this.timers.stop();
+        for (RoomShard shard : this.shards) {
+            shard.shutdown();
+        }
+        this.journal.close();
+    }
 
     public void createRoom(Session session, String roomName) {
-        Room room = new Room(roomName, session);
-        this.roomsMap.put(room.getId(), room);
-        this.playersToRoomMap.put(session.getSessionId(), room.getId());
+        this.createRoom(session, UUID.randomUUID().toString(), roomName);
+    }
 
+    /**
+     * Creates a room with an id chosen by the caller, such as one already placed on this node.
+     */
+    public void createRoom(Session session, String roomId, String roomName) {
+        Room room = new Room(roomId, roomName, session, this.broadcastService, this.strokeSegmentPool, this.guessRetention,
+                this.journal);
+        this.enterRoom(session, room, () -> {
+            this.journal.append(new JournalRecord.RoomCreated(roomId, roomName));
+            this.roomsMap.put(roomId, room);
+            room.sendSnapshot(session.getSessionId());
+            this.roomDirectory.roomAdded(room);
+        });
     }
 
-    public void joinRoom(Session session, String roomId) {
-        Room room = this.roomsMap.get(roomId);
-        room.join(session);
-        this.playersToRoomMap.put(session.getSessionId(), room.getId());
+    /**
+     * Adds a player to a room.
+     *
+     * @param onRoomMissing Called with the session if the room no longer exists.
+     */
+    public void joinRoom(Session session, String roomId, Consumer<Session> onRoomMissing) {
+        Room room = roomId == null ? null : this.roomsMap.get(roomId);
+        if (room == null) {
+            onRoomMissing.accept(session);
+            return;
+        }
+        this.enterRoom(session, room, () -> {
+            if (room.isReleased()) {
+                // Emptied and dropped while the join was queued.
+                this.sessionRooms.remove(session.getSessionId(), room);
+                onRoomMissing.accept(session);
+                return;
+            }
 
+            room.join(session);
+            this.roomDirectory.participantCountChanged(room);
+        });
     }
 
-    public Session leaveRoom(String sessionId) {
-        String roomId = this.playersToRoomMap.get(sessionId);
-        Room room = this.roomsMap.get(roomId);
+    /**
+     * Records the session as in {@code room} and queues the command that puts it there.
+     */
+    private void enterRoom(Session session, Room room, Runnable command) {
+        this.sessionRooms.compute(session.getSessionId(), (sessionId, previous) -> {
+            shardFor(room).execute(command);
+            return room;
+        });
+    }
 
-        Session removedPlayer = room.leave(sessionId);
+    /**
+     * Removes a player from their room, dropping the room once it is empty.
+     *
+     * @param onLeft Called on the room's shard with the removed player's session.
+     * @return false if the session was not in a room.
+     */
+    public boolean leaveRoom(String sessionId, Consumer<Session> onLeft) {
+        return this.leaveRoom(sessionId, onLeft, () -> {});
+    }
 
-        if (room.getPlayers().isEmpty()) {
-            this.roomsMap.remove(roomId);
+    /**
+     * Removes a player from their room, for callers that must hear back even when the room is
+     * gone before the leave runs, such as a node waiting to put the player back in its lobby.
+     *
+     * @param onRoomReleased Called on the room's shard instead of {@code onLeft} if the room was
+     *                       dropped while the leave was queued.
+     */
+    public boolean leaveRoom(String sessionId, Consumer<Session> onLeft, Runnable onRoomReleased) {
+        Room room = this.sessionRooms.remove(sessionId);
+        if (room == null) {
+            return false;
         }
 
-        return removedPlayer;
+        shardFor(room).execute(() -> {
+            if (room.isReleased()) {
+                onRoomReleased.run();
+                return;
+            }
 
+            Session removedPlayer = room.leave(sessionId);
+
+            if (room.getPlayerCount() == 0) {
+                this.dropRoom(room);
+            } else {
+                this.roomDirectory.participantCountChanged(room);
+            }
+
+            if (removedPlayer != null) {
+                onLeft.accept(removedPlayer);
+            }
+        });
+        return true;
     }
 
+    /**
+     * Closes an empty room for good. Must be called on the room's shard.
+     */
+    private void dropRoom(Room room) {
+        this.roomsMap.remove(room.getId());
+        this.roomDirectory.roomRemoved(room);
+        this.journal.append(new JournalRecord.RoomRemoved(room.getId()));
+        room.release();
+    }
+
+    public int getRoomsCount() {
+        return this.roomsMap.size();
+    }
+
+    public int getPendingTimersCount() {
+        return this.timers.getPendingCount();
+    }
+
+    public long getJournalPendingCount() {
+        return this.journal.getPendingCount();
+    }
+
+    public StrokeSegmentPool getStrokeSegmentPool() {
+        return this.strokeSegmentPool;
+    }
 
     public List<Map<String, Object>> getRoomsInfo() {
-        return roomsMap.values().stream()
-                .map(r -> Map.of(
-                        "roomId", r.getId(),
-                        "roomName", r.getName(),
-                        "participantCount", r.getPlayers().size()
-                ))
-                .toList();
+        return this.roomDirectory.getRooms();
     }
 
     public void submitGuess(String sessionId, String guess) {
-        String roomId = this.playersToRoomMap.get(sessionId);
-        Room room = this.roomsMap.get(roomId);
-        room.submitGuess(sessionId, guess);
+        this.executeInRoom(sessionId, room -> room.submitGuess(sessionId, guess));
+    }
 
+    public void startGame(String sessionId) {
+        Room room = this.sessionRooms.get(sessionId);
+        if (room == null) {
+            return;
+        }
+
+        RoomShard shard = shardFor(room);
+        shard.execute(() -> {
+            if (!room.isReleased()) {
+                room.startGame(sessionId, this.wordBank, this.roundTimings, shard);
+            }
+        });
+    }
+
+    public void pickWord(String sessionId, String word) {
+        this.executeInRoom(sessionId, room -> room.pickWord(sessionId, word));
+    }
+
+    public void sendRoomSnapshot(String sessionId) {
+        this.executeInRoom(sessionId, room -> room.sendSnapshot(sessionId));
     }
 
     public void submitDrawEvent(String sessionId, DrawEvent drawEvent) {
+        Room room = this.sessionRooms.get(sessionId);
+        if (room == null) {
+            return;
+        }
+
+        RoomShard shard = shardFor(room);
+        shard.execute(() -> {
+            if (!room.isReleased() && room.submitDrawEvent(sessionId, drawEvent)) {
+                shard.markDrawPending(room);
+            }
+        });
+    }
+
+    /**
+     * Runs a command on the shard of the room the session is in, if any.
+     */
+    private void executeInRoom(String sessionId, Consumer<Room> command) {
+        Room room = this.sessionRooms.get(sessionId);
+        if (room == null) {
+            return;
+        }
+
+        shardFor(room).execute(() -> {
+            if (!room.isReleased()) {
+                command.accept(room);
+            }
+        });
+    }
 
+    private RoomShard shardFor(Room room) {
+        return this.shards[Math.floorMod(room.getId().hashCode(), this.shards.length)];
     }
 }
@@ -0,0 +1,106 @@
+package com.drawathang.game_server.services;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single-threaded executor that owns a subset of the rooms.
+ * <p>
+ * Every command for a room runs on the room's shard, one at a time and in submission order, so
+ * room state needs no locks or copy-on-write collections. Rooms on different shards never contend.
+ * Each shard also drives the draw flush tick for its own rooms, and runs its rooms' timers when
+ * they expire on the shared {@link TimerWheel}.
+ */
+class RoomShard {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomShard.class);
+
+    private final ScheduledExecutorService executor;
+    private final TimerWheel timers;
+
+    /**
+     * Hands expired timers to the shard like any other command.
+     */
+    private final Executor timerCallbacks = this::execute;
+
+    /**
+     * Rooms on this shard with stroke segments waiting for the next draw flush.
+     * Only touched from the shard thread.
+     */
+    private final ArrayDeque<Room> roomsPendingDrawFlush = new ArrayDeque<>();
+
+    RoomShard(int index, int drawFlushHz, TimerWheel timers) {
+        this.timers = timers;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-shard-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long tickNanos = TimeUnit.SECONDS.toNanos(1) / drawFlushHz;
+        this.executor.scheduleAtFixedRate(this::flushDrawEvents, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs a room command on the shard thread. Failures are contained to the command, so one bad
+     * command cannot take the shard down for every other room; they are logged and counted.
+     */
+    void execute(Runnable command) {
+        this.executor.execute(() -> {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                // Drop the failed command; the shard keeps serving its other rooms.
+                failed("Room command", e);
+            }
+        });
+    }
+
+    /**
+     * Runs a room command on the shard thread once {@code delay} has passed.
+     */
+    TimerWheel.Timeout schedule(Runnable command, long delay, TimeUnit unit) {
+        return this.timers.schedule(command, delay, unit, this.timerCallbacks);
+    }
+
+    /**
+     * Queues a room for the next draw flush. Must be called on the shard thread.
+     */
+    void markDrawPending(Room room) {
+        this.roomsPendingDrawFlush.add(room);
+    }
+
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * One draw tick: flushes every room that buffered segments since the previous tick.
+     */
+    private void flushDrawEvents() {
+        // Only drain what was queued before this tick; rooms re-queued while flushing wait for the next one.
+        int pendingRooms = this.roomsPendingDrawFlush.size();
+        for (int i = 0; i < pendingRooms; i++) {
+            Room room = this.roomsPendingDrawFlush.poll();
+            try {
+                if (room.flushDrawEvents()) {
+                    this.roomsPendingDrawFlush.add(room);
+                }
+            } catch (RuntimeException e) {
+                // A failing room must not cancel the tick for every other room.
+                failed("Draw flush of room " + room.getId(), e);
+            }
+        }
+    }
+
+    private static void failed(String task, RuntimeException e) {
+        GameServerMetrics.ROOM_TASK_FAILURES.increment();
+        LOGGER.error("{} failed on {}", task, Thread.currentThread().getName(), e);
+    }
+}
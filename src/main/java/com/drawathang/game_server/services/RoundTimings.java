@@ -0,0 +1,39 @@
+package com.drawathang.game_server.services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long each phase of a round lasts: the drawer picks a word within the pick time, then draws
+ * until the draw time runs out or everyone has guessed, with {@code hints} letters revealed at
+ * even intervals along the way. A short intermission follows before the next round.
+ */
+public record RoundTimings(long pickMillis, long drawMillis, int hints, long intermissionMillis) {
+    public static final long DEFAULT_PICK_SECONDS = 15;
+    public static final long DEFAULT_DRAW_SECONDS = 80;
+    public static final int DEFAULT_HINTS = 2;
+    public static final long DEFAULT_INTERMISSION_SECONDS = 5;
+
+    public static final RoundTimings DEFAULT = ofSeconds(DEFAULT_PICK_SECONDS, DEFAULT_DRAW_SECONDS, DEFAULT_HINTS,
+            DEFAULT_INTERMISSION_SECONDS);
+
+    public RoundTimings {
+        if (pickMillis <= 0 || drawMillis <= 0 || intermissionMillis <= 0) {
+            throw new IllegalArgumentException("Round phases must last a positive time");
+        }
+        if (hints < 0) {
+            throw new IllegalArgumentException("hints must not be negative");
+        }
+    }
+
+    public static RoundTimings ofSeconds(long pickSeconds, long drawSeconds, int hints, long intermissionSeconds) {
+        return new RoundTimings(TimeUnit.SECONDS.toMillis(pickSeconds), TimeUnit.SECONDS.toMillis(drawSeconds), hints,
+                TimeUnit.SECONDS.toMillis(intermissionSeconds));
+    }
+
+    /**
+     * Time between one hint and the next, and from the start of drawing to the first.
+     */
+    public long hintIntervalMillis() {
+        return this.drawMillis / (this.hints + 1);
+    }
+}
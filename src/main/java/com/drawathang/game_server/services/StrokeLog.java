@@ -0,0 +1,69 @@
+package com.drawathang.game_server.services;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only bytes stored in pooled direct segments.
+ * <p>
+ * Bytes are packed back to back and may span segments; readers copy them out in bulk, never
+ * record by record. Only touched from the owning room's shard.
+ */
+class StrokeLog {
+    private final StrokeSegmentPool pool;
+
+    /**
+     * Filled segments, each holding bytes in [0, position).
+     */
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int size = 0;
+
+    StrokeLog(StrokeSegmentPool pool) {
+        this.pool = pool;
+    }
+
+    void append(byte[] source, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer current = this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+            if (current == null || !current.hasRemaining()) {
+                current = this.pool.acquire();
+                this.segments.add(current);
+            }
+
+            int chunk = Math.min(current.remaining(), length);
+            current.put(source, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+            this.size += chunk;
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Copies every byte into {@code target} starting at {@code offset}, one bulk copy per segment.
+     */
+    void copyTo(byte[] target, int offset) {
+        for (ByteBuffer segment : this.segments) {
+            // Read through a view so the segment's own write position is untouched.
+            ByteBuffer written = segment.duplicate().flip();
+            int length = written.remaining();
+            written.get(target, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Hands every segment back to the pool and empties the log.
+     */
+    void release() {
+        for (ByteBuffer segment : this.segments) {
+            this.pool.release(segment);
+        }
+        this.segments.clear();
+        this.size = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.drawathang.game_server.services;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of fixed-size direct buffers that hold encoded stroke history outside the Java heap.
+ * <p>
+ * Canvas history for thousands of rooms would otherwise be millions of small objects for the
+ * garbage collector to trace. Here it is a few large buffers per room, invisible to GC. Segments
+ * released by a dropped room are kept for reuse, up to a cap, so allocating direct memory stays
+ * off the hot path. Shared by every shard.
+ */
+public class StrokeSegmentPool {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_POOLED_SEGMENTS = 4096;
+
+    private final int segmentSize;
+    private final int maxPooledSegments;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledSegments = new AtomicInteger();
+    private final AtomicLong segmentsInUse = new AtomicLong();
+
+    public StrokeSegmentPool() {
+        this(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_POOLED_SEGMENTS);
+    }
+
+    /**
+     * @param segmentSize       Bytes per segment.
+     * @param maxPooledSegments Most released segments kept for reuse; beyond that they are left to the
+     *                          buffer cleaner.
+     */
+    public StrokeSegmentPool(int segmentSize, int maxPooledSegments) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive");
+        }
+        this.segmentSize = segmentSize;
+        this.maxPooledSegments = maxPooledSegments;
+    }
+
+    /**
+     * Takes an empty segment, reusing a released one if there is any.
+     */
+    ByteBuffer acquire() {
+        ByteBuffer segment = this.free.poll();
+        if (segment != null) {
+            this.pooledSegments.decrementAndGet();
+            segment.clear();
+        } else {
+            segment = ByteBuffer.allocateDirect(this.segmentSize);
+        }
+        this.segmentsInUse.incrementAndGet();
+        return segment;
+    }
+
+    /**
+     * Returns a segment. The caller must hold no other reference to it.
+     */
+    void release(ByteBuffer segment) {
+        this.segmentsInUse.decrementAndGet();
+        if (this.pooledSegments.incrementAndGet() <= this.maxPooledSegments) {
+            this.free.offer(segment);
+        } else {
+            this.pooledSegments.decrementAndGet();
+        }
+    }
+
+    /**
+     * Direct memory held by live stroke logs.
+     */
+    public long getBytesInUse() {
+        return this.segmentsInUse.get() * this.segmentSize;
+    }
+
+    /**
+     * Direct memory held for reuse.
+     */
+    public long getBytesPooled() {
+        return (long) this.pooledSegments.get() * this.segmentSize;
+    }
+}
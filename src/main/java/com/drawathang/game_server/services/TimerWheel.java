@@ -0,0 +1,246 @@
+package com.drawathang.game_server.services;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel that drives every room deadline on one thread.
+ * <p>
+ * Time is cut into ticks, and the wheel is a ring of buckets, one per tick. A timeout goes into the
+ * bucket its deadline falls in, with the number of full turns of the wheel left before it is due.
+ * Each tick the worker visits a single bucket, so thousands of pending deadlines cost nothing until
+ * their bucket comes up. Deadlines are accurate to one tick, which is plenty for game timers.
+ * <p>
+ * Scheduling and cancelling are O(1) from any thread: both only queue the timeout, and the worker
+ * links it into or out of its bucket at the start of the next tick. An expired timeout is not run
+ * on the worker: its task is handed to the executor it was scheduled with, typically the owning
+ * room's shard, so timer callbacks touch room state on the same thread as every other command.
+ */
+public class TimerWheel {
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running = true;
+
+    /**
+     * Ticks since the wheel started. Only touched by the worker.
+     */
+    private long tick = 0;
+
+    /**
+     * @param tickDuration Resolution of the wheel.
+     * @param wheelSize    Number of buckets, rounded up to a power of two. Deadlines further out
+     *                     than one turn of the wheel simply wait a few turns.
+     */
+    public TimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickDuration and wheelSize must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+
+        int size = Integer.highestOneBit(wheelSize);
+        size = size == wheelSize ? size : size << 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs {@code task} on {@code executor} once {@code delay} has passed.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        Timeout timeout = new Timeout(task, executor, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        this.pendingCount.incrementAndGet();
+        this.scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Number of timeouts scheduled and neither expired nor cancelled.
+     */
+    public int getPendingCount() {
+        return this.pendingCount.get();
+    }
+
+    public void stop() {
+        this.running = false;
+        this.worker.interrupt();
+    }
+
+    private void run() {
+        while (this.running) {
+            long nextTickNanos = this.startNanos + (this.tick + 1) * this.tickNanos;
+            long sleepNanos;
+            while (this.running && (sleepNanos = nextTickNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (!this.running) {
+                return;
+            }
+
+            this.unlinkCancelled();
+            this.linkScheduled();
+            this.buckets[(int) (this.tick & this.mask)].expire();
+            this.tick++;
+        }
+    }
+
+    private void linkScheduled() {
+        Timeout timeout;
+        while ((timeout = this.scheduled.poll()) != null) {
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+
+            // Bucket t is visited at the end of tick t; pick the first visit at or after the deadline.
+            long dueTick = Math.ceilDiv(timeout.deadlineNanos - this.startNanos, this.tickNanos) - 1;
+            // Already due: fire in the bucket about to be visited, never in one already passed.
+            dueTick = Math.max(dueTick, this.tick);
+            timeout.remainingRounds = (dueTick - this.tick) / this.buckets.length;
+            this.buckets[(int) (dueTick & this.mask)].add(timeout);
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = this.cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A scheduled task that can be cancelled until it expires.
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final Executor executor;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        /**
+         * Bucket links and turns left; only touched by the worker.
+         */
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, Executor executor, long deadlineNanos) {
+            this.task = task;
+            this.executor = executor;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return false if the timeout already expired or was cancelled.
+         */
+        public boolean cancel() {
+            if (!this.state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            pendingCount.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return this.state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return this.state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!this.state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            try {
+                this.executor.execute(this.task);
+            } catch (RejectedExecutionException e) {
+                // The owner shut down; nothing is left to run the task.
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts due in one tick of each turn.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = this.tail;
+            timeout.next = null;
+            if (this.tail == null) {
+                this.head = timeout;
+            } else {
+                this.tail.next = timeout;
+            }
+            this.tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                this.head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                this.tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Fires every timeout due this turn; the others wait one more turn.
+         */
+        void expire() {
+            Timeout timeout = this.head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    this.remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    this.remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.drawathang.game_server.services;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Every word that can come up in a round, shared by all rooms.
+ * <p>
+ * Words are packed back to back in one {@code char} arena, with the start of each word in an
+ * {@code int} array, so a list of 100k words costs two arrays instead of 100k strings. Lists are
+ * grouped by locale, then category, so every locale and every category is one contiguous range
+ * of word indices. Picking a word is an index into a range; the {@code String} is only built for
+ * the word that was picked.
+ * <p>
+ * Lists are plain text files, one word per line, at {@code <locale>/<category>.txt}. Blank lines
+ * and lines starting with {@code #} are skipped. The bank is immutable once built, so rooms on
+ * every shard read it without locking.
+ */
+public class WordBank {
+    public static final String DEFAULT_LOCATION = "classpath*:words/*/*.txt";
+    public static final String DEFAULT_LOCALE = "en";
+
+    /**
+     * A run of consecutive word indices.
+     */
+    private record WordRange(int first, int count) {
+    }
+
+    private final char[] arena;
+
+    /**
+     * Word i is {@code arena[starts[i], starts[i + 1])}.
+     */
+    private final int[] starts;
+
+    /**
+     * Ranges by locale, and by {@code locale/category}.
+     */
+    private final Map<String, WordRange> ranges;
+    private final Map<String, Set<String>> categoriesByLocale;
+    private final String defaultLocale;
+
+    private WordBank(char[] arena, int[] starts, Map<String, WordRange> ranges,
+                     Map<String, Set<String>> categoriesByLocale, String defaultLocale) {
+        this.arena = arena;
+        this.starts = starts;
+        this.ranges = ranges;
+        this.categoriesByLocale = categoriesByLocale;
+        this.defaultLocale = defaultLocale;
+    }
+
+    /**
+     * Loads every word list matching a Spring resource pattern, such as {@link #DEFAULT_LOCATION}.
+     *
+     * @param defaultLocale Locale that rooms draw words from.
+     */
+    public static WordBank load(String locationPattern, String defaultLocale) {
+        Builder builder = new Builder(defaultLocale);
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(locationPattern)) {
+                String filename = resource.getFilename();
+                if (filename == null || !filename.endsWith(".txt")) {
+                    continue;
+                }
+
+                // The locale is the name of the directory holding the list.
+                String path = resource.getURL().getPath();
+                String directory = path.substring(0, path.length() - filename.length() - 1);
+                String locale = directory.substring(directory.lastIndexOf('/') + 1);
+                String category = filename.substring(0, filename.length() - ".txt".length());
+
+                try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                    builder.addList(locale, category, reader);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load word lists from " + locationPattern, e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Total number of words across every list.
+     */
+    public int size() {
+        return this.starts.length - 1;
+    }
+
+    public Set<String> getLocales() {
+        return this.categoriesByLocale.keySet();
+    }
+
+    public Set<String> getCategories(String locale) {
+        return this.categoriesByLocale.getOrDefault(locale, Set.of());
+    }
+
+    public String getWord(int index) {
+        return new String(this.arena, this.starts[index], this.starts[index + 1] - this.starts[index]);
+    }
+
+    /**
+     * A uniformly random word.
+     *
+     * @param category The category to pick from, or {@code null} for any category of the locale.
+     */
+    public String randomWord(String locale, String category) {
+        WordRange range = this.rangeFor(locale, category);
+        return this.getWord(range.first + ThreadLocalRandom.current().nextInt(range.count));
+    }
+
+    /**
+     * A sampler over the default locale, or over every word if the default locale has none.
+     */
+    public Sampler newSampler() {
+        if (this.ranges.containsKey(this.defaultLocale)) {
+            return this.newSampler(this.defaultLocale, null);
+        }
+        if (this.size() == 0) {
+            throw new IllegalStateException("The word bank is empty");
+        }
+        return new Sampler(new WordRange(0, this.size()));
+    }
+
+    /**
+     * @param category The category to sample, or {@code null} for every category of the locale.
+     */
+    public Sampler newSampler(String locale, String category) {
+        return new Sampler(this.rangeFor(locale, category));
+    }
+
+    private WordRange rangeFor(String locale, String category) {
+        WordRange range = this.ranges.get(category == null ? locale : locale + "/" + category);
+        if (range == null) {
+            throw new IllegalArgumentException("No words for " + locale + (category == null ? "" : "/" + category));
+        }
+        return range;
+    }
+
+    /**
+     * Draws words from one range without repeats until every word has come up once.
+     * <p>
+     * The order is the permutation {@code k -> (a * k + b) mod n}, which visits every index once
+     * when {@code a} and {@code n} are coprime. A sampler is two numbers and a counter, however
+     * long the list is; a new permutation is drawn each time the list runs out. Not thread-safe:
+     * a sampler belongs to one room.
+     */
+    public class Sampler {
+        private final WordRange range;
+        private long multiplier;
+        private long offset;
+        private int drawn;
+
+        private Sampler(WordRange range) {
+            this.range = range;
+            this.reshuffle();
+        }
+
+        public String next() {
+            if (this.drawn == this.range.count) {
+                this.reshuffle();
+            }
+            int index = (int) ((this.multiplier * this.drawn++ + this.offset) % this.range.count);
+            return getWord(this.range.first + index);
+        }
+
+        private void reshuffle() {
+            int count = this.range.count;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long multiplier = 1;
+            if (count > 2) {
+                do {
+                    multiplier = 1 + random.nextInt(count - 1);
+                } while (gcd(multiplier, count) != 1);
+            }
+            this.multiplier = multiplier;
+            this.offset = random.nextInt(count);
+            this.drawn = 0;
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * Collects word lists and packs them into a {@link WordBank}.
+     */
+    public static class Builder {
+        private final String defaultLocale;
+
+        /**
+         * Lists by locale, then category; sorted so each locale packs into one range.
+         */
+        private final Map<String, Map<String, StringBuilder>> lists = new TreeMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        public Builder(String defaultLocale) {
+            this.defaultLocale = defaultLocale;
+        }
+
+        /**
+         * Reads one word per line. Lists read for the same locale and category are merged.
+         */
+        public Builder addList(String locale, String category, Reader reader) throws IOException {
+            StringBuilder words = this.lists.computeIfAbsent(locale, key -> new TreeMap<>())
+                    .computeIfAbsent(category, key -> new StringBuilder());
+            int count = 0;
+
+            BufferedReader lines = new BufferedReader(reader);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String word = line.strip();
+                if (word.isEmpty() || word.startsWith("#")) {
+                    continue;
+                }
+                // Words are separated by newlines until they are packed.
+                words.append(word).append('\n');
+                count++;
+            }
+
+            this.counts.merge(locale + "/" + category, count, Integer::sum);
+            return this;
+        }
+
+        public WordBank build() {
+            int wordCount = 0;
+            int charCount = 0;
+            for (Map<String, StringBuilder> categories : this.lists.values()) {
+                for (StringBuilder words : categories.values()) {
+                    charCount += words.length();
+                }
+            }
+            for (int count : this.counts.values()) {
+                wordCount += count;
+                charCount -= count;
+            }
+
+            char[] arena = new char[charCount];
+            int[] starts = new int[wordCount + 1];
+            Map<String, WordRange> ranges = new HashMap<>();
+            Map<String, Set<String>> categoriesByLocale = new TreeMap<>();
+
+            int word = 0;
+            int position = 0;
+            for (Map.Entry<String, Map<String, StringBuilder>> locale : this.lists.entrySet()) {
+                int localeFirst = word;
+                Set<String> categories = new TreeSet<>();
+                for (Map.Entry<String, StringBuilder> category : locale.getValue().entrySet()) {
+                    int categoryFirst = word;
+                    StringBuilder words = category.getValue();
+                    for (int i = 0; i < words.length(); i++) {
+                        char c = words.charAt(i);
+                        if (c == '\n') {
+                            starts[++word] = position;
+                        } else {
+                            arena[position++] = c;
+                        }
+                    }
+                    if (word > categoryFirst) {
+                        ranges.put(locale.getKey() + "/" + category.getKey(), new WordRange(categoryFirst, word - categoryFirst));
+                        categories.add(category.getKey());
+                    }
+                }
+                if (word > localeFirst) {
+                    ranges.put(locale.getKey(), new WordRange(localeFirst, word - localeFirst));
+                    categoriesByLocale.put(locale.getKey(), Collections.unmodifiableSet(categories));
+                }
+            }
+
+            return new WordBank(arena, Arrays.copyOf(starts, word + 1), ranges,
+                    Collections.unmodifiableMap(categoriesByLocale), this.defaultLocale);
+        }
+    }
+}
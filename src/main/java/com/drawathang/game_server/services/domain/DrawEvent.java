@@ -1,5 +1,86 @@
 package com.drawathang.game_server.services.domain;
 
+/**
+ * A segment of a stroke drawn by one player.
+ * <p>
+ * A stroke is sent as one or more segments sharing the same stroke id. Points are stored
+ * interleaved ({@code x0, y0, x1, y1, ...}) in quantized canvas units, so a segment is two
+ * small arrays-worth of ints rather than a list of point objects.
+ */
 public class DrawEvent {
-    
+    /**
+     * Set on the first segment of a stroke.
+     */
+    public static final int FLAG_STROKE_START = 1;
+
+    /**
+     * Set on the last segment of a stroke.
+     */
+    public static final int FLAG_STROKE_END = 1 << 1;
+
+    private final String drawerSessionId;
+    private final int strokeId;
+    private final int flags;
+    private final int color;
+    private final int width;
+    private final int[] points;
+
+    public DrawEvent(String drawerSessionId, int strokeId, int flags, int color, int width, int[] points) {
+        this.drawerSessionId = drawerSessionId;
+        this.strokeId = strokeId;
+        this.flags = flags;
+        this.color = color;
+        this.width = width;
+        this.points = points;
+    }
+
+    public String getDrawerSessionId() {
+        return drawerSessionId;
+    }
+
+    public int getStrokeId() {
+        return strokeId;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isStrokeStart() {
+        return (flags & FLAG_STROKE_START) != 0;
+    }
+
+    public boolean isStrokeEnd() {
+        return (flags & FLAG_STROKE_END) != 0;
+    }
+
+    /**
+     * Stroke color as packed ARGB.
+     */
+    public int getColor() {
+        return color;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Interleaved point coordinates. Callers must not modify the returned array.
+     */
+    public int[] getPoints() {
+        return points;
+    }
+
+    public int getPointCount() {
+        return points.length / 2;
+    }
+
+    public int getX(int index) {
+        return points[index * 2];
+    }
+
+    public int getY(int index) {
+        return points[index * 2 + 1];
+    }
 }
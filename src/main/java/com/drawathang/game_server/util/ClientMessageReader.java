@@ -0,0 +1,86 @@
+package com.drawathang.game_server.util;
+
+import com.drawathang.game_server.contract.ClientMessage;
+import com.drawathang.game_server.contract.ClientMessageType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads client text messages with a streaming parser.
+ * <p>
+ * A single pass over the tokens binds the fields straight onto a {@link ClientMessage}, in any
+ * order, with no intermediate tree or map. Fields the protocol does not define are skipped
+ * without being materialized.
+ * <p>
+ * Fields bind by name rather than through a decoder chosen by {@code type}: a client may send
+ * {@code type} after its payload, and choosing per type would mean buffering whatever came
+ * before it. Each message type reads only the field it defines.
+ */
+public class ClientMessageReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Prevent instantiation
+    private ClientMessageReader() {}
+
+    /**
+     * Parses one client message.
+     *
+     * @return The message. Its type is null if the type is missing or unknown.
+     * @throws IllegalArgumentException If the text is not a JSON object.
+     */
+    public static ClientMessage read(String json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Client message must be a JSON object");
+            }
+
+            ClientMessage message = new ClientMessage();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type" -> message.setType(ClientMessageType.fromName(readString(parser, value)));
+                    case "username" -> message.setUsername(readString(parser, value));
+                    case "roomName" -> message.setRoomName(readString(parser, value));
+                    case "roomId" -> message.setRoomId(readString(parser, value));
+                    case "guess" -> message.setGuess(readString(parser, value));
+                    case "word" -> message.setWord(readString(parser, value));
+                    case "roomsVersion" -> message.setRoomsVersion(readLong(parser, value));
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new IllegalArgumentException("Truncated client message");
+            }
+            return message;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed client message", e);
+        }
+    }
+
+    /**
+     * Reads an integer. Anything else, including objects and arrays, reads as null.
+     */
+    private static Long readLong(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+    }
+
+    /**
+     * Reads a scalar as text. Null, objects and arrays read as null.
+     */
+    private static String readString(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return value == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+}
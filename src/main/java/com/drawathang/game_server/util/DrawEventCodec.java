@@ -0,0 +1,353 @@
+package com.drawathang.game_server.util;
+
+import com.drawathang.game_server.contract.BinaryFrameType;
+import com.drawathang.game_server.services.domain.DrawEvent;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary wire format for drawing traffic.
+ * <p>
+ * A stroke segment is encoded as:
+ * <pre>
+ *   varint  strokeId
+ *   u8      flags
+ *   i32     color (ARGB, big-endian)
+ *   u8      width
+ *   varint  pointCount
+ *   zigzag  x0, y0            first point, absolute
+ *   zigzag  dx1, dy1, ...     following points, as deltas from the previous point
+ * </pre>
+ * Coordinates are quantized canvas units chosen by the client, so consecutive pointer samples
+ * usually encode to one byte per axis. A {@link BinaryFrameType#DRAW_EVENT} frame is the frame
+ * type followed by one segment. A {@link BinaryFrameType#DRAW_BATCH} frame is the frame type,
+ * a varint segment count, then for each segment the drawer's session id (varint length + UTF-8)
+ * followed by the segment. A {@link BinaryFrameType#CANVAS_SNAPSHOT} frame has the same layout as
+ * a batch; its segment records may be pre-encoded in blocks and stitched together.
+ * <p>
+ * Decoding reads straight from the frame's {@link ByteBuffer} into the point array; no
+ * intermediate objects are built per point.
+ */
+public class DrawEventCodec {
+    /**
+     * Upper bound on points in a single segment, so a hostile frame cannot force a huge allocation.
+     */
+    public static final int MAX_POINTS_PER_EVENT = 1024;
+
+    /**
+     * Coordinates must fall within [0, MAX_COORDINATE].
+     */
+    public static final int MAX_COORDINATE = 0xFFFF;
+
+    // Prevent instantiation
+    private DrawEventCodec() {}
+
+    /**
+     * Decodes a client {@link BinaryFrameType#DRAW_EVENT} frame, starting at the frame type byte.
+     *
+     * @throws IllegalArgumentException if the frame is malformed or out of range.
+     */
+    public static DrawEvent decodeDrawEvent(ByteBuffer frame, String drawerSessionId) {
+        try {
+            expectFrameType(frame, BinaryFrameType.DRAW_EVENT);
+            DrawEvent drawEvent = readSegment(frame, drawerSessionId);
+            if (frame.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after draw event");
+            }
+            return drawEvent;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated draw event", e);
+        }
+    }
+
+    /**
+     * Decodes a server {@link BinaryFrameType#DRAW_BATCH} frame, starting at the frame type byte.
+     *
+     * @throws IllegalArgumentException if the frame is malformed or out of range.
+     */
+    public static List<DrawEvent> decodeDrawBatch(ByteBuffer frame) {
+        return decodeRecordsFrame(frame, BinaryFrameType.DRAW_BATCH);
+    }
+
+    /**
+     * Decodes a server {@link BinaryFrameType#CANVAS_SNAPSHOT} frame, starting at the frame type byte.
+     *
+     * @throws IllegalArgumentException if the frame is malformed or out of range.
+     */
+    public static List<DrawEvent> decodeCanvasSnapshot(ByteBuffer frame) {
+        return decodeRecordsFrame(frame, BinaryFrameType.CANVAS_SNAPSHOT);
+    }
+
+    /**
+     * Reads the header of a {@link BinaryFrameType#DRAW_BATCH} frame, leaving the buffer at the
+     * first segment record.
+     *
+     * @return The number of segment records that follow.
+     * @throws IllegalArgumentException if the header is malformed.
+     */
+    public static int readDrawBatchHeader(ByteBuffer frame) {
+        try {
+            expectFrameType(frame, BinaryFrameType.DRAW_BATCH);
+            return readVarInt(frame);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated draw batch header", e);
+        }
+    }
+
+    /**
+     * Reads the header of a {@link BinaryFrameType#CANVAS_SNAPSHOT} frame, leaving the buffer at
+     * the first segment record.
+     *
+     * @return The number of segment records that follow.
+     * @throws IllegalArgumentException if the header is malformed.
+     */
+    public static int readCanvasSnapshotHeader(ByteBuffer frame) {
+        try {
+            expectFrameType(frame, BinaryFrameType.CANVAS_SNAPSHOT);
+            return readVarInt(frame);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated canvas snapshot header", e);
+        }
+    }
+
+    /**
+     * Decodes {@code count} drawer-tagged segment records with no frame header, as produced by
+     * {@link #encodeSegmentRecords}.
+     *
+     * @throws IllegalArgumentException if the records are malformed or out of range.
+     */
+    public static List<DrawEvent> decodeSegmentRecords(ByteBuffer records, int count) {
+        try {
+            List<DrawEvent> drawEvents = new ArrayList<>(Math.min(count, 64));
+            for (int i = 0; i < count; i++) {
+                int idLength = readVarInt(records);
+                if (idLength > records.remaining()) {
+                    throw new IllegalArgumentException("Drawer id overruns frame");
+                }
+                byte[] drawerId = new byte[idLength];
+                records.get(drawerId);
+                drawEvents.add(readSegment(records, new String(drawerId, StandardCharsets.UTF_8)));
+            }
+            return drawEvents;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated segment records", e);
+        }
+    }
+
+    private static List<DrawEvent> decodeRecordsFrame(ByteBuffer frame, BinaryFrameType frameType) {
+        int count;
+        try {
+            expectFrameType(frame, frameType);
+            count = readVarInt(frame);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated " + frameType + " frame", e);
+        }
+        return decodeSegmentRecords(frame, count);
+    }
+
+    /**
+     * Encodes a single segment as a client {@link BinaryFrameType#DRAW_EVENT} frame.
+     */
+    public static byte[] encodeDrawEvent(DrawEvent drawEvent) {
+        ByteSink sink = new ByteSink(16 + drawEvent.getPoints().length * 2);
+        sink.writeByte(BinaryFrameType.DRAW_EVENT.getCode());
+        writeSegment(sink, drawEvent);
+        return sink.toByteArray();
+    }
+
+    /**
+     * Encodes segments as a server {@link BinaryFrameType#DRAW_BATCH} frame, in list order.
+     */
+    public static byte[] encodeDrawBatch(List<DrawEvent> drawEvents) {
+        ByteSink sink = new ByteSink(8 + estimateRecordsSize(drawEvents));
+        sink.writeByte(BinaryFrameType.DRAW_BATCH.getCode());
+        sink.writeVarInt(drawEvents.size());
+        writeRecords(sink, drawEvents);
+        return sink.toByteArray();
+    }
+
+    /**
+     * Encodes segments as the body of a batch-shaped frame: drawer-tagged segment records with no
+     * frame type or count, ready to be stitched into a {@link BinaryFrameType#CANVAS_SNAPSHOT}.
+     */
+    public static byte[] encodeSegmentRecords(List<DrawEvent> drawEvents) {
+        ByteSink sink = new ByteSink(estimateRecordsSize(drawEvents));
+        writeRecords(sink, drawEvents);
+        return sink.toByteArray();
+    }
+
+    /**
+     * Encodes the header of a {@link BinaryFrameType#CANVAS_SNAPSHOT} frame. The frame is this
+     * header followed by {@code segmentCount} pre-encoded segment records.
+     */
+    public static byte[] encodeCanvasSnapshotHeader(int segmentCount) {
+        ByteSink sink = new ByteSink(6);
+        sink.writeByte(BinaryFrameType.CANVAS_SNAPSHOT.getCode());
+        sink.writeVarInt(segmentCount);
+        return sink.toByteArray();
+    }
+
+    private static int estimateRecordsSize(List<DrawEvent> drawEvents) {
+        int estimate = 0;
+        for (DrawEvent drawEvent : drawEvents) {
+            estimate += 24 + drawEvent.getPoints().length * 2;
+        }
+        return estimate;
+    }
+
+    private static void writeRecords(ByteSink sink, List<DrawEvent> drawEvents) {
+        for (DrawEvent drawEvent : drawEvents) {
+            byte[] drawerId = drawEvent.getDrawerSessionId().getBytes(StandardCharsets.UTF_8);
+            sink.writeVarInt(drawerId.length);
+            sink.writeBytes(drawerId, 0, drawerId.length);
+            writeSegment(sink, drawEvent);
+        }
+    }
+
+    private static void expectFrameType(ByteBuffer frame, BinaryFrameType expected) {
+        BinaryFrameType frameType = BinaryFrameType.fromCode(frame.get());
+        if (frameType != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " frame but got " + frameType);
+        }
+    }
+
+    private static DrawEvent readSegment(ByteBuffer frame, String drawerSessionId) {
+        int strokeId = readVarInt(frame);
+        int flags = frame.get() & 0xFF;
+        int color = frame.getInt();
+        int width = frame.get() & 0xFF;
+        int pointCount = readVarInt(frame);
+
+        if (pointCount > MAX_POINTS_PER_EVENT) {
+            throw new IllegalArgumentException("Too many points in draw event: " + pointCount);
+        }
+        // Every coordinate takes at least one byte, so a short frame cannot claim a big allocation.
+        if (pointCount * 2 > frame.remaining()) {
+            throw new IllegalArgumentException("Point count overruns frame");
+        }
+
+        int[] points = new int[pointCount * 2];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            x += readZigZag(frame);
+            y += readZigZag(frame);
+            if (x < 0 || x > MAX_COORDINATE || y < 0 || y > MAX_COORDINATE) {
+                throw new IllegalArgumentException("Coordinate out of range");
+            }
+            points[i] = x;
+            points[i + 1] = y;
+        }
+
+        return new DrawEvent(drawerSessionId, strokeId, flags, color, width, points);
+    }
+
+    private static void writeSegment(ByteSink sink, DrawEvent drawEvent) {
+        int[] points = drawEvent.getPoints();
+
+        sink.writeVarInt(drawEvent.getStrokeId());
+        sink.writeByte((byte) drawEvent.getFlags());
+        sink.writeInt(drawEvent.getColor());
+        sink.writeByte((byte) drawEvent.getWidth());
+        sink.writeVarInt(points.length / 2);
+
+        int previousX = 0;
+        int previousY = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            sink.writeZigZag(points[i] - previousX);
+            sink.writeZigZag(points[i + 1] - previousY);
+            previousX = points[i];
+            previousY = points[i + 1];
+        }
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Negative varint");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    static int readZigZag(ByteBuffer buffer) {
+        int n = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            n |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (n >>> 1) ^ -(n & 1);
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * Minimal growable byte array with varint helpers.
+     */
+    static final class ByteSink {
+        private byte[] bytes;
+        private int size;
+
+        ByteSink(int initialCapacity) {
+            this.bytes = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        void writeByte(byte b) {
+            ensureCapacity(1);
+            bytes[size++] = b;
+        }
+
+        void writeBytes(byte[] source, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeZigZag(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.drawathang.game_server.util;
+
+import com.drawathang.game_server.contract.BinaryFrameType;
+import com.drawathang.game_server.metrics.GameServerMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes and decodes {@link BinaryFrameType#COMPRESSED} frames.
+ * <p>
+ * A compressed frame is {@code [0x04][kind][varint inflated length][raw DEFLATE data]}, where
+ * {@code kind} is {@link #TEXT} for a JSON message and {@link #BINARY} for a binary frame, which
+ * keeps its own leading type byte once inflated. Compression favors speed over size: payloads
+ * worth compressing are snapshots and lists, which shrink well at the fastest level.
+ * <p>
+ * Each thread keeps its own {@link Deflater} and scratch buffer, so compressing allocates only
+ * the finished frame.
+ */
+public class FrameCompressor {
+    public static final byte TEXT = 0;
+    public static final byte BINARY = 1;
+
+    /**
+     * A compressed frame must save at least this fraction of the payload to be worth inflating.
+     */
+    static final double MAX_RATIO = 0.9;
+
+    private static final ThreadLocal<Compressor> COMPRESSORS = ThreadLocal.withInitial(Compressor::new);
+
+    private static final class Compressor {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        byte[] scratch = new byte[64 * 1024];
+    }
+
+    // Prevent instantiation
+    private FrameCompressor() {}
+
+    /**
+     * Compresses a payload into a complete compressed frame.
+     *
+     * @param kind {@link #TEXT} or {@link #BINARY}.
+     * @return The frame, or null if compression does not save enough to be worth it.
+     */
+    public static byte[] compress(byte kind, byte[] payload) {
+        long startNanos = System.nanoTime();
+        Compressor compressor = COMPRESSORS.get();
+        Deflater deflater = compressor.deflater;
+
+        byte[] header = new byte[1 + 1 + 5];
+        header[0] = BinaryFrameType.COMPRESSED.getCode();
+        header[1] = kind;
+        int headerLength = 2 + writeVarInt(header, 2, payload.length);
+
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressor.scratch.length) {
+                compressor.scratch = Arrays.copyOf(compressor.scratch, compressor.scratch.length * 2);
+            }
+            length += deflater.deflate(compressor.scratch, length, compressor.scratch.length - length);
+        }
+
+        double ratio = (double) (headerLength + length) / payload.length;
+        GameServerMetrics.COMPRESSION_TIME.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        GameServerMetrics.COMPRESSION_RATIO.record(ratio);
+        if (ratio > MAX_RATIO) {
+            return null;
+        }
+
+        byte[] frame = new byte[headerLength + length];
+        System.arraycopy(header, 0, frame, 0, headerLength);
+        System.arraycopy(compressor.scratch, 0, frame, headerLength, length);
+        return frame;
+    }
+
+    /**
+     * The kind of payload a compressed frame carries, {@link #TEXT} or {@link #BINARY}.
+     */
+    public static byte kindOf(ByteBuffer frame) {
+        return frame.get(frame.position() + 1);
+    }
+
+    /**
+     * Inflates a compressed frame back to the payload it was made from.
+     *
+     * @throws IllegalArgumentException if the frame is not a well-formed compressed frame.
+     */
+    public static byte[] decompress(ByteBuffer frame) {
+        ByteBuffer buffer = frame.duplicate();
+        if (BinaryFrameType.fromCode(buffer.get()) != BinaryFrameType.COMPRESSED) {
+            throw new IllegalArgumentException("Not a compressed frame");
+        }
+        buffer.get();
+        int length = DrawEventCodec.readVarInt(buffer);
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative inflated length");
+        }
+
+        byte[] payload = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(buffer);
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int n = inflater.inflate(payload, inflated, length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != length) {
+                throw new IllegalArgumentException("Compressed frame inflates to " + inflated + " bytes, expected " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed compressed frame", e);
+        } finally {
+            inflater.end();
+        }
+        return payload;
+    }
+
+    /**
+     * Writes {@code value} as an unsigned LEB128 varint.
+     *
+     * @return The number of bytes written.
+     */
+    private static int writeVarInt(byte[] buffer, int offset, int value) {
+        int i = offset;
+        while ((value & ~0x7F) != 0) {
+            buffer[i++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[i++] = (byte) value;
+        return i - offset;
+    }
+}
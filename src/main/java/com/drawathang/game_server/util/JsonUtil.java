@@ -18,6 +18,15 @@ public class JsonUtil {
         }
     }
 
+    // Convert object to UTF-8 JSON bytes, ready to send without re-encoding
+    public static byte[] toJsonBytes(Object object) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize object to JSON", e);
+        }
+    }
+
     public static <T> T fromJson(String json, Class<T> classType) {
         try {
             return OBJECT_MAPPER.readValue(json, classType);
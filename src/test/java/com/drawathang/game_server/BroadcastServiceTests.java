@@ -0,0 +1,355 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.communication.OutboundMessageClass;
+import com.drawathang.game_server.communication.RemoteDelivery;
+import com.drawathang.game_server.contract.BinaryFrameType;
+import com.drawathang.game_server.util.FrameCompressor;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BroadcastServiceTests {
+
+    private static final int CONNECTIONS = 10_000;
+
+    private final BroadcastService broadcastService = new BroadcastService();
+    private final List<String> registeredIds = new ArrayList<>();
+
+    @AfterEach
+    void unregisterAll() {
+        registeredIds.forEach(broadcastService::unregisterSession);
+    }
+
+    /**
+     * Builds a bare-bones session that counts down the latch on every message it is asked to send.
+     */
+    private WebSocketSession stubSession(String id, CountDownLatch sent, AtomicBoolean open) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> open.get();
+                    case "sendMessage" -> {
+                        sent.countDown();
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                });
+    }
+
+    /**
+     * Builds a session that stops reading: its first send blocks until {@code release} opens,
+     * so everything broadcast after it piles up in the outbound queue.
+     */
+    private WebSocketSession stalledSession(String id, CountDownLatch sendStarted, CountDownLatch release,
+                                            AtomicReference<CloseStatus> closedWith) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> closedWith.get() == null;
+                    case "sendMessage" -> {
+                        sendStarted.countDown();
+                        release.await();
+                        yield null;
+                    }
+                    case "close" -> {
+                        closedWith.set((CloseStatus) args[0]);
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StalledSession[" + id + "]";
+                    default -> null;
+                });
+    }
+
+    /**
+     * Registers a stalled session and parks its writer on a first message.
+     */
+    private void registerStalled(String id, int capacity, CountDownLatch release,
+                                 AtomicReference<CloseStatus> closedWith) throws InterruptedException {
+        CountDownLatch sendStarted = new CountDownLatch(1);
+        registeredIds.add(id);
+        broadcastService.registerSession(stalledSession(id, sendStarted, release, closedWith), capacity);
+        broadcastService.broadcast(List.of(id), Map.of("event", "PING"));
+        assertTrue(sendStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testStaleDrawBatchesAreDroppedWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        registerStalled("slow-drawer", 8, release, closedWith);
+
+        for (int i = 0; i < 100; i++) {
+            broadcastService.broadcastBinary(List.of("slow-drawer"), new byte[]{0x02, (byte) i});
+        }
+
+        assertEquals(8, broadcastService.getQueuedMessageCount("slow-drawer"));
+        assertNull(closedWith.get(), "Dropping draw batches should not close the session");
+        release.countDown();
+    }
+
+    @Test
+    void testQueuedSnapshotsAreCollapsed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        registerStalled("slow-snapshots", 8, release, closedWith);
+
+        for (int i = 0; i < 20; i++) {
+            broadcastService.broadcast(List.of("slow-snapshots"),
+                    Map.of("event", "ROOM_SNAPSHOT", "seq", i), OutboundMessageClass.ROOM_SNAPSHOT);
+            broadcastService.broadcast(List.of("slow-snapshots"),
+                    Map.of("event", "ROOMS_SNAPSHOT", "roomsVersion", i), OutboundMessageClass.ROOMS_SNAPSHOT);
+        }
+
+        assertEquals(2, broadcastService.getQueuedMessageCount("slow-snapshots"),
+                "Only the latest snapshot of each kind should stay queued");
+        assertNull(closedWith.get());
+        release.countDown();
+    }
+
+    @Test
+    void testEventOverflowShedsDrawBatchesThenClosesSession() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        registerStalled("slow-events", 4, release, closedWith);
+
+        for (int i = 0; i < 4; i++) {
+            broadcastService.broadcastBinary(List.of("slow-events"), new byte[]{0x02, (byte) i});
+        }
+        for (int i = 0; i < 4; i++) {
+            broadcastService.broadcast(List.of("slow-events"), Map.of("event", "GUESS_ADDED", "seq", i));
+        }
+        assertEquals(4, broadcastService.getQueuedMessageCount("slow-events"), "Events should displace draw batches");
+        assertNull(closedWith.get());
+
+        broadcastService.broadcast(List.of("slow-events"), Map.of("event", "GUESS_ADDED", "seq", 4));
+        assertEquals(0, broadcastService.getQueuedMessageCount("slow-events"), "Overflowed queue should be discarded");
+
+        // The close happens on the writer once the stalled send returns.
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (closedWith.get() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE.getCode(), closedWith.get().getCode());
+    }
+
+    @Test
+    void testRequestedCloseSurvivesUnregistering() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        registerStalled("reaped", 4, release, closedWith);
+
+        // Like an idle reap: the close is requested, then the session is cleaned up at once.
+        broadcastService.closeSession("reaped", CloseStatus.SESSION_NOT_RELIABLE);
+        broadcastService.unregisterSession("reaped");
+        assertNull(closedWith.get());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (closedWith.get() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertSame(CloseStatus.SESSION_NOT_RELIABLE, closedWith.get());
+    }
+
+    @Test
+    void testThreadCountStaysFlatAtTenThousandConnections() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+
+        AtomicBoolean open = new AtomicBoolean(true);
+        CountDownLatch sent = new CountDownLatch(CONNECTIONS * 2);
+
+        for (int i = 0; i < CONNECTIONS; i++) {
+            String id = "load-" + i;
+            registeredIds.add(id);
+            broadcastService.registerSession(stubSession(id, sent, open));
+        }
+        assertEquals(CONNECTIONS, broadcastService.getRegisteredSessionCount());
+
+        broadcastService.broadcast(registeredIds, Map.of("event", "PING", "n", 1));
+        broadcastService.broadcast(registeredIds, Map.of("event", "PING", "n", 2));
+        assertTrue(sent.await(10, TimeUnit.SECONDS), "Every session should have been sent both messages");
+
+        int threadsAfter = threads.getThreadCount();
+
+        // Virtual thread carriers are bounded by the core count, never by the connection count.
+        int allowedGrowth = Runtime.getRuntime().availableProcessors() + 16;
+        assertTrue(threadsAfter - threadsBefore <= allowedGrowth,
+                "Platform thread count should not grow with connections, grew by " + (threadsAfter - threadsBefore));
+
+        open.set(false);
+        registeredIds.forEach(broadcastService::unregisterSession);
+        assertEquals(0, broadcastService.getRegisteredSessionCount(), "Senders should be reclaimed on unregister");
+    }
+
+    @Test
+    void testBroadcastSkipsUnregisteredSessions() throws Exception {
+        AtomicBoolean open = new AtomicBoolean(true);
+        CountDownLatch sent = new CountDownLatch(1);
+
+        registeredIds.add("registered");
+        broadcastService.registerSession(stubSession("registered", sent, open));
+
+        broadcastService.broadcast(List.of("registered", "never-registered"), Map.of("event", "PING"));
+        assertTrue(sent.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRemoteRecipientsAreHandedOffOncePerNode() throws Exception {
+        AtomicBoolean open = new AtomicBoolean(true);
+        CountDownLatch sent = new CountDownLatch(1);
+        registeredIds.add("local");
+        broadcastService.registerSession(stubSession("local", sent, open));
+
+        List<List<String>> handedOff = new ArrayList<>();
+        AtomicReference<byte[]> payload = new AtomicReference<>();
+        RemoteDelivery otherNode = (recipients, bytes, binary, messageClass) -> {
+            handedOff.add(recipients);
+            payload.set(bytes);
+        };
+        broadcastService.registerRemoteSession("remote-1", otherNode);
+        broadcastService.registerRemoteSession("remote-2", otherNode);
+        try {
+            broadcastService.broadcastBinary(List.of("local", "remote-1", "remote-2"), new byte[]{1, 2, 3});
+
+            assertTrue(sent.await(1, TimeUnit.SECONDS));
+            assertEquals(List.of(List.of("remote-1", "remote-2")), handedOff);
+            assertArrayEquals(new byte[]{1, 2, 3}, payload.get());
+        } finally {
+            broadcastService.unregisterRemoteSession("remote-1");
+            broadcastService.unregisterRemoteSession("remote-2");
+        }
+    }
+
+    /**
+     * Builds a session that records every message it is sent.
+     */
+    private WebSocketSession recordingSession(String id, List<WebSocketMessage<?>> received, CountDownLatch sent) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        received.add((WebSocketMessage<?>) args[0]);
+                        sent.countDown();
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                });
+    }
+
+    @Test
+    void testLargePayloadsAreCompressedOnceForSessionsThatAcceptIt() throws Exception {
+        CountDownLatch sent = new CountDownLatch(6);
+        List<WebSocketMessage<?>> first = Collections.synchronizedList(new ArrayList<>());
+        List<WebSocketMessage<?>> second = Collections.synchronizedList(new ArrayList<>());
+        List<WebSocketMessage<?>> plain = Collections.synchronizedList(new ArrayList<>());
+        registeredIds.addAll(List.of("first", "second", "plain"));
+        broadcastService.registerSession(recordingSession("first", first, sent), 16, 1024);
+        broadcastService.registerSession(recordingSession("second", second, sent), 16, 1024);
+        broadcastService.registerSession(recordingSession("plain", plain, sent), 16);
+
+        List<Map<String, Object>> rooms = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rooms.add(Map.of("roomId", "room-" + i, "roomName", "Room " + i, "participantCount", i % 8));
+        }
+        Map<String, Object> large = Map.of("event", "ROOMS_SNAPSHOT", "rooms", rooms);
+        Map<String, Object> small = Map.of("event", "USER_JOINED");
+        List<String> recipients = List.of("first", "second", "plain");
+        broadcastService.broadcast(recipients, large, OutboundMessageClass.ROOMS_SNAPSHOT);
+        broadcastService.broadcast(recipients, small);
+
+        assertTrue(sent.await(1, TimeUnit.SECONDS));
+        byte[] json = JsonUtil.toJsonBytes(large);
+
+        // Both compressing sessions share the bytes of one compressed frame.
+        ByteBuffer frame = ((BinaryMessage) first.get(0)).getPayload();
+        assertSame(frame.array(), ((BinaryMessage) second.get(0)).getPayload().array());
+        assertEquals(BinaryFrameType.COMPRESSED.getCode(), frame.get(0));
+        assertEquals(FrameCompressor.TEXT, FrameCompressor.kindOf(frame));
+        assertTrue(frame.remaining() < json.length / 4, "Compressed to " + frame.remaining() + " of " + json.length);
+        assertArrayEquals(json, FrameCompressor.decompress(frame));
+
+        // Small payloads and sessions that did not ask get plain text.
+        assertTrue(first.get(1) instanceof TextMessage);
+        assertTrue(plain.get(0) instanceof TextMessage);
+        assertArrayEquals(json, ((TextMessage) plain.get(0)).asBytes());
+    }
+
+    @Test
+    void testParallelFanOutKeepsEachSessionsOrder() throws Exception {
+        int sessions = 5_000;
+        int messages = 20;
+        CountDownLatch sent = new CountDownLatch((sessions - 1) * messages);
+        List<List<WebSocketMessage<?>>> received = new ArrayList<>();
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            String id = "fan-out-" + i;
+            List<WebSocketMessage<?>> messagesReceived = Collections.synchronizedList(new ArrayList<>());
+            received.add(messagesReceived);
+            recipients.add(id);
+            registeredIds.add(id);
+            broadcastService.registerSession(recordingSession(id, messagesReceived, sent), messages);
+        }
+
+        broadcastService.setParallelFanOutThreshold(64);
+        try {
+            for (int i = 0; i < messages; i++) {
+                broadcastService.broadcastExcept(recipients, "fan-out-0", Map.of("event", "TICK", "n", i));
+            }
+            assertTrue(sent.await(10, TimeUnit.SECONDS));
+        } finally {
+            broadcastService.setParallelFanOutThreshold(BroadcastService.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD);
+        }
+
+        assertTrue(received.get(0).isEmpty(), "The excluded session should get nothing");
+        for (int i = 1; i < sessions; i++) {
+            List<WebSocketMessage<?>> messagesReceived = received.get(i);
+            assertEquals(messages, messagesReceived.size());
+            for (int n = 0; n < messages; n++) {
+                Map<?, ?> event = JsonUtil.fromJson(((TextMessage) messagesReceived.get(n)).getPayload(), Map.class);
+                assertEquals(n, ((Number) event.get("n")).intValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.CanvasHistory;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.util.DrawEventCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CanvasHistoryTests {
+
+    /**
+     * Draws {@code strokes} strokes of {@code segmentsPerStroke} segments each, the way a client
+     * would send them, flushed in batches of {@code batchSize}.
+     */
+    private static List<DrawEvent> drawStrokes(CanvasHistory canvas, String drawer, int strokes, int segmentsPerStroke, int batchSize) {
+        List<DrawEvent> drawn = new ArrayList<>();
+        List<DrawEvent> batch = new ArrayList<>();
+        for (int stroke = 0; stroke < strokes; stroke++) {
+            for (int segment = 0; segment < segmentsPerStroke; segment++) {
+                int flags = (segment == 0 ? DrawEvent.FLAG_STROKE_START : 0)
+                        | (segment == segmentsPerStroke - 1 ? DrawEvent.FLAG_STROKE_END : 0);
+                int x = stroke * 10 + segment;
+                DrawEvent drawEvent = new DrawEvent(drawer, stroke, flags, 0xFF112233, 4, new int[]{x, x + 1, x + 2, x + 3});
+                drawn.add(drawEvent);
+                batch.add(drawEvent);
+                if (batch.size() == batchSize) {
+                    canvas.append(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        canvas.append(batch);
+        return drawn;
+    }
+
+    /**
+     * Concatenated points of every stroke, keyed by drawer and stroke id, in drawing order.
+     */
+    private static Map<String, List<Integer>> pointsByStroke(List<DrawEvent> segments) {
+        Map<String, List<Integer>> strokes = new LinkedHashMap<>();
+        for (DrawEvent segment : segments) {
+            List<Integer> points = strokes.computeIfAbsent(segment.getDrawerSessionId() + "/" + segment.getStrokeId(), key -> new ArrayList<>());
+            for (int coordinate : segment.getPoints()) {
+                points.add(coordinate);
+            }
+        }
+        return strokes;
+    }
+
+    @Test
+    void testEmptyCanvas() {
+        CanvasHistory canvas = new CanvasHistory(new StrokeSegmentPool());
+        assertTrue(canvas.isEmpty());
+        assertEquals(0, DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(canvas.encodeSnapshot())).size());
+    }
+
+    @Test
+    void testSnapshotKeepsEveryStrokeAndCompactsSegments() {
+        CanvasHistory canvas = new CanvasHistory(new StrokeSegmentPool());
+        List<DrawEvent> drawn = new ArrayList<>();
+        drawn.addAll(drawStrokes(canvas, "alice", 200, 20, 7));
+        drawn.addAll(drawStrokes(canvas, "bob", 50, 3, 5));
+
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(canvas.encodeSnapshot()));
+        assertEquals(canvas.getSegmentCount(), snapshot.size());
+        assertTrue(snapshot.size() < drawn.size() / 4,
+                "Compaction should merge segments: " + snapshot.size() + " records for " + drawn.size() + " segments");
+
+        Map<String, List<Integer>> expected = pointsByStroke(drawn);
+        Map<String, List<Integer>> actual = pointsByStroke(snapshot);
+        assertEquals(expected, actual, "Every point of every stroke should survive compaction, in order");
+    }
+
+    @Test
+    void testLongStrokeIsSplitWithinWireLimits() {
+        CanvasHistory canvas = new CanvasHistory(new StrokeSegmentPool());
+        // One stroke far longer than a single wire segment allows
+        drawStrokes(canvas, "alice", 1, 600, 10);
+
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(canvas.encodeSnapshot()));
+        int points = 0;
+        for (DrawEvent segment : snapshot) {
+            assertTrue(segment.getPointCount() <= DrawEventCodec.MAX_POINTS_PER_EVENT);
+            points += segment.getPointCount();
+        }
+        assertEquals(600 * 2, points);
+        assertTrue(snapshot.get(0).isStrokeStart());
+        assertTrue(snapshot.get(snapshot.size() - 1).isStrokeEnd());
+    }
+
+    @Test
+    void testSnapshotEndsWithLatestSegment() {
+        CanvasHistory canvas = new CanvasHistory(new StrokeSegmentPool());
+        List<DrawEvent> drawn = drawStrokes(canvas, "alice", 2000, 10, 8);
+
+        byte[] frame = canvas.encodeSnapshot();
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(frame));
+        assertEquals(2000, pointsByStroke(snapshot).size());
+        assertTrue(snapshot.size() < drawn.size() / 4);
+
+        DrawEvent last = drawn.get(drawn.size() - 1);
+        DrawEvent lastInSnapshot = snapshot.get(snapshot.size() - 1);
+        assertEquals(last.getStrokeId(), lastInSnapshot.getStrokeId());
+        assertArrayEquals(new int[]{last.getX(1), last.getY(1)},
+                new int[]{lastInSnapshot.getX(lastInSnapshot.getPointCount() - 1), lastInSnapshot.getY(lastInSnapshot.getPointCount() - 1)});
+    }
+
+    @Test
+    void testSmallSegmentsSpanRecordsAndAreReleasedInBulk() {
+        // Segments far smaller than a batch, so records straddle segment boundaries
+        StrokeSegmentPool pool = new StrokeSegmentPool(64, 1024);
+        CanvasHistory canvas = new CanvasHistory(pool);
+        List<DrawEvent> drawn = drawStrokes(canvas, "alice", 300, 5, 9);
+        assertTrue(pool.getBytesInUse() > 64);
+
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(canvas.encodeSnapshot()));
+        assertEquals(pointsByStroke(drawn), pointsByStroke(snapshot));
+
+        canvas.release();
+        assertTrue(canvas.isEmpty());
+        assertEquals(0, pool.getBytesInUse(), "Every segment should go back to the pool");
+        assertTrue(pool.getBytesPooled() > 0);
+
+        // Released segments are reused by the next history
+        long pooled = pool.getBytesPooled();
+        CanvasHistory next = new CanvasHistory(pool);
+        drawStrokes(next, "bob", 1, 2, 2);
+        assertEquals(pooled - 64, pool.getBytesPooled());
+    }
+
+    @Test
+    void testStrokeCutAcrossCompactionsIsMergedWhole() {
+        CanvasHistory canvas = new CanvasHistory(new StrokeSegmentPool());
+        // One stroke of two-point segments that runs through twenty compactions, and no further.
+        int segments = 20 * 256;
+        drawStrokes(canvas, "alice", 1, segments, 8);
+
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(canvas.encodeSnapshot()));
+        int points = segments * 2;
+        int fewestRecords = (points + DrawEventCodec.MAX_POINTS_PER_EVENT - 1) / DrawEventCodec.MAX_POINTS_PER_EVENT;
+        // The log was last rewritten after sixteen compactions; each one since added a record.
+        assertTrue(snapshot.size() <= fewestRecords + 4,
+                snapshot.size() + " records for a stroke that fits in " + fewestRecords);
+        assertEquals(points, snapshot.stream().mapToInt(DrawEvent::getPointCount).sum());
+    }
+
+    @Test
+    void testLongDrawingStaysBounded() {
+        int maxBytes = 64 * 1024;
+        StrokeSegmentPool pool = new StrokeSegmentPool(4 * 1024, 0);
+        CanvasHistory canvas = new CanvasHistory(pool, maxBytes);
+
+        // Far more drawing than the cap holds: about ten times as much once compacted.
+        int strokes = 6_000;
+        List<DrawEvent> drawn = drawStrokes(canvas, "alice", strokes, 20, 10);
+
+        byte[] frame = canvas.encodeSnapshot();
+        // The tail holds at most one compaction's worth of segments on top of the cap.
+        int tailBytes = recordBytes(drawn.get(0)) * 256;
+        assertTrue(frame.length <= maxBytes + tailBytes + 16, "Snapshot of " + frame.length + " bytes");
+        assertTrue(pool.getBytesInUse() <= maxBytes + tailBytes + 2 * 4 * 1024,
+                "Canvas holds " + pool.getBytesInUse() + " bytes of direct memory");
+
+        // The oldest strokes were dropped whole; the latest ones are all there, point for point.
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(frame));
+        Map<String, List<Integer>> kept = pointsByStroke(snapshot);
+        Map<String, List<Integer>> expected = pointsByStroke(drawn);
+        assertTrue(kept.size() < strokes);
+        assertTrue(kept.containsKey("alice/" + (strokes - 1)));
+        kept.forEach((stroke, points) -> assertEquals(expected.get(stroke), points, stroke));
+    }
+
+    @Test
+    void testSnapshotFrameIsSharedUntilTheCanvasChanges() {
+        StrokeSegmentPool pool = new StrokeSegmentPool();
+        CanvasHistory canvas = new CanvasHistory(pool);
+        drawStrokes(canvas, "alice", 300, 20, 7);
+        long inUse = pool.getBytesInUse();
+
+        ByteBuffer frame = canvas.snapshotFrame();
+        assertFalse(frame.isDirect(), "The frame should not take direct memory outside the pool");
+        assertTrue(frame.isReadOnly());
+        assertEquals(ByteBuffer.wrap(canvas.encodeSnapshot()), frame);
+        assertEquals(inUse, pool.getBytesInUse(), "The frame should not come out of the pool");
+
+        // Reading one join's frame leaves the next one whole.
+        DrawEventCodec.decodeCanvasSnapshot(frame);
+        assertEquals(ByteBuffer.wrap(canvas.encodeSnapshot()), canvas.snapshotFrame());
+
+        drawStrokes(canvas, "bob", 1, 2, 2);
+        List<DrawEvent> snapshot = DrawEventCodec.decodeCanvasSnapshot(canvas.snapshotFrame());
+        assertTrue(pointsByStroke(snapshot).containsKey("bob/0"), "A change should rebuild the frame");
+    }
+
+    /**
+     * Encoded size of one segment record.
+     */
+    private static int recordBytes(DrawEvent segment) {
+        return DrawEventCodec.encodeSegmentRecords(List.of(segment)).length;
+    }
+}
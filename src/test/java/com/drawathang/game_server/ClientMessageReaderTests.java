@@ -0,0 +1,105 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.contract.ClientMessage;
+import com.drawathang.game_server.contract.ClientMessageType;
+import com.drawathang.game_server.util.ClientMessageReader;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientMessageReaderTests {
+
+    @Test
+    void testEveryTypeRoundTrips() {
+        for (ClientMessageType type : ClientMessageType.values()) {
+            ClientMessage message = ClientMessageReader.read(JsonUtil.toJson(new ClientMessage(type)));
+            assertEquals(type, message.getType());
+        }
+    }
+
+    @Test
+    void testFieldsBindInAnyOrder() {
+        ClientMessage message = ClientMessageReader.read("{\"guess\":\"cat\",\"extra\":{\"a\":[1,2]},\"type\":\"SUBMIT_GUESS\"}");
+        assertEquals(ClientMessageType.SUBMIT_GUESS, message.getType());
+        assertEquals("cat", message.getGuess());
+
+        message = ClientMessageReader.read("{\"type\":\"SYNC_ROOMS\",\"roomsVersion\":42}");
+        assertEquals(Long.valueOf(42), message.getRoomsVersion());
+    }
+
+    @Test
+    void testNullsAndWrongShapesReadAsMissing() {
+        ClientMessage message = ClientMessageReader.read("{\"type\":\"CREATE_ROOM\",\"roomName\":null}");
+        assertEquals(ClientMessageType.CREATE_ROOM, message.getType());
+        assertNull(message.getRoomName());
+
+        message = ClientMessageReader.read("{\"type\":\"SYNC_ROOMS\",\"roomsVersion\":\"7\"}");
+        assertNull(message.getRoomsVersion());
+
+        message = ClientMessageReader.read("{\"type\":\"JOIN_ROOM\",\"roomId\":[\"a\"]}");
+        assertNull(message.getRoomId());
+    }
+
+    @Test
+    void testNestedValuesAreSkippedWhole() {
+        ClientMessage message = ClientMessageReader.read(
+                "{\"roomsVersion\":{\"type\":\"LEAVE_SERVER\",\"roomsVersion\":9},\"type\":\"SYNC_ROOMS\"}");
+        assertEquals(ClientMessageType.SYNC_ROOMS, message.getType());
+        assertNull(message.getRoomsVersion());
+
+        message = ClientMessageReader.read("{\"type\":\"SYNC_ROOMS\",\"roomsVersion\":[1,{\"guess\":\"x\"}],\"guess\":\"cat\"}");
+        assertNull(message.getRoomsVersion());
+        assertEquals("cat", message.getGuess());
+    }
+
+    @Test
+    void testUnknownOrMissingTypeReadsAsNull() {
+        assertNull(ClientMessageReader.read("{\"type\":\"DRAW_EVENT\"}").getType());
+        assertNull(ClientMessageReader.read("{\"type\":null}").getType());
+        assertNull(ClientMessageReader.read("{}").getType());
+    }
+
+    @Test
+    void testMalformedMessagesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ClientMessageReader.read("[]"));
+        assertThrows(IllegalArgumentException.class, () -> ClientMessageReader.read("{\"type\":\"JOIN_SERVER\""));
+        assertThrows(IllegalArgumentException.class, () -> ClientMessageReader.read("not json"));
+        assertThrows(IllegalArgumentException.class, () -> ClientMessageReader.read(""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAllocatesLessThanMapBinding() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String json = JsonUtil.toJson(Map.of("type", "SUBMIT_GUESS", "guess", "a reasonably long guess"));
+        int iterations = 200_000;
+
+        // Warm up both paths so class loading and JIT do not count
+        for (int i = 0; i < iterations; i++) {
+            ClientMessageReader.read(json);
+            JsonUtil.fromJson(json, Map.class);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            ClientMessageReader.read(json);
+        }
+        long streamingBytes = (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            JsonUtil.fromJson(json, Map.class);
+        }
+        long mapBytes = (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+
+        assertTrue(streamingBytes < mapBytes, "Streaming dispatch allocated " + streamingBytes
+                + " bytes per message, binding to a Map " + mapBytes);
+    }
+}
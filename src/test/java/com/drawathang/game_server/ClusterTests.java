@@ -0,0 +1,235 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.cluster.ClusterBus;
+import com.drawathang.game_server.cluster.ClusterMessage;
+import com.drawathang.game_server.cluster.InProcessClusterBus;
+import com.drawathang.game_server.services.GameServer;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.WordBank;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two game-server nodes in one process over an in-process cluster bus, without Spring or real sockets.
+ */
+public class ClusterTests {
+
+    private static final int ROOMS = 20;
+
+    private GameServer nodeA;
+    private GameServer nodeB;
+    private final Map<String, GameServer> registeredIds = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentLinkedQueue<Map<String, Object>>> received = new ConcurrentHashMap<>();
+
+    /**
+     * Session ids each node was asked to deliver to by another node.
+     */
+    private final Map<String, ConcurrentLinkedQueue<String>> forwardedTo = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        InProcessClusterBus.Network network = new InProcessClusterBus.Network();
+        ClusterBus busA = recordingDeliveries(network.join("node-a"));
+        ClusterBus busB = recordingDeliveries(network.join("node-b"));
+        nodeA = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION, WordBank.DEFAULT_LOCALE, busA);
+        nodeB = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION, WordBank.DEFAULT_LOCALE, busB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registeredIds.forEach((id, node) -> node.getBroadcastService().unregisterSession(id));
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    /**
+     * Wraps a node's bus to note the recipients of every {@link ClusterMessage.Deliver} it receives.
+     */
+    private ClusterBus recordingDeliveries(InProcessClusterBus bus) {
+        ConcurrentLinkedQueue<String> recipients = new ConcurrentLinkedQueue<>();
+        forwardedTo.put(bus.getLocalNodeId(), recipients);
+        return new ClusterBus() {
+            @Override
+            public String getLocalNodeId() {
+                return bus.getLocalNodeId();
+            }
+
+            @Override
+            public Set<String> getNodeIds() {
+                return bus.getNodeIds();
+            }
+
+            @Override
+            public void publish(ClusterMessage message) {
+                bus.publish(message);
+            }
+
+            @Override
+            public void send(String nodeId, ClusterMessage message) {
+                bus.send(nodeId, message);
+            }
+
+            @Override
+            public void subscribe(Handler handler) {
+                bus.subscribe((fromNodeId, message) -> {
+                    if (message instanceof ClusterMessage.Deliver deliver) {
+                        recipients.addAll(deliver.recipients());
+                    }
+                    handler.onMessage(fromNodeId, message);
+                });
+            }
+
+            @Override
+            public void close() {
+                bus.close();
+            }
+        };
+    }
+
+    /**
+     * Registers a session that records every event it is sent.
+     */
+    private void connect(GameServer node, String id) {
+        ConcurrentLinkedQueue<Map<String, Object>> events = new ConcurrentLinkedQueue<>();
+        received.put(id, events);
+        registeredIds.put(id, node);
+        node.getBroadcastService().registerSession((WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        if (args[0] instanceof TextMessage text) {
+                            events.add(JsonUtil.fromJson(text.getPayload(), Map.class));
+                        }
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                }));
+        node.joinServer(id);
+    }
+
+    private List<Map<String, Object>> events(String sessionId, String event) {
+        return received.get(sessionId).stream().filter(e -> event.equals(e.get("event"))).toList();
+    }
+
+    /**
+     * Ids of the rooms the session has seen added to the lobby.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> listedRooms(String sessionId) {
+        Set<String> rooms = ConcurrentHashMap.newKeySet();
+        for (Map<String, Object> delta : events(sessionId, "ROOMS_DELTA")) {
+            for (Map<String, Object> room : (List<Map<String, Object>>) delta.get("added")) {
+                rooms.add((String) room.get("roomId"));
+            }
+        }
+        return rooms;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+
+    @Test
+    void testPresenceIsReplicated() throws InterruptedException {
+        connect(nodeA, "a-1");
+        connect(nodeA, "a-2");
+        connect(nodeB, "b-1");
+
+        awaitCondition(() -> nodeA.getSessionsCount() == 3 && nodeB.getSessionsCount() == 3);
+
+        nodeA.disconnect("a-2");
+        awaitCondition(() -> nodeA.getSessionsCount() == 2 && nodeB.getSessionsCount() == 2);
+        assertEquals(1, nodeA.getLobbySessionsCount());
+        assertEquals(1, nodeB.getLobbySessionsCount());
+    }
+
+    @Test
+    void testRoomsAreSpreadAcrossNodesAndListedEverywhere() throws InterruptedException {
+        connect(nodeA, "lobby-a");
+        connect(nodeB, "lobby-b");
+        for (int i = 0; i < ROOMS; i++) {
+            connect(nodeA, "host-" + i);
+            nodeA.createRoom("host-" + i, "Room " + i);
+        }
+
+        awaitCondition(() -> nodeA.getRoomsCount() + nodeB.getRoomsCount() == ROOMS);
+        assertTrue(nodeA.getRoomsCount() > 0 && nodeB.getRoomsCount() > 0,
+                "Rooms should land on both nodes: " + nodeA.getRoomsCount() + " / " + nodeB.getRoomsCount());
+
+        awaitCondition(() -> listedRooms("lobby-a").size() == ROOMS && listedRooms("lobby-b").size() == ROOMS);
+        // Every host got their room's snapshot, wherever the room lives.
+        for (int i = 0; i < ROOMS; i++) {
+            String hostId = "host-" + i;
+            awaitCondition(() -> !events(hostId, "ROOM_SNAPSHOT").isEmpty());
+        }
+    }
+
+    @Test
+    void testPlayersOnBothNodesShareARoom() throws InterruptedException {
+        connect(nodeB, "guest");
+        // Keep creating rooms from node A until one lands on node B, so every command from the
+        // host is forwarded.
+        String hostId = null;
+        for (int i = 0; hostId == null && i < 64; i++) {
+            String candidate = "host-" + i;
+            connect(nodeA, candidate);
+            int before = nodeB.getRoomsCount();
+            nodeA.createRoom(candidate, "Room " + i);
+            awaitCondition(() -> nodeA.getRoomsCount() + nodeB.getRoomsCount() > 0
+                    && !events(candidate, "ROOM_SNAPSHOT").isEmpty());
+            if (nodeB.getRoomsCount() > before) {
+                hostId = candidate;
+            }
+        }
+        assertTrue(hostId != null, "No room landed on node B");
+
+        String host = hostId;
+        String roomId = (String) events(host, "ROOM_SNAPSHOT").get(0).get("roomId");
+        awaitCondition(() -> listedRooms("guest").contains(roomId));
+        int lobbyBefore = nodeA.getLobbySessionsCount();
+
+        nodeB.joinRoom("guest", roomId);
+        awaitCondition(() -> !events(host, "PLAYER_JOINED").isEmpty());
+
+        // The host's guess goes from node A to the room on node B, and reaches the guest. Node B
+        // only knows the host's connection through node A, so the host's copy comes back over the bus.
+        nodeA.submitGuess(host, "hello");
+        awaitCondition(() -> events("guest", "GUESS_ADDED").stream().anyMatch(e -> "hello".equals(e.get("guess"))));
+        awaitCondition(() -> events(host, "GUESS_ADDED").stream().anyMatch(e -> "hello".equals(e.get("guess"))));
+        assertFalse(nodeB.getBroadcastService().isRegistered(host));
+        assertTrue(forwardedTo.get("node-a").contains(host), "Node A should have been asked to deliver to the host");
+        assertFalse(forwardedTo.get("node-b").contains("guest"), "The guest is local to the room and never forwarded");
+
+        // Leaving puts the host back in node A's lobby.
+        nodeA.leaveRoom(host);
+        awaitCondition(() -> nodeA.getLobbySessionsCount() == lobbyBefore + 1);
+        awaitCondition(() -> !events(host, "ROOMS_SNAPSHOT").isEmpty());
+    }
+}
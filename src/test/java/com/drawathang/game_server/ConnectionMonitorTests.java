@@ -0,0 +1,202 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.communication.ConnectionMonitor;
+import com.drawathang.game_server.communication.InboundRateLimiter;
+import com.drawathang.game_server.services.GameServer;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.WordBank;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Heartbeats, idle reaping and disconnect cleanup, without Spring or real sockets.
+ */
+public class ConnectionMonitorTests {
+
+    private static final int HEARTBEAT_MILLIS = 20;
+    private static final int IDLE_TIMEOUT_MILLIS = 150;
+
+    private GameServer gameServer;
+    private InboundRateLimiter rateLimiter;
+    private ConnectionMonitor connectionMonitor;
+    private final List<String> registeredIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        gameServer = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION, WordBank.DEFAULT_LOCALE);
+        rateLimiter = new InboundRateLimiter(InboundRateLimiter.DEFAULT_DRAW_BURST, InboundRateLimiter.DEFAULT_DRAW_PER_SECOND,
+                InboundRateLimiter.DEFAULT_GUESS_BURST, InboundRateLimiter.DEFAULT_GUESS_PER_SECOND,
+                InboundRateLimiter.DEFAULT_CONTROL_BURST, InboundRateLimiter.DEFAULT_CONTROL_PER_SECOND,
+                InboundRateLimiter.DEFAULT_DISCONNECT_AFTER);
+        connectionMonitor = new ConnectionMonitor(gameServer, rateLimiter, HEARTBEAT_MILLIS, IDLE_TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionMonitor.shutdown();
+        registeredIds.forEach(gameServer.getBroadcastService()::unregisterSession);
+        gameServer.shutdown();
+    }
+
+    /**
+     * Builds a session that counts the pings it is sent, answering each with a pong if asked to.
+     */
+    private WebSocketSession stubSession(String id, boolean answersPings, AtomicInteger pings,
+                                         AtomicReference<CloseStatus> closedWith) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> closedWith.get() == null;
+                    case "sendMessage" -> {
+                        if (args[0] instanceof PingMessage) {
+                            pings.incrementAndGet();
+                            if (answersPings) {
+                                connectionMonitor.seen(id);
+                            }
+                        }
+                        yield null;
+                    }
+                    case "close" -> {
+                        closedWith.set((CloseStatus) args[0]);
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                });
+    }
+
+    private void connect(WebSocketSession session) {
+        gameServer.getBroadcastService().registerSession(session);
+        registeredIds.add(session.getId());
+        connectionMonitor.connectionOpened(session.getId());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+
+    @Test
+    void testSilentSessionIsReapedAndLeavesTheLobby() throws InterruptedException {
+        AtomicInteger pings = new AtomicInteger();
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        connect(stubSession("silent", false, pings, closedWith));
+        gameServer.joinServer("silent");
+
+        // The close goes out on the session's writer while the monitor cleans up, so wait for both.
+        awaitCondition(() -> closedWith.get() != null && gameServer.getSessionsCount() == 0);
+
+        assertEquals(ConnectionMonitor.IDLE_TIMEOUT, closedWith.get());
+        assertTrue(pings.get() > 0, "The session should have been pinged before it was reaped");
+        assertEquals(0, gameServer.getSessionsCount());
+        assertEquals(0, gameServer.getLobbySessionsCount());
+        assertFalse(gameServer.getBroadcastService().isRegistered("silent"));
+        assertEquals(0, connectionMonitor.getConnectionCount());
+        assertEquals(0, rateLimiter.getSessionCount());
+    }
+
+    @Test
+    void testSessionAnsweringPingsStaysConnected() throws InterruptedException {
+        AtomicInteger pings = new AtomicInteger();
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        connect(stubSession("lively", true, pings, closedWith));
+        gameServer.joinServer("lively");
+
+        Thread.sleep(IDLE_TIMEOUT_MILLIS * 3);
+
+        assertNull(closedWith.get());
+        assertTrue(pings.get() > 1, "The session should have been pinged every heartbeat");
+        assertEquals(1, gameServer.getLobbySessionsCount());
+        assertEquals(1, connectionMonitor.getConnectionCount());
+    }
+
+    @Test
+    void testCloseIsCleanedUpOnce() {
+        connect(stubSession("leaving", true, new AtomicInteger(), new AtomicReference<>()));
+        gameServer.joinServer("leaving");
+
+        connectionMonitor.connectionClosed("leaving");
+        connectionMonitor.connectionClosed("leaving");
+
+        assertEquals(0, gameServer.getSessionsCount());
+        assertEquals(0, gameServer.getLobbySessionsCount());
+        assertFalse(gameServer.getBroadcastService().isRegistered("leaving"));
+        assertEquals(0, rateLimiter.getSessionCount());
+    }
+
+    @Test
+    void testClosedSessionLeavesItsRoomAndTheRoomIsReclaimed() throws InterruptedException {
+        connect(stubSession("host", true, new AtomicInteger(), new AtomicReference<>()));
+        gameServer.joinServer("host");
+        gameServer.createRoom("host", "Room");
+        awaitCondition(() -> gameServer.getRoomsCount() == 1);
+
+        connectionMonitor.connectionClosed("host");
+
+        awaitCondition(() -> gameServer.getRoomsCount() == 0);
+        awaitCondition(() -> gameServer.getSessionsCount() == 0);
+        assertEquals(0, gameServer.getLobbySessionsCount());
+    }
+
+    @Test
+    void testCloseRacingRoomCreationLeavesNoGhost() throws Exception {
+        // Each racer creates a room on one thread while its connection closes on another. Its
+        // disconnect may run while it is out of the lobby but not yet in the room.
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                String racerId = "racer-" + i;
+                connect(stubSession(racerId, true, new AtomicInteger(), new AtomicReference<>()));
+                gameServer.joinServer(racerId);
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> creating = executor.submit(() -> {
+                    start.await();
+                    gameServer.createRoom(racerId, "Room");
+                    return null;
+                });
+                Future<?> closing = executor.submit(() -> {
+                    start.await();
+                    connectionMonitor.connectionClosed(racerId);
+                    return null;
+                });
+                start.countDown();
+                creating.get(5, TimeUnit.SECONDS);
+                closing.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        awaitCondition(() -> gameServer.getRoomsCount() == 0 && gameServer.getSessionsCount() == 0);
+        assertEquals(0, gameServer.getLobbySessionsCount());
+    }
+}
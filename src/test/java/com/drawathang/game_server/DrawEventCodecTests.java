@@ -0,0 +1,108 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.util.DrawEventCodec;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DrawEventCodecTests {
+
+    /**
+     * A wobbly horizontal line, the way pointer samples usually arrive.
+     */
+    private static int[] samplePoints(int count) {
+        int[] points = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            points[i * 2] = 1000 + i * 3;
+            points[i * 2 + 1] = 2000 + (i % 5) - 2;
+        }
+        return points;
+    }
+
+    @Test
+    void testDrawEventRoundTrip() {
+        DrawEvent original = new DrawEvent("ignored", 42, DrawEvent.FLAG_STROKE_START, 0xFF336699, 6, samplePoints(64));
+
+        byte[] frame = DrawEventCodec.encodeDrawEvent(original);
+        DrawEvent decoded = DrawEventCodec.decodeDrawEvent(ByteBuffer.wrap(frame), "drawer-1");
+
+        assertEquals("drawer-1", decoded.getDrawerSessionId());
+        assertEquals(42, decoded.getStrokeId());
+        assertTrue(decoded.isStrokeStart());
+        assertEquals(0xFF336699, decoded.getColor());
+        assertEquals(6, decoded.getWidth());
+        assertArrayEquals(original.getPoints(), decoded.getPoints());
+    }
+
+    @Test
+    void testDrawBatchRoundTripKeepsOrderAndDrawers() {
+        List<DrawEvent> events = new ArrayList<>();
+        events.add(new DrawEvent("a", 1, DrawEvent.FLAG_STROKE_START, 0, 2, samplePoints(3)));
+        events.add(new DrawEvent("b", 7, 0, 0xFF000000, 4, samplePoints(5)));
+        events.add(new DrawEvent("a", 1, DrawEvent.FLAG_STROKE_END, 0, 2, samplePoints(2)));
+
+        List<DrawEvent> decoded = DrawEventCodec.decodeDrawBatch(ByteBuffer.wrap(DrawEventCodec.encodeDrawBatch(events)));
+
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(events.get(i).getDrawerSessionId(), decoded.get(i).getDrawerSessionId());
+            assertEquals(events.get(i).getStrokeId(), decoded.get(i).getStrokeId());
+            assertEquals(events.get(i).getFlags(), decoded.get(i).getFlags());
+            assertArrayEquals(events.get(i).getPoints(), decoded.get(i).getPoints());
+        }
+    }
+
+    @Test
+    void testBinaryFrameIsMuchSmallerThanJson() {
+        int[] points = samplePoints(128);
+        DrawEvent drawEvent = new DrawEvent("drawer", 3, 0, 0xFF000000, 4, points);
+
+        List<Map<String, Integer>> jsonPoints = new ArrayList<>();
+        for (int i = 0; i < points.length; i += 2) {
+            jsonPoints.add(Map.of("x", points[i], "y", points[i + 1]));
+        }
+        String json = JsonUtil.toJson(Map.of(
+                "type", "DRAW_EVENT",
+                "strokeId", 3,
+                "color", 0xFF000000,
+                "width", 4,
+                "points", jsonPoints
+        ));
+
+        int binarySize = DrawEventCodec.encodeDrawEvent(drawEvent).length;
+        assertTrue(binarySize * 8 < json.length(),
+                "Binary frame of " + binarySize + " bytes should be close to an order of magnitude smaller than "
+                        + json.length() + " bytes of JSON");
+    }
+
+    @Test
+    void testMalformedFramesAreRejected() {
+        byte[] frame = DrawEventCodec.encodeDrawEvent(new DrawEvent("x", 1, 0, 0, 1, samplePoints(10)));
+
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 3);
+        assertThrows(IllegalArgumentException.class,
+                () -> DrawEventCodec.decodeDrawEvent(ByteBuffer.wrap(truncated), "x"));
+
+        byte[] wrongType = frame.clone();
+        wrongType[0] = 0x7F;
+        assertThrows(IllegalArgumentException.class,
+                () -> DrawEventCodec.decodeDrawEvent(ByteBuffer.wrap(wrongType), "x"));
+
+        // A first point far outside the canvas
+        DrawEvent outOfRange = new DrawEvent("x", 1, 0, 0, 1, new int[]{DrawEventCodec.MAX_COORDINATE + 1, 0});
+        byte[] outOfRangeFrame = DrawEventCodec.encodeDrawEvent(outOfRange);
+        assertThrows(IllegalArgumentException.class,
+                () -> DrawEventCodec.decodeDrawEvent(ByteBuffer.wrap(outOfRangeFrame), "x"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.GuessEvaluator;
+import com.drawathang.game_server.services.GuessEvaluator.Verdict;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GuessEvaluatorTests {
+
+    private static GuessEvaluator evaluatorFor(String word) {
+        GuessEvaluator evaluator = new GuessEvaluator();
+        evaluator.setAnswer(word);
+        return evaluator;
+    }
+
+    @Test
+    void testExactMatchIgnoresCaseSpacingAndPunctuation() {
+        GuessEvaluator evaluator = evaluatorFor("Ice Cream");
+        assertEquals(Verdict.CORRECT, evaluator.evaluate("ice cream"));
+        assertEquals(Verdict.CORRECT, evaluator.evaluate("ICE-CREAM!"));
+        assertEquals(Verdict.CORRECT, evaluator.evaluate("  icecream "));
+    }
+
+    @Test
+    void testNearMissesAreClose() {
+        GuessEvaluator evaluator = evaluatorFor("giraffe");
+        assertEquals(Verdict.CLOSE, evaluator.evaluate("girafe"));   // deletion
+        assertEquals(Verdict.CLOSE, evaluator.evaluate("girafffe")); // insertion
+        assertEquals(Verdict.CLOSE, evaluator.evaluate("giraffo"));  // substitution
+        assertEquals(Verdict.WRONG, evaluator.evaluate("grafe"));    // two edits
+        assertEquals(Verdict.WRONG, evaluator.evaluate("elephant"));
+        assertEquals(Verdict.WRONG, evaluator.evaluate("giraffe giraffe giraffe"));
+        assertEquals(Verdict.WRONG, evaluator.evaluate(""));
+
+        GuessEvaluator longWord = evaluatorFor("lighthouse");
+        assertEquals(Verdict.CLOSE, longWord.evaluate("lihgthouse"));
+        assertEquals(Verdict.CLOSE, longWord.evaluate("ligthous"));
+        assertEquals(Verdict.WRONG, longWord.evaluate("lightning"));
+    }
+
+    @Test
+    void testShortWordsHaveNoCloseGuesses() {
+        GuessEvaluator evaluator = evaluatorFor("cat");
+        assertEquals(Verdict.CORRECT, evaluator.evaluate("Cat"));
+        assertEquals(Verdict.WRONG, evaluator.evaluate("bat"));
+    }
+
+    @Test
+    void testNoAnswerJudgesEverythingWrong() {
+        GuessEvaluator evaluator = new GuessEvaluator();
+        assertEquals(Verdict.WRONG, evaluator.evaluate("anything"));
+
+        evaluator.setAnswer("apple");
+        evaluator.setAnswer(null);
+        assertEquals(Verdict.WRONG, evaluator.evaluate("apple"));
+    }
+
+    @Test
+    void testEvaluatingGuessesAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        GuessEvaluator evaluator = evaluatorFor("lighthouse");
+        String[] guesses = {"lighthouse", "lighthous", "light house", "lightning", "a much longer guess than the word"};
+        int iterations = 200_000;
+
+        // Warm up so the loop runs compiled
+        for (int i = 0; i < iterations; i++) {
+            evaluator.evaluate(guesses[i % guesses.length]);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            evaluator.evaluate(guesses[i % guesses.length]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(allocated < 1024, "Evaluating guesses should not allocate, allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,47 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.domain.Guess;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GuessHistoryTests {
+
+    private static List<String> texts(List<Guess> guesses) {
+        return guesses.stream().map(Guess::getGuess).toList();
+    }
+
+    @Test
+    void testKeepsOnlyTheLatestGuesses() {
+        GuessHistory history = new GuessHistory(4);
+        for (int i = 0; i < 10; i++) {
+            history.add(new Guess("session", "user", "guess-" + i));
+        }
+
+        assertEquals(4, history.size());
+        assertEquals(List.of("guess-6", "guess-7", "guess-8", "guess-9"), texts(history.last(4)));
+        assertEquals(List.of("guess-8", "guess-9"), texts(history.last(2)));
+    }
+
+    @Test
+    void testLastBeforeTheRingFills() {
+        GuessHistory history = new GuessHistory(8);
+        assertTrue(history.last(5).isEmpty());
+
+        history.add(new Guess("session", "user", "first"));
+        history.add(new Guess("session", "user", "second"));
+        assertEquals(List.of("first", "second"), texts(history.last(5)));
+        assertEquals(List.of("second"), texts(history.last(1)));
+        assertTrue(history.last(0).isEmpty());
+    }
+
+    @Test
+    void testCapacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new GuessHistory(0));
+    }
+}
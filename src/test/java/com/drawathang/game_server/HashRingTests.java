@@ -0,0 +1,66 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.cluster.HashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashRingTests {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void testKeysSpreadEvenlyAcrossNodes() {
+        HashRing ring = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.ownerOf("room-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            // Each node's fair share is a quarter; virtual nodes keep it within a few points.
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2, "Uneven share: " + counts);
+        }
+    }
+
+    @Test
+    void testEveryNodeBuildsTheSameRing() {
+        HashRing ring = new HashRing(List.of("node-a", "node-b", "node-c"));
+        HashRing reordered = new HashRing(List.of("node-c", "node-a", "node-b"));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(ring.ownerOf("room-" + i), reordered.ownerOf("room-" + i));
+        }
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesKeysToIt() {
+        HashRing before = new HashRing(List.of("node-a", "node-b", "node-c"));
+        HashRing after = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"));
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "room-" + i;
+            String owner = after.ownerOf(key);
+            if (!owner.equals(before.ownerOf(key))) {
+                assertEquals("node-d", owner);
+                moved++;
+            }
+        }
+        // About a quarter of the keys move, all to the new node.
+        assertTrue(moved > KEYS / 5 && moved < KEYS / 3, "Moved " + moved);
+    }
+
+    @Test
+    void testRingNeedsANode() {
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of()));
+    }
+}
@@ -0,0 +1,194 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.communication.ConnectionMonitor;
+import com.drawathang.game_server.communication.InboundRateLimiter;
+import com.drawathang.game_server.communication.InboundRateLimiter.Verdict;
+import com.drawathang.game_server.communication.WebSocketHandler;
+import com.drawathang.game_server.contract.ClientMessageType;
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import com.drawathang.game_server.services.GameServer;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.WordBank;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-session, per-type rate limits on inbound traffic, without Spring or real sockets.
+ */
+public class InboundRateLimiterTests {
+
+    /**
+     * Counts what the limiter records into the game server's meters during one test.
+     */
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void bindMeters() {
+        GameServerMetrics.bindTo(meters);
+    }
+
+    @AfterEach
+    void unbindMeters() {
+        GameServerMetrics.unbind(meters);
+    }
+
+    private double throttled(String type) {
+        return meters.get("drawathang.inbound.throttled").tag("type", type).counter().count();
+    }
+
+    private static InboundRateLimiter limiter(int drawBurst, int drawPerSecond, int controlBurst, int disconnectAfter) {
+        return new InboundRateLimiter(drawBurst, drawPerSecond, 2, 1, controlBurst, 1, disconnectAfter);
+    }
+
+    @Test
+    void testBurstIsAllowedThenThrottled() {
+        InboundRateLimiter limiter = limiter(3, 1, 10, 100);
+        limiter.connectionOpened("drawer");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Verdict.ALLOW, limiter.checkDrawEvent("drawer"));
+        }
+        assertEquals(Verdict.THROTTLE, limiter.checkDrawEvent("drawer"));
+        assertEquals(1.0, throttled("DRAW_EVENT"));
+    }
+
+    @Test
+    void testBucketsRefillOverTime() throws InterruptedException {
+        InboundRateLimiter limiter = limiter(1, 20, 10, 100);
+        limiter.connectionOpened("drawer");
+
+        assertEquals(Verdict.ALLOW, limiter.checkDrawEvent("drawer"));
+        assertEquals(Verdict.THROTTLE, limiter.checkDrawEvent("drawer"));
+        Thread.sleep(100);
+        assertEquals(Verdict.ALLOW, limiter.checkDrawEvent("drawer"));
+    }
+
+    @Test
+    void testEachMessageTypeAndSessionHasItsOwnBucket() {
+        InboundRateLimiter limiter = limiter(1, 1, 1, 100);
+        limiter.connectionOpened("first");
+        limiter.connectionOpened("second");
+
+        assertEquals(Verdict.ALLOW, limiter.check("first", ClientMessageType.JOIN_ROOM));
+        assertEquals(Verdict.THROTTLE, limiter.check("first", ClientMessageType.JOIN_ROOM));
+        assertEquals(Verdict.ALLOW, limiter.check("first", ClientMessageType.CREATE_ROOM));
+        assertEquals(Verdict.ALLOW, limiter.check("first", ClientMessageType.SUBMIT_GUESS));
+        assertEquals(Verdict.ALLOW, limiter.checkDrawEvent("first"));
+        assertEquals(Verdict.ALLOW, limiter.check("second", ClientMessageType.JOIN_ROOM));
+    }
+
+    @Test
+    void testFloodingSessionIsDisconnected() throws Exception {
+        GameServer gameServer = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION, WordBank.DEFAULT_LOCALE);
+        InboundRateLimiter limiter = limiter(1, 1, 1, 5);
+        ConnectionMonitor connectionMonitor = new ConnectionMonitor(gameServer, limiter, 60_000, 60_000);
+        WebSocketHandler handler = new WebSocketHandler(gameServer, connectionMonitor, limiter,
+                BroadcastService.DEFAULT_QUEUE_CAPACITY, 0, BroadcastService.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD);
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        WebSocketSession session = stubSession("flooder", closedWith, new AtomicInteger());
+
+        try {
+            handler.afterConnectionEstablished(session);
+            TextMessage guess = new TextMessage("{\"type\":\"SUBMIT_GUESS\",\"guess\":\"spam\"}");
+            for (int i = 0; i < 50 && closedWith.get() == null; i++) {
+                handler.handleMessage(session, guess);
+            }
+
+            awaitCondition(() -> closedWith.get() != null);
+            assertEquals(InboundRateLimiter.FLOODING, closedWith.get());
+            assertEquals(1.0, meters.get("drawathang.inbound.flood.disconnects").counter().count());
+            assertTrue(throttled(ClientMessageType.SUBMIT_GUESS.name()) >= 5,
+                    "Every dropped guess should be counted");
+        } finally {
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+            connectionMonitor.shutdown();
+            gameServer.shutdown();
+        }
+        assertEquals(0, limiter.getSessionCount());
+    }
+
+    @Test
+    void testMessagesWithoutAValidTypeAreLimitedToo() throws Exception {
+        GameServer gameServer = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION, WordBank.DEFAULT_LOCALE);
+        InboundRateLimiter limiter = limiter(1, 1, 1, 5);
+        ConnectionMonitor connectionMonitor = new ConnectionMonitor(gameServer, limiter, 60_000, 60_000);
+        WebSocketHandler handler = new WebSocketHandler(gameServer, connectionMonitor, limiter,
+                BroadcastService.DEFAULT_QUEUE_CAPACITY, 0, BroadcastService.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD);
+        AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+        AtomicInteger replies = new AtomicInteger();
+        WebSocketSession session = stubSession("garbler", closedWith, replies);
+
+        try {
+            handler.afterConnectionEstablished(session);
+            TextMessage untyped = new TextMessage("{\"guess\":\"spam\"}");
+            TextMessage unknown = new TextMessage("{\"type\":\"NOT_A_TYPE\"}");
+
+            // The first one is answered, through the session's writer.
+            handler.handleMessage(session, untyped);
+            awaitCondition(() -> replies.get() == 1);
+
+            for (int i = 0; i < 50 && closedWith.get() == null; i++) {
+                handler.handleMessage(session, i % 2 == 0 ? unknown : untyped);
+            }
+            awaitCondition(() -> closedWith.get() != null);
+            assertEquals(InboundRateLimiter.FLOODING, closedWith.get());
+            assertEquals(1, replies.get());
+            assertTrue(throttled("INVALID") >= 5,
+                    "Every dropped message should be counted");
+        } finally {
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+            connectionMonitor.shutdown();
+            gameServer.shutdown();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+
+    /**
+     * Builds a session that records how it was closed and counts the text messages it is sent.
+     */
+    private static WebSocketSession stubSession(String id, AtomicReference<CloseStatus> closedWith, AtomicInteger replies) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> closedWith.get() == null;
+                    case "sendMessage" -> {
+                        if (args[0] instanceof TextMessage) {
+                            replies.incrementAndGet();
+                        }
+                        yield null;
+                    }
+                    case "close" -> {
+                        closedWith.compareAndSet(null, (CloseStatus) args[0]);
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                });
+    }
+}
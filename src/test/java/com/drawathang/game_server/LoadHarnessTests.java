@@ -0,0 +1,239 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.application.GameServerApplication;
+import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.util.DrawEventCodec;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load harness: thousands of scripted players against a locally started server.
+ * <p>
+ * Players join the lobby, gather into rooms, then draw and guess for a fixed duration. Every guess
+ * carries the sender's {@link System#nanoTime()}; every player that receives the {@code GUESS_ADDED}
+ * records how long the server took to get it there. Clients and server share the JVM and clock, so
+ * the latency includes dispatch, the room's shard, serialization and the outbound queues.
+ * <p>
+ * Excluded from the default build. Run with {@code ./mvnw -P load-tests test}, tuning the load with
+ * {@code -Dloadtest.players}, {@code -Dloadtest.roomSize}, {@code -Dloadtest.durationSeconds},
+ * {@code -Dloadtest.tickMillis} (one stroke segment per player per tick) and
+ * {@code -Dloadtest.guessEveryTicks}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = GameServerApplication.class)
+public class LoadHarnessTests {
+
+    private static final int PLAYERS = Integer.getInteger("loadtest.players", 1000);
+    private static final int ROOM_SIZE = Integer.getInteger("loadtest.roomSize", 8);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.durationSeconds", 30);
+    private static final int TICK_MILLIS = Integer.getInteger("loadtest.tickMillis", 50);
+    private static final int GUESS_EVERY_TICKS = Integer.getInteger("loadtest.guessEveryTicks", 20);
+
+    private static final String GUESS_MARKER = "\"guess\":\"t:";
+
+    @LocalServerPort
+    private int port;
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesReceived = new AtomicLong();
+
+    /**
+     * One scripted client. Callbacks for a session arrive one at a time, so its latency samples
+     * need no synchronization until they are collected at the end.
+     */
+    private class SimulatedPlayer extends AbstractWebSocketHandler {
+        private final int index;
+        private WebSocketSession session;
+        private final CompletableFuture<String> roomId = new CompletableFuture<>();
+        private long[] latencies = new long[1024];
+        private int latencyCount = 0;
+        private int tick = 0;
+        private int strokeId = 0;
+
+        SimulatedPlayer(int index) {
+            this.index = index;
+        }
+
+        boolean isHost() {
+            return index % ROOM_SIZE == 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) {
+            long receivedAt = System.nanoTime();
+            messagesReceived.incrementAndGet();
+            String payload = message.getPayload();
+
+            int marker = payload.indexOf(GUESS_MARKER);
+            if (marker >= 0) {
+                int start = marker + GUESS_MARKER.length();
+                int end = payload.indexOf('"', start);
+                recordLatency(receivedAt - Long.parseLong(payload, start, end, 10));
+            } else if (!roomId.isDone() && payload.contains("\"ROOM_SNAPSHOT\"")) {
+                Map<String, Object> snapshot = JsonUtil.fromJson(payload, Map.class);
+                roomId.complete((String) snapshot.get("roomId"));
+            }
+        }
+
+        @Override
+        protected void handleBinaryMessage(@NonNull WebSocketSession session, @NonNull BinaryMessage message) {
+            messagesReceived.incrementAndGet();
+        }
+
+        private void recordLatency(long nanos) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = nanos;
+        }
+
+        void send(Map<String, Object> message) throws IOException {
+            session.sendMessage(new TextMessage(JsonUtil.toJson(message)));
+            messagesSent.incrementAndGet();
+        }
+
+        /**
+         * One scripted step: a stroke segment, and every few ticks a timestamped guess.
+         */
+        void step() {
+            try {
+                int x = ThreadLocalRandom.current().nextInt(1000);
+                int y = ThreadLocalRandom.current().nextInt(1000);
+                DrawEvent segment = new DrawEvent("", strokeId++, DrawEvent.FLAG_STROKE_START | DrawEvent.FLAG_STROKE_END,
+                        0xFF000000, 3, new int[]{x, y, x + 4, y + 3, x + 8, y + 5});
+                session.sendMessage(new BinaryMessage(DrawEventCodec.encodeDrawEvent(segment)));
+                messagesSent.incrementAndGet();
+
+                if (++tick % GUESS_EVERY_TICKS == 0) {
+                    send(Map.of("type", "SUBMIT_GUESS", "guess", "t:" + System.nanoTime()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The session went away; the report shows it as missing traffic.
+            }
+        }
+    }
+
+    @Test
+    void testScriptedPlayersUnderLoad() throws Exception {
+        WebSocketClient client = new StandardWebSocketClient();
+        URI uri = new URI("ws://localhost:" + port + "/game-server");
+
+        // Connect everyone
+        long connectStart = System.nanoTime();
+        List<SimulatedPlayer> players = new ArrayList<>(PLAYERS);
+        List<CompletableFuture<WebSocketSession>> connections = new ArrayList<>(PLAYERS);
+        for (int i = 0; i < PLAYERS; i++) {
+            SimulatedPlayer player = new SimulatedPlayer(i);
+            players.add(player);
+            connections.add(client.execute(player, new WebSocketHttpHeaders(), uri));
+        }
+        for (int i = 0; i < PLAYERS; i++) {
+            players.get(i).session = connections.get(i).get(30, TimeUnit.SECONDS);
+        }
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+
+        // Everyone joins the lobby; hosts open a room each, everyone else joins their host's room
+        for (SimulatedPlayer player : players) {
+            player.send(Map.of("type", "JOIN_SERVER"));
+        }
+        for (SimulatedPlayer player : players) {
+            if (player.isHost()) {
+                player.send(Map.of("type", "CREATE_ROOM", "roomName", "load-room-" + player.index));
+            }
+        }
+        int rooms = 0;
+        for (SimulatedPlayer player : players) {
+            if (player.isHost()) {
+                player.roomId.get(30, TimeUnit.SECONDS);
+                rooms++;
+            }
+        }
+        for (SimulatedPlayer player : players) {
+            if (!player.isHost()) {
+                String hostRoomId = players.get(player.index - player.index % ROOM_SIZE).roomId.getNow(null);
+                player.send(Map.of("type", "JOIN_ROOM", "roomId", hostRoomId));
+            }
+        }
+        for (SimulatedPlayer player : players) {
+            player.roomId.get(30, TimeUnit.SECONDS);
+        }
+
+        // Scripted play: every player steps once per tick, starting at a random offset
+        ScheduledExecutorService script = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        messagesSent.set(0);
+        messagesReceived.set(0);
+        long playStart = System.nanoTime();
+        for (SimulatedPlayer player : players) {
+            script.scheduleAtFixedRate(player::step, ThreadLocalRandom.current().nextInt(TICK_MILLIS), TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+        script.shutdownNow();
+        assertTrue(script.awaitTermination(10, TimeUnit.SECONDS));
+        long sent = messagesSent.get();
+        double playSeconds = (System.nanoTime() - playStart) / 1e9;
+
+        // Let in-flight broadcasts land before reading the samples
+        Thread.sleep(2000);
+        long received = messagesReceived.get();
+        for (SimulatedPlayer player : players) {
+            player.session.close();
+        }
+
+        int sampleCount = 0;
+        for (SimulatedPlayer player : players) {
+            sampleCount += player.latencyCount;
+        }
+        long[] samples = new long[sampleCount];
+        int offset = 0;
+        for (SimulatedPlayer player : players) {
+            System.arraycopy(player.latencies, 0, samples, offset, player.latencyCount);
+            offset += player.latencyCount;
+        }
+        Arrays.sort(samples);
+
+        System.out.printf("players=%d rooms=%d roomSize=%d connect=%.1fs%n", PLAYERS, rooms, ROOM_SIZE, connectSeconds);
+        System.out.printf("client->server msgs/s=%.0f server->client msgs/s=%.0f%n", sent / playSeconds, received / playSeconds);
+        System.out.printf("guess broadcast latency ms: p50=%.2f p99=%.2f p999=%.2f max=%.2f (samples=%d)%n",
+                percentileMillis(samples, 0.50), percentileMillis(samples, 0.99), percentileMillis(samples, 0.999),
+                percentileMillis(samples, 1.0), samples.length);
+
+        assertEquals((PLAYERS + ROOM_SIZE - 1) / ROOM_SIZE, rooms);
+        assertTrue(samples.length > 0, "Guesses should have been broadcast to the rooms");
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
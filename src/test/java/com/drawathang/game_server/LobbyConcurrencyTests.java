@@ -0,0 +1,163 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.communication.BroadcastService;
+import com.drawathang.game_server.services.GameServer;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.WordBank;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives joinServer/leaveServer from many threads at once, without Spring or real sockets.
+ */
+public class LobbyConcurrencyTests {
+
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    /**
+     * Share of single-threaded throughput that all cores together must at least reach. Threads
+     * still contend on the presence word, so this allows for some loss rather than demanding a
+     * speedup, but a lobby-wide lock falls well below it.
+     */
+    private static final double SCALING_TOLERANCE = 0.8;
+
+    private GameServer gameServer;
+    private final ConcurrentLinkedQueue<String> observed = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        gameServer = new GameServer(30, 0, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION, WordBank.DEFAULT_LOCALE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gameServer.getBroadcastService().unregisterSession("observer");
+        gameServer.shutdown();
+    }
+
+    private WebSocketSession observerSession() {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> "observer";
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        observed.add(((TextMessage) args[0]).getPayload());
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+
+    /**
+     * Runs {@code threads} workers that each join and leave their own sessions in a tight loop.
+     *
+     * @return join/leave operations per second.
+     */
+    private double runJoinLeaveStorm(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            String prefix = "worker-" + threads + "-" + t + "-";
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String sessionId = prefix + (i % 16);
+                    gameServer.joinServer(sessionId);
+                    gameServer.leaveServer(sessionId);
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        return threads * OPERATIONS_PER_THREAD * 2 / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Lock-free presence should keep total join/leave throughput up as threads are added, where a
+     * lock around the lobby would have them queue behind each other. Needs several cores and a
+     * quiet machine, so it runs with the load tests: {@code ./mvnw -P load-tests test}.
+     */
+    @Test
+    @Tag("load")
+    void testJoinLeaveThroughputScalesWithThreads() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        assumeTrue(cores >= 2, "Scaling needs more than one core");
+
+        // Warm up the JIT so the single-threaded run is not penalised
+        runJoinLeaveStorm(1);
+
+        double singleThreaded = runJoinLeaveStorm(1);
+        double allCores = runJoinLeaveStorm(cores);
+
+        assertEquals(0, gameServer.getSessionsCount(), "Every join was matched by a leave");
+        assertTrue(allCores >= singleThreaded * SCALING_TOLERANCE,
+                "Throughput on " + cores + " threads fell to " + allCores + " ops/s from " + singleThreaded);
+    }
+
+    @Test
+    void testPresenceCountIsConsistentWithTimestamps() throws Exception {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int expectedEvents = threads * OPERATIONS_PER_THREAD * 2;
+
+        // The observer must see every presence event, so its queue never overflows.
+        gameServer.getBroadcastService().registerSession(observerSession(), expectedEvents + 1);
+        gameServer.joinServer("observer");
+
+        runJoinLeaveStorm(threads);
+
+        // Let the observer's sender drain
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (observed.size() < expectedEvents + 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Ordered by timestamp, each event moves the count by exactly one
+        TreeMap<Long, Long> countByTimestamp = new TreeMap<>();
+        for (String message : observed) {
+            Map<String, Object> event = JsonUtil.fromJson(message, Map.class);
+            Long previous = countByTimestamp.put(((Number) event.get("timestamp")).longValue(), ((Number) event.get("sessionsCount")).longValue());
+            assertTrue(previous == null, "Timestamps must be unique");
+        }
+
+        assertEquals(expectedEvents + 1, countByTimestamp.size());
+        long previousCount = 0;
+        for (long sessionsCount : countByTimestamp.values()) {
+            assertEquals(1, Math.abs(sessionsCount - previousCount), "Count must move by one per event");
+            previousCount = sessionsCount;
+        }
+        assertEquals(1, gameServer.getSessionsCount(), "Only the observer should remain");
+    }
+}
@@ -0,0 +1,60 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.application.GameServerApplication;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@AutoConfigureObservability
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = GameServerApplication.class)
+public class MetricsEndpointTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void testPrometheusEndpointExposesServerMetrics() throws Exception {
+        TestClientWebSocketHandler handler = new TestClientWebSocketHandler();
+        WebSocketSession session = new StandardWebSocketClient()
+                .execute(handler, new WebSocketHttpHeaders(), new URI("ws://localhost:" + port + "/game-server")).get();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        handler.setLatch(latch);
+        session.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "JOIN_SERVER"))));
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+
+        String scrape = response.body();
+        assertTrue(scrape.contains("drawathang_inbound_handling_seconds_bucket{type=\"JOIN_SERVER\""), "Per-type handling histogram");
+        assertTrue(scrape.contains("drawathang_outbound_queue_depth_messages_bucket"), "Outbound queue depth histogram");
+        assertTrue(scrape.contains("drawathang_broadcast_payload_size_bytes_bucket"), "Broadcast payload size histogram");
+        assertTrue(scrape.contains("drawathang_sessions 1.0"), "Session count gauge");
+        assertTrue(scrape.contains("drawathang_rooms "), "Room count gauge");
+        assertTrue(scrape.contains("drawathang_outbound_writers_active "), "Active writer gauge");
+
+        session.close();
+    }
+}
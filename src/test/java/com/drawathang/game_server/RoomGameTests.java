@@ -0,0 +1,293 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.GameServer;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.RoundTimings;
+import com.drawathang.game_server.util.JsonUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A room's game from start to end, through the game server, without Spring or real sockets.
+ */
+public class RoomGameTests {
+
+    /**
+     * Rounds short enough to play through: a hint every 400 ms of drawing.
+     */
+    private static final RoundTimings TIMINGS = new RoundTimings(400, 1200, 2, 200);
+
+    private Path words;
+    private GameServer gameServer;
+    private final List<String> connected = new ArrayList<>();
+    private final Map<String, ConcurrentLinkedQueue<Map<String, Object>>> received = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Every word has more than one part, so no word's length is its letter count.
+        words = Files.createTempDirectory("room-game-words");
+        Files.createDirectories(words.resolve("en"));
+        Files.writeString(words.resolve("en/phrases.txt"), "ice cream\nhot dog\nfire-truck ladder\n");
+        gameServer = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, "file:" + words + "/*/*.txt", "en", TIMINGS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connected.forEach(id -> gameServer.getBroadcastService().unregisterSession(id));
+        gameServer.shutdown();
+        try (Stream<Path> files = Files.walk(words)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Registers a session that records every event it is sent.
+     */
+    private void connect(String id) {
+        ConcurrentLinkedQueue<Map<String, Object>> events = new ConcurrentLinkedQueue<>();
+        received.put(id, events);
+        connected.add(id);
+        gameServer.getBroadcastService().registerSession((WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        if (args[0] instanceof TextMessage text) {
+                            events.add(JsonUtil.fromJson(text.getPayload(), Map.class));
+                        }
+                        yield null;
+                    }
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                }));
+        gameServer.joinServer(id);
+    }
+
+    private List<Map<String, Object>> events(String sessionId, String event) {
+        return received.get(sessionId).stream().filter(e -> event.equals(e.get("event"))).toList();
+    }
+
+    private Map<String, Object> awaitEvent(String sessionId, String event) throws InterruptedException {
+        return awaitEvent(sessionId, event, 1);
+    }
+
+    /**
+     * Waits for the {@code nth} event of a kind, counting from 1.
+     */
+    private Map<String, Object> awaitEvent(String sessionId, String event, int nth) throws InterruptedException {
+        awaitCondition(() -> events(sessionId, event).size() >= nth);
+        return events(sessionId, event).get(nth - 1);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+
+    /**
+     * Opens a room for the host with the guests in it, and starts a game.
+     */
+    private void startGame(String host, String... guests) throws InterruptedException {
+        connect(host);
+        gameServer.createRoom(host, "Game room");
+        String roomId = (String) awaitEvent(host, "ROOM_SNAPSHOT").get("roomId");
+        for (String guest : guests) {
+            connect(guest);
+            gameServer.joinRoom(guest, roomId);
+            awaitEvent(guest, "ROOM_SNAPSHOT");
+        }
+        awaitCondition(() -> events(host, "PLAYER_JOINED").size() == guests.length);
+        gameServer.startGame(host);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRoundStartTellsGuessersTheLetterCountOfEachWord() throws InterruptedException {
+        startGame("host", "guest");
+
+        // The host joined first, so draws first.
+        Map<String, Object> roundStarted = awaitEvent("guest", "ROUND_STARTED");
+        assertEquals(1, roundStarted.get("round"));
+        assertEquals("host", roundStarted.get("drawerSessionId"));
+        List<String> choices = (List<String>) awaitEvent("host", "WORD_CHOICES").get("words");
+        assertEquals(3, choices.size());
+        assertTrue(events("guest", "WORD_CHOICES").isEmpty(), "Only the drawer sees the choices");
+
+        gameServer.pickWord("host", choices.get(1));
+        String word = (String) awaitEvent("host", "WORD_TO_DRAW").get("word");
+        Map<String, Object> drawingStarted = awaitEvent("guest", "DRAWING_STARTED");
+        Map<String, List<Integer>> lengths = Map.of(
+                "ice cream", List.of(3, 5),
+                "hot dog", List.of(3, 3),
+                "fire-truck ladder", List.of(9, 6));
+        assertEquals(lengths.get(word), drawingStarted.get("wordLengths"));
+        assertEquals(word.replaceAll("[a-z]", "_"), drawingStarted.get("hint"));
+        assertTrue(events("guest", "WORD_TO_DRAW").isEmpty(), "Only the drawer sees the word");
+
+        // A player joining mid-round gets the same from the room snapshot.
+        connect("late");
+        gameServer.joinRoom("late", (String) drawingStarted.get("roomId"));
+        assertEquals(lengths.get(word), awaitEvent("late", "ROOM_SNAPSHOT").get("wordLengths"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDrawerWhoDoesNotPickIsGivenTheFirstWord() throws InterruptedException {
+        long start = System.nanoTime();
+        startGame("host", "guest");
+
+        List<String> choices = (List<String>) awaitEvent("host", "WORD_CHOICES").get("words");
+        assertEquals(choices.get(0), awaitEvent("host", "WORD_TO_DRAW").get("word"));
+        awaitEvent("guest", "DRAWING_STARTED");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= TIMINGS.pickMillis(), "Picked for the drawer after " + elapsedMillis + " ms");
+
+        // A pick that comes too late changes nothing.
+        gameServer.pickWord("host", choices.get(1));
+        Thread.sleep(100);
+        assertEquals(1, events("host", "WORD_TO_DRAW").size());
+    }
+
+    @Test
+    void testHintsRevealOneLetterAtATime() throws InterruptedException {
+        startGame("host", "guest");
+        gameServer.pickWord("host", ((List<?>) awaitEvent("host", "WORD_CHOICES").get("words")).get(0).toString());
+        String word = (String) awaitEvent("host", "WORD_TO_DRAW").get("word");
+        String hint = (String) awaitEvent("guest", "DRAWING_STARTED").get("hint");
+
+        for (int i = 1; i <= TIMINGS.hints(); i++) {
+            String next = (String) awaitEvent("guest", "HINT", i).get("hint");
+            assertEquals(word.length(), next.length());
+            int revealed = 0;
+            for (int c = 0; c < word.length(); c++) {
+                if (next.charAt(c) != hint.charAt(c)) {
+                    assertEquals('_', hint.charAt(c));
+                    assertEquals(word.charAt(c), next.charAt(c), "Hint " + next + " does not match " + word);
+                    revealed++;
+                }
+            }
+            assertEquals(1, revealed, "Each hint reveals exactly one letter");
+            hint = next;
+        }
+
+        // No more hints than configured, and the word is revealed when the draw time runs out.
+        assertEquals(word, awaitEvent("guest", "ROUND_ENDED").get("word"));
+        assertEquals(TIMINGS.hints(), events("guest", "HINT").size());
+    }
+
+    @Test
+    void testRoundsTimeOutUntilTheGameEnds() throws InterruptedException {
+        startGame("host", "guest");
+
+        // Nobody picks, draws or guesses: every phase runs out on its own, one round per player.
+        Map<String, Object> gameStarted = awaitEvent("guest", "GAME_STARTED");
+        assertEquals(2, gameStarted.get("rounds"));
+        String firstWord = (String) awaitEvent("host", "WORD_TO_DRAW").get("word");
+        assertEquals(firstWord, awaitEvent("guest", "ROUND_ENDED").get("word"));
+
+        Map<String, Object> secondRound = awaitEvent("host", "ROUND_STARTED", 2);
+        assertEquals(2, secondRound.get("round"));
+        assertEquals("guest", secondRound.get("drawerSessionId"));
+        String secondWord = (String) awaitEvent("guest", "WORD_TO_DRAW").get("word");
+        assertEquals(secondWord, awaitEvent("host", "ROUND_ENDED", 2).get("word"));
+
+        assertEquals(2, awaitEvent("host", "GAME_ENDED").get("rounds"));
+        Thread.sleep(TIMINGS.intermissionMillis() + 200);
+        assertEquals(2, events("host", "ROUND_STARTED").size(), "No round starts after the game");
+        assertEquals(0, gameServer.getPendingTimersCount());
+    }
+
+    @Test
+    void testDrawerLeavingEndsTheRound() throws InterruptedException {
+        startGame("host", "guest", "third");
+        gameServer.pickWord("host", ((List<?>) awaitEvent("host", "WORD_CHOICES").get("words")).get(0).toString());
+        String word = (String) awaitEvent("host", "WORD_TO_DRAW").get("word");
+        awaitEvent("guest", "DRAWING_STARTED");
+
+        long start = System.nanoTime();
+        gameServer.leaveRoom("host");
+        Map<String, Object> roundEnded = awaitEvent("guest", "ROUND_ENDED");
+        assertEquals(word, roundEnded.get("word"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < TIMINGS.drawMillis(), "The round should end at once, not after " + elapsedMillis + " ms");
+        long hintsBeforeEnd = events("guest", "HINT").size();
+
+        // The hints of the abandoned round never come, and the game goes on with who is left.
+        Map<String, Object> nextRound = awaitEvent("third", "ROUND_STARTED", 2);
+        assertEquals(2, nextRound.get("round"));
+        assertTrue(List.of("guest", "third").contains(nextRound.get("drawerSessionId")));
+        assertEquals(hintsBeforeEnd, events("guest", "HINT").stream().filter(hint -> hint.get("round").equals(1)).count());
+    }
+
+    @Test
+    void testTurnsPassInJoinOrderAfterADrawerLeaves() throws InterruptedException {
+        startGame("host", "guest", "third");
+        assertEquals("host", awaitEvent("guest", "ROUND_STARTED").get("drawerSessionId"));
+        gameServer.leaveRoom("host");
+
+        // The host has had their turn, so the guest is next and nobody is skipped.
+        assertEquals("guest", awaitEvent("third", "ROUND_STARTED", 2).get("drawerSessionId"));
+        gameServer.pickWord("guest", ((List<?>) awaitEvent("guest", "WORD_CHOICES").get("words")).get(0).toString());
+        gameServer.submitGuess("third", (String) awaitEvent("guest", "WORD_TO_DRAW").get("word"));
+        awaitEvent("third", "ROUND_ENDED", 2);
+
+        assertEquals("third", awaitEvent("guest", "ROUND_STARTED", 3).get("drawerSessionId"));
+        gameServer.pickWord("third", ((List<?>) awaitEvent("third", "WORD_CHOICES").get("words")).get(0).toString());
+        gameServer.submitGuess("guest", (String) awaitEvent("third", "WORD_TO_DRAW").get("word"));
+        assertEquals(3, awaitEvent("guest", "GAME_ENDED").get("rounds"));
+    }
+
+    @Test
+    void testGuessersWhoLeaveNoLongerCount() throws InterruptedException {
+        startGame("host", "guest", "third", "fourth");
+        gameServer.pickWord("host", ((List<?>) awaitEvent("host", "WORD_CHOICES").get("words")).get(0).toString());
+        String word = (String) awaitEvent("host", "WORD_TO_DRAW").get("word");
+        awaitEvent("fourth", "DRAWING_STARTED");
+
+        gameServer.submitGuess("guest", word);
+        awaitEvent("host", "GUESS_CORRECT");
+        gameServer.leaveRoom("guest");
+        gameServer.submitGuess("third", word);
+        awaitEvent("host", "GUESS_CORRECT", 2);
+
+        // Fourth is still guessing; the guest who left must not stand in for them.
+        Thread.sleep(100);
+        assertTrue(events("fourth", "ROUND_ENDED").isEmpty(), "The round ended before every guesser had the word");
+
+        // Once the last guesser leaves, everyone still in the room has the word.
+        long start = System.nanoTime();
+        gameServer.leaveRoom("fourth");
+        assertEquals(word, awaitEvent("third", "ROUND_ENDED").get("word"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < TIMINGS.drawMillis(), "The round should end at once, not after " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,226 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.cluster.InProcessClusterBus;
+import com.drawathang.game_server.journal.JournalRecord;
+import com.drawathang.game_server.journal.JournalState;
+import com.drawathang.game_server.journal.RoomJournal;
+import com.drawathang.game_server.services.GameServer;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import com.drawathang.game_server.services.WordBank;
+import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.services.domain.Guess;
+import com.drawathang.game_server.util.DrawEventCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Room journal round trips through a temporary directory: close and reopen, compaction into a
+ * snapshot, and a segment cut short by a crash.
+ */
+public class RoomJournalTests {
+
+    private Path directory;
+    private final List<RoomJournal> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("room-journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        opened.forEach(RoomJournal::close);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private RoomJournal open(long snapshotSeconds) {
+        RoomJournal journal = RoomJournal.open(directory, 5, snapshotSeconds, GuessHistory.DEFAULT_CAPACITY);
+        opened.add(journal);
+        return journal;
+    }
+
+    private Map<String, JournalState.RoomImage> restore() {
+        Map<String, JournalState.RoomImage> rooms = new LinkedHashMap<>();
+        for (JournalState.RoomImage room : open(3600).restore(new StrokeSegmentPool(), GuessHistory.DEFAULT_CAPACITY)) {
+            rooms.put(room.getRoomId(), room);
+        }
+        return rooms;
+    }
+
+    private static byte[] drawBatch(String drawer, int strokeId, int segments) {
+        List<DrawEvent> batch = new ArrayList<>();
+        for (int i = 0; i < segments; i++) {
+            int flags = (i == 0 ? DrawEvent.FLAG_STROKE_START : 0) | (i == segments - 1 ? DrawEvent.FLAG_STROKE_END : 0);
+            batch.add(new DrawEvent(drawer, strokeId, flags, 0xFF000000, 3, new int[]{i, i, i + 1, i + 1}));
+        }
+        return DrawEventCodec.encodeDrawBatch(batch);
+    }
+
+    private static int pointCount(JournalState.RoomImage room) {
+        int points = 0;
+        for (DrawEvent segment : DrawEventCodec.decodeCanvasSnapshot(ByteBuffer.wrap(room.getCanvas().encodeSnapshot()))) {
+            points += segment.getPointCount();
+        }
+        return points;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    @Test
+    void testRoomsAreRestoredAfterReopening() {
+        RoomJournal journal = open(3600);
+        journal.append(new JournalRecord.RoomCreated("room-1", "First"));
+        journal.append(new JournalRecord.RoomCreated("room-2", "Second"));
+        journal.append(new JournalRecord.GuessAdded("room-1", "alice", "Alice", "cat"));
+        journal.append(new JournalRecord.DrawBatch("room-1", drawBatch("bob", 1, 10)));
+        journal.append(new JournalRecord.GuessAdded("room-2", "carol", "Carol", "dog"));
+        journal.append(new JournalRecord.RoomRemoved("room-2"));
+        journal.close();
+
+        Map<String, JournalState.RoomImage> rooms = restore();
+        assertEquals(List.of("room-1"), List.copyOf(rooms.keySet()));
+
+        JournalState.RoomImage room = rooms.get("room-1");
+        assertEquals("First", room.getRoomName());
+        List<Guess> guesses = room.getGuesses().last(10);
+        assertEquals(1, guesses.size());
+        assertEquals("Alice", guesses.get(0).getUsername());
+        assertEquals("cat", guesses.get(0).getGuess());
+        assertEquals(20, pointCount(room));
+    }
+
+    @Test
+    void testClearedCanvasStaysCleared() {
+        RoomJournal journal = open(3600);
+        journal.append(new JournalRecord.RoomCreated("room-1", "First"));
+        journal.append(new JournalRecord.DrawBatch("room-1", drawBatch("bob", 1, 10)));
+        journal.append(new JournalRecord.CanvasCleared("room-1"));
+        journal.append(new JournalRecord.DrawBatch("room-1", drawBatch("bob", 2, 3)));
+        journal.close();
+
+        assertEquals(6, pointCount(restore().get("room-1")));
+    }
+
+    @Test
+    void testSnapshotFoldsClosedSegments() throws Exception {
+        RoomJournal journal = open(1);
+        for (int i = 0; i < 100; i++) {
+            journal.append(new JournalRecord.RoomCreated("room-" + i, "Room " + i));
+            journal.append(new JournalRecord.DrawBatch("room-" + i, drawBatch("drawer", i, 5)));
+        }
+        for (int i = 0; i < 50; i++) {
+            journal.append(new JournalRecord.RoomRemoved("room-" + i));
+        }
+        awaitCondition(() -> {
+            try {
+                return countFiles("snapshot-") == 1 && countFiles("journal-") == 1;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+
+        // Written after the snapshot, so replayed on top of it.
+        journal.append(new JournalRecord.GuessAdded("room-99", "alice", "Alice", "tree"));
+        journal.close();
+
+        Map<String, JournalState.RoomImage> rooms = restore();
+        assertEquals(50, rooms.size());
+        assertEquals(10, pointCount(rooms.get("room-50")));
+        assertEquals("tree", rooms.get("room-99").getGuesses().last(1).get(0).getGuess());
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        RoomJournal journal = open(3600);
+        journal.append(new JournalRecord.RoomCreated("room-1", "First"));
+        journal.append(new JournalRecord.RoomCreated("room-2", "Second"));
+        journal.close();
+
+        // A crash in the middle of the last write.
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        Map<String, JournalState.RoomImage> rooms = restore();
+        assertEquals(List.of("room-1"), List.copyOf(rooms.keySet()));
+    }
+
+    @Test
+    void testGameServerReopensJournaledRooms() throws InterruptedException {
+        GameServer before = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION,
+                WordBank.DEFAULT_LOCALE, InProcessClusterBus.standalone(GameServer.STANDALONE_NODE_ID), open(3600));
+        before.getBroadcastService().registerSession(openSession("host"));
+        before.joinServer("host");
+        before.createRoom("host", "Kept");
+        awaitCondition(() -> before.getRoomsCount() == 1);
+        before.getBroadcastService().unregisterSession("host");
+        before.shutdown();
+
+        GameServer after = new GameServer(30, 1, GuessHistory.DEFAULT_CAPACITY, WordBank.DEFAULT_LOCATION,
+                WordBank.DEFAULT_LOCALE, InProcessClusterBus.standalone(GameServer.STANDALONE_NODE_ID), open(3600));
+        try {
+            awaitCondition(() -> after.getRoomsCount() == 1);
+        } finally {
+            after.shutdown();
+        }
+    }
+
+    /**
+     * A connection that stays open and discards whatever it is sent.
+     */
+    private static WebSocketSession openSession(String id) {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubSession[" + id + "]";
+                    default -> null;
+                });
+    }
+}
@@ -2,11 +2,14 @@ package com.drawathang.game_server;
 
 
 import com.drawathang.game_server.application.GameServerApplication;
+import com.drawathang.game_server.services.domain.DrawEvent;
+import com.drawathang.game_server.util.DrawEventCodec;
 import com.drawathang.game_server.util.JsonUtil;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.WebSocketSession;
@@ -14,6 +17,8 @@ import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -152,11 +157,11 @@ public class RoomServiceTests {
         for (String msg : handler2.getMessages()) {
             Map<String, Object> parsed = JsonUtil.fromJson(msg, Map.class);
 
-            // Check if this is the ROOM_CREATED message
-            if ("ROOM_CREATED".equals(parsed.get("event"))) {
-                List<Map<String, Object>> roomsInfo = (List<Map<String, Object>>) parsed.get("roomsInfo");
-                if (roomsInfo != null && !roomsInfo.isEmpty()) {
-                    roomId = (String) roomsInfo.get(0).get("roomId");
+            // Check if this is the ROOMS_DELTA announcing the new room
+            if ("ROOMS_DELTA".equals(parsed.get("event"))) {
+                List<Map<String, Object>> added = (List<Map<String, Object>>) parsed.get("added");
+                if (added != null && !added.isEmpty()) {
+                    roomId = (String) added.get(0).get("roomId");
                     break;
                 }
             }
@@ -191,8 +196,222 @@ public class RoomServiceTests {
 
     }
 
+    @Test
+    void testLobbyReceivesRoomDeltas() throws Exception {
+        // Set up websocket client sessions
+        WebSocketClient client = new StandardWebSocketClient();
+        URI uri = new URI("ws://localhost:" + port + "/game-server");
+
+        TestClientWebSocketHandler lobbyHandler = new TestClientWebSocketHandler();
+        TestClientWebSocketHandler hostHandler = new TestClientWebSocketHandler();
+
+        WebSocketSession lobbySession = client.execute(lobbyHandler, new WebSocketHttpHeaders(), uri).get();
+        WebSocketSession hostSession = client.execute(hostHandler, new WebSocketHttpHeaders(), uri).get();
+
+        // The lobby session joins on its own first, so its own USER_JOINED is the first message it gets
+        String joinMessage = JsonUtil.toJson(Map.of("type", "JOIN_SERVER"));
+        CountDownLatch lobbyJoinedLatch = new CountDownLatch(1);
+        lobbyHandler.setLatch(lobbyJoinedLatch);
+        lobbySession.sendMessage(new TextMessage(joinMessage));
+        assertTrue(lobbyJoinedLatch.await(1, TimeUnit.SECONDS));
+
+        // ✅ The joining session's USER_JOINED carries the current room list and its version
+        Map<String, Object> joined = JsonUtil.fromJson(lobbyHandler.getMessages().get(0), Map.class);
+        assertEquals("USER_JOINED", joined.get("event"));
+        assertEquals(0, ((List<?>) joined.get("rooms")).size());
+        long roomsVersion = ((Number) joined.get("roomsVersion")).longValue();
+
+        // The host joins next; the lobby hears about it too
+        CountDownLatch hostJoinedLatch = new CountDownLatch(2);
+        lobbyHandler.setLatch(hostJoinedLatch);
+        hostHandler.setLatch(hostJoinedLatch);
+        hostSession.sendMessage(new TextMessage(joinMessage));
+        assertTrue(hostJoinedLatch.await(1, TimeUnit.SECONDS));
+
+        // ✅ Creating and leaving a room reaches the lobby as two single-room deltas
+        lobbyHandler.resetMessages();
+        CountDownLatch lobbyLatch = new CountDownLatch(2);
+        lobbyHandler.setLatch(lobbyLatch);
+        hostHandler.setLatch(new CountDownLatch(Integer.MAX_VALUE));
+        hostSession.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "CREATE_ROOM", "roomName", "deltaroom"))));
+        hostSession.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "LEAVE_ROOM"))));
+        assertTrue(lobbyLatch.await(1, TimeUnit.SECONDS));
+
+        Map<String, Object> addedDelta = JsonUtil.fromJson(lobbyHandler.getMessages().get(0), Map.class);
+        Map<String, Object> removedDelta = JsonUtil.fromJson(lobbyHandler.getMessages().get(1), Map.class);
+        assertEquals("ROOMS_DELTA", addedDelta.get("event"));
+        assertEquals(roomsVersion + 1, ((Number) addedDelta.get("roomsVersion")).longValue());
+        assertEquals(1, ((List<?>) addedDelta.get("added")).size());
+        assertEquals(roomsVersion + 2, ((Number) removedDelta.get("roomsVersion")).longValue());
+        assertEquals(1, ((List<?>) removedDelta.get("removed")).size());
+
+        // ✅ A client that fell behind gets a snapshot
+        lobbyHandler.resetMessages();
+        lobbyLatch = new CountDownLatch(1);
+        lobbyHandler.setLatch(lobbyLatch);
+        lobbySession.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "SYNC_ROOMS", "roomsVersion", roomsVersion))));
+        assertTrue(lobbyLatch.await(1, TimeUnit.SECONDS));
+
+        Map<String, Object> snapshot = JsonUtil.fromJson(lobbyHandler.getMessages().get(0), Map.class);
+        assertEquals("ROOMS_SNAPSHOT", snapshot.get("event"));
+        assertEquals(roomsVersion + 2, ((Number) snapshot.get("roomsVersion")).longValue());
+
+        lobbySession.close();
+        hostSession.close();
+    }
+
     @Test
     void testSubmittingGuesses() throws Exception {
+        // Set up websocket client sessions
+        WebSocketClient client = new StandardWebSocketClient();
+        URI uri = new URI("ws://localhost:" + port + "/game-server");
+
+        TestClientWebSocketHandler handler1 = new TestClientWebSocketHandler();
+        TestClientWebSocketHandler handler2 = new TestClientWebSocketHandler();
+
+        WebSocketSession session1 = client.execute(handler1, new WebSocketHttpHeaders(), uri).get();
+        WebSocketSession session2 = client.execute(handler2, new WebSocketHttpHeaders(), uri).get();
+
+        String joinMessage = JsonUtil.toJson(Map.of("type", "JOIN_SERVER"));
+        CountDownLatch globalLatch = new CountDownLatch(3);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        session1.sendMessage(new TextMessage(joinMessage));
+        session2.sendMessage(new TextMessage(joinMessage));
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        globalLatch = new CountDownLatch(2);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        session1.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "CREATE_ROOM", "roomName", "guessroom"))));
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        String roomId = null;
+        for (String msg : handler2.getMessages()) {
+            Map<String, Object> parsed = JsonUtil.fromJson(msg, Map.class);
+            if ("ROOMS_DELTA".equals(parsed.get("event"))) {
+                List<Map<String, Object>> added = (List<Map<String, Object>>) parsed.get("added");
+                roomId = (String) added.get(0).get("roomId");
+            }
+        }
+
+        globalLatch = new CountDownLatch(2);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        session2.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "JOIN_ROOM", "roomId", roomId))));
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        Map<String, Object> snapshot = JsonUtil.fromJson(handler2.getMessages().get(handler2.getMessages().size() - 1), Map.class);
+        assertEquals("ROOM_SNAPSHOT", snapshot.get("event"));
+        long snapshotSeq = ((Number) snapshot.get("seq")).longValue();
+
+        // ✅ Each guess is a single GUESS_ADDED event, not a re-send of the whole history
+        handler1.resetMessages();
+        handler2.resetMessages();
+        globalLatch = new CountDownLatch(6);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        for (String guess : List.of("cat", "dog", "house")) {
+            session2.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "SUBMIT_GUESS", "guess", guess))));
+        }
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        List<String> received = handler1.getMessages();
+        assertEquals(3, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            Map<String, Object> event = JsonUtil.fromJson(received.get(i), Map.class);
+            assertEquals("GUESS_ADDED", event.get("event"));
+            assertEquals(snapshotSeq + i + 1, ((Number) event.get("seq")).longValue());
+            assertEquals(List.of("cat", "dog", "house").get(i), event.get("guess"));
+        }
+
+        // ✅ A requested snapshot carries the full guess history
+        handler2.resetMessages();
+        CountDownLatch snapshotLatch = new CountDownLatch(1);
+        handler2.setLatch(snapshotLatch);
+        session2.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "REQUEST_ROOM_SNAPSHOT"))));
+        assertTrue(snapshotLatch.await(1, TimeUnit.SECONDS));
+
+        snapshot = JsonUtil.fromJson(handler2.getMessages().get(0), Map.class);
+        assertEquals("ROOM_SNAPSHOT", snapshot.get("event"));
+        assertEquals(3, ((List<?>) snapshot.get("guesses")).size());
+
+        session1.close();
+        session2.close();
+    }
+
+    @Test
+    void testDrawEventsAreBatchedPerTick() throws Exception {
+        // Set up websocket client sessions
+        WebSocketClient client = new StandardWebSocketClient();
+        URI uri = new URI("ws://localhost:" + port + "/game-server");
+
+        TestClientWebSocketHandler handler1 = new TestClientWebSocketHandler();
+        TestClientWebSocketHandler handler2 = new TestClientWebSocketHandler();
+
+        WebSocketSession session1 = client.execute(handler1, new WebSocketHttpHeaders(), uri).get();
+        WebSocketSession session2 = client.execute(handler2, new WebSocketHttpHeaders(), uri).get();
+
+        String joinMessage = JsonUtil.toJson(Map.of("type", "JOIN_SERVER"));
+        CountDownLatch globalLatch = new CountDownLatch(3);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        session1.sendMessage(new TextMessage(joinMessage));
+        session2.sendMessage(new TextMessage(joinMessage));
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        // Session 1 creates a room, session 2 learns its id from the lobby broadcast
+        globalLatch = new CountDownLatch(2);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        session1.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "CREATE_ROOM", "roomName", "drawroom"))));
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        String roomId = null;
+        for (String msg : handler2.getMessages()) {
+            Map<String, Object> parsed = JsonUtil.fromJson(msg, Map.class);
+            if ("ROOMS_DELTA".equals(parsed.get("event"))) {
+                List<Map<String, Object>> added = (List<Map<String, Object>>) parsed.get("added");
+                roomId = (String) added.get(0).get("roomId");
+            }
+        }
+
+        globalLatch = new CountDownLatch(2);
+        handler1.setLatch(globalLatch);
+        handler2.setLatch(globalLatch);
+        session2.sendMessage(new TextMessage(JsonUtil.toJson(Map.of("type", "JOIN_ROOM", "roomId", roomId))));
+        assertTrue(globalLatch.await(1, TimeUnit.SECONDS));
+
+        // ✅ Send a burst of stroke segments well within one tick
+        handler2.resetMessages();
+        CountDownLatch drawLatch = new CountDownLatch(1);
+        handler2.setLatch(drawLatch);
+        handler1.setLatch(new CountDownLatch(Integer.MAX_VALUE));
+
+        List<DrawEvent> sent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int flags = i == 0 ? DrawEvent.FLAG_STROKE_START : (i == 19 ? DrawEvent.FLAG_STROKE_END : 0);
+            DrawEvent drawEvent = new DrawEvent("", 1, flags, 0xFF000000, 3, new int[]{100 + i, 200 + i, 101 + i, 201 + i});
+            sent.add(drawEvent);
+            session1.sendMessage(new BinaryMessage(DrawEventCodec.encodeDrawEvent(drawEvent)));
+        }
+        assertTrue(drawLatch.await(1, TimeUnit.SECONDS), "A draw batch should have been flushed to the room");
+
+        // Allow any straggling tick to land, then check every segment arrived once and in order
+        Thread.sleep(200);
+        List<DrawEvent> received = new ArrayList<>();
+        for (ByteBuffer frame : handler2.getBinaryMessages()) {
+            received.addAll(DrawEventCodec.decodeDrawBatch(frame));
+        }
+
+        assertTrue(handler2.getBinaryMessages().size() < sent.size(), "Segments should have been coalesced into fewer frames");
+        assertEquals(sent.size(), received.size());
+        for (int i = 0; i < sent.size(); i++) {
+            assertEquals(received.get(0).getDrawerSessionId(), received.get(i).getDrawerSessionId());
+            assertEquals(sent.get(i).getX(0), received.get(i).getX(0));
+        }
 
+        session1.close();
+        session2.close();
     }
 }
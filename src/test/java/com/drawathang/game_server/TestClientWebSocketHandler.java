@@ -1,16 +1,19 @@
 package com.drawathang.game_server;
 
 import org.springframework.lang.NonNull;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 
-class TestClientWebSocketHandler extends TextWebSocketHandler {
+class TestClientWebSocketHandler extends AbstractWebSocketHandler {
     private List<String> messages = new CopyOnWriteArrayList<>();
+    private List<ByteBuffer> binaryMessages = new CopyOnWriteArrayList<>();
     private CountDownLatch latch;
 
     public void setLatch(CountDownLatch latch) {
@@ -19,6 +22,7 @@ class TestClientWebSocketHandler extends TextWebSocketHandler {
 
     public void resetMessages() {
         this.messages = new CopyOnWriteArrayList<>();
+        this.binaryMessages = new CopyOnWriteArrayList<>();
     }
 
     @Override
@@ -31,7 +35,19 @@ class TestClientWebSocketHandler extends TextWebSocketHandler {
         latch.countDown();
     }
 
+    @Override
+    protected void handleBinaryMessage(@NonNull WebSocketSession session, BinaryMessage message) {
+        ByteBuffer copy = ByteBuffer.allocate(message.getPayloadLength());
+        copy.put(message.getPayload()).flip();
+        binaryMessages.add(copy);
+        latch.countDown();
+    }
+
     public List<String> getMessages() {
         return messages;
     }
+
+    public List<ByteBuffer> getBinaryMessages() {
+        return binaryMessages;
+    }
 }
@@ -0,0 +1,86 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.TimerWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimerWheelTests {
+
+    private final TimerWheel timers = new TimerWheel("test-timers", 10, TimeUnit.MILLISECONDS, 64);
+
+    @AfterEach
+    void stopWheel() {
+        timers.stop();
+    }
+
+    @Test
+    void testTimeoutsFireOnTheirExecutorAfterTheDelay() throws Exception {
+        ExecutorService owner = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "room-owner"));
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicReference<String> firedOn = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        TimerWheel.Timeout timeout = timers.schedule(() -> {
+            firedOn.set(Thread.currentThread().getName());
+            fired.countDown();
+        }, 100, TimeUnit.MILLISECONDS, owner);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 100, "Fired early, after " + elapsedMillis + " ms");
+        assertEquals("room-owner", firedOn.get());
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel(), "An expired timeout cannot be cancelled");
+        owner.shutdown();
+    }
+
+    @Test
+    void testCancelledTimeoutsNeverFire() throws Exception {
+        int count = 10_000;
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch kept = new CountDownLatch(count / 2);
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>(count);
+
+        // Deadlines spread over more than one turn of the wheel
+        for (int i = 0; i < count; i++) {
+            timeouts.add(timers.schedule(() -> {
+                fired.incrementAndGet();
+                kept.countDown();
+            }, 50 + i % 1000, TimeUnit.MILLISECONDS, Runnable::run));
+        }
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertEquals(count / 2, timers.getPendingCount());
+
+        assertTrue(kept.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(count / 2, fired.get());
+        assertEquals(0, timers.getPendingCount());
+    }
+
+    @Test
+    void testDeadlinesBeyondOneTurnWaitForTheirTurn() throws Exception {
+        // The wheel turns every 640 ms; this deadline is two turns out.
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timers.schedule(fired::countDown, 1500, TimeUnit.MILLISECONDS, Runnable::run);
+
+        assertFalse(fired.await(1200, TimeUnit.MILLISECONDS), "Fired a turn too early");
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1500);
+    }
+}
@@ -0,0 +1,88 @@
+package com.drawathang.game_server;
+
+import com.drawathang.game_server.services.WordBank;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WordBankTests {
+
+    private static WordBank sampleBank() throws IOException {
+        return new WordBank.Builder("en")
+                .addList("en", "food", new StringReader("# Food\napple\n\n  ice cream  \npizza\n"))
+                .addList("en", "animals", new StringReader("cat\ndog\nowl\n"))
+                .addList("fr", "animaux", new StringReader("chat\nchien\n"))
+                .build();
+    }
+
+    @Test
+    void testListsArePackedByLocaleAndCategory() throws IOException {
+        WordBank bank = sampleBank();
+
+        assertEquals(8, bank.size());
+        assertEquals(Set.of("en", "fr"), bank.getLocales());
+        assertEquals(Set.of("animals", "food"), bank.getCategories("en"));
+
+        Set<String> words = new HashSet<>();
+        for (int i = 0; i < bank.size(); i++) {
+            words.add(bank.getWord(i));
+        }
+        assertEquals(Set.of("apple", "ice cream", "pizza", "cat", "dog", "owl", "chat", "chien"), words);
+
+        assertTrue(List.of("cat", "dog", "owl").contains(bank.randomWord("en", "animals")));
+        assertTrue(List.of("chat", "chien").contains(bank.randomWord("fr", null)));
+        assertThrows(IllegalArgumentException.class, () -> bank.randomWord("de", null));
+    }
+
+    @Test
+    void testSamplerDoesNotRepeatUntilTheListRunsOut() throws IOException {
+        WordBank.Builder builder = new WordBank.Builder("en");
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            list.append("word-").append(i).append('\n');
+        }
+        WordBank bank = builder.addList("en", "numbers", new StringReader(list.toString())).build();
+
+        WordBank.Sampler sampler = bank.newSampler();
+        Set<String> firstPass = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(firstPass.add(sampler.next()), "A word came up twice before the list ran out");
+        }
+
+        // The next pass is a fresh permutation of the same words
+        Set<String> secondPass = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            secondPass.add(sampler.next());
+        }
+        assertEquals(firstPass, secondPass);
+    }
+
+    @Test
+    void testSamplersAreIndependentPerRoom() throws IOException {
+        WordBank bank = sampleBank();
+        WordBank.Sampler first = bank.newSampler("en", "animals");
+        WordBank.Sampler second = bank.newSampler("en", "animals");
+
+        Set<String> fromFirst = new HashSet<>(List.of(first.next(), first.next(), first.next()));
+        Set<String> fromSecond = new HashSet<>(List.of(second.next(), second.next(), second.next()));
+        assertEquals(Set.of("cat", "dog", "owl"), fromFirst);
+        assertEquals(Set.of("cat", "dog", "owl"), fromSecond);
+    }
+
+    @Test
+    void testDefaultSamplerFallsBackToEveryWord() throws IOException {
+        WordBank bank = new WordBank.Builder("de")
+                .addList("en", "animals", new StringReader("cat\n"))
+                .build();
+        assertEquals("cat", bank.newSampler().next());
+        assertThrows(IllegalStateException.class, () -> new WordBank.Builder("en").build().newSampler());
+    }
+}
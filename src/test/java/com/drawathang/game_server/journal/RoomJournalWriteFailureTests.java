@@ -0,0 +1,251 @@
+package com.drawathang.game_server.journal;
+
+import com.drawathang.game_server.metrics.GameServerMetrics;
+import com.drawathang.game_server.services.GuessHistory;
+import com.drawathang.game_server.services.StrokeSegmentPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Room journal commits that fail halfway through, on segments whose writes can be made to fail.
+ * Lives next to the journal to reach the package-private segment opener.
+ */
+public class RoomJournalWriteFailureTests {
+
+    private Path directory;
+    private final List<RoomJournal> opened = new ArrayList<>();
+
+    /**
+     * Counts what the journal records into the game server's meters during one test.
+     */
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("room-journal");
+        GameServerMetrics.bindTo(meters);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        GameServerMetrics.unbind(meters);
+        opened.forEach(RoomJournal::close);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private List<String> restoredRoomIds() {
+        RoomJournal journal = RoomJournal.open(directory, 5, 3600, GuessHistory.DEFAULT_CAPACITY);
+        opened.add(journal);
+        List<String> roomIds = new ArrayList<>();
+        for (JournalState.RoomImage room : journal.restore(new StrokeSegmentPool(), GuessHistory.DEFAULT_CAPACITY)) {
+            roomIds.add(room.getRoomId());
+        }
+        return roomIds;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within 5 seconds");
+    }
+
+    /**
+     * Commits one room, then a room whose commit fails partway through a write or on its force,
+     * then a last room, and returns what a restart brings back.
+     */
+    private List<String> commitAroundFailure(FailingChannel.Failure failure, boolean cutFails) throws InterruptedException {
+        List<FailingChannel> segments = new CopyOnWriteArrayList<>();
+        RoomJournal journal = RoomJournal.open(directory, 5, 3600, RoomJournal.DEFAULT_SEGMENT_BYTES,
+                GuessHistory.DEFAULT_CAPACITY, file -> {
+                    FailingChannel channel = new FailingChannel(
+                            FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+                    segments.add(channel);
+                    return channel;
+                });
+        opened.add(journal);
+
+        journal.append(new JournalRecord.RoomCreated("room-1", "Before"));
+        awaitCondition(() -> journal.getPendingCount() == 0);
+
+        FailingChannel first = segments.get(0);
+        first.cutFails = cutFails;
+        first.failure = failure;
+        journal.append(new JournalRecord.RoomCreated("room-2", "Lost"));
+        awaitCondition(() -> journal.getPendingCount() == 0);
+        assertEquals(1.0, meters.get("drawathang.journal.write.errors").counter().count());
+        assertEquals(cutFails ? 2 : 1, segments.size());
+
+        journal.append(new JournalRecord.RoomCreated("room-3", "After"));
+        journal.close();
+        return restoredRoomIds();
+    }
+
+    @Test
+    void testTornWriteIsCutSoLaterCommitsReplay() throws InterruptedException {
+        assertEquals(List.of("room-1", "room-3"), commitAroundFailure(FailingChannel.Failure.TORN_WRITE, false));
+    }
+
+    @Test
+    void testFailedForceIsCutSoTheBatchStaysLost() throws InterruptedException {
+        assertEquals(List.of("room-1", "room-3"), commitAroundFailure(FailingChannel.Failure.FORCE, false));
+    }
+
+    @Test
+    void testSegmentThatCannotBeCutIsLeftForANewOne() throws InterruptedException {
+        assertEquals(List.of("room-1", "room-3"), commitAroundFailure(FailingChannel.Failure.TORN_WRITE, true));
+    }
+
+    /**
+     * A segment channel that fails once on demand, the way a full or failing disk would.
+     */
+    private static final class FailingChannel extends FileChannel {
+        enum Failure {
+            /**
+             * The next write stores half its bytes, then fails.
+             */
+            TORN_WRITE,
+            /**
+             * The next force fails after everything was written.
+             */
+            FORCE
+        }
+
+        private final FileChannel delegate;
+        volatile Failure failure;
+        volatile boolean cutFails;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (this.failure == Failure.TORN_WRITE) {
+                this.failure = null;
+                ByteBuffer half = src.duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                src.position(src.position() + this.delegate.write(half));
+                throw new IOException("Injected write failure");
+            }
+            return this.delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (this.failure == Failure.FORCE) {
+                this.failure = null;
+                throw new IOException("Injected force failure");
+            }
+            this.delegate.force(metaData);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (this.cutFails) {
+                throw new IOException("Injected truncate failure");
+            }
+            this.delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return this.delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return this.delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return this.delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return this.delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            this.delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return this.delegate.size();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return this.delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return this.delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return this.delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return this.delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return this.delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return this.delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return this.delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            this.delegate.close();
+        }
+    }
+}